@@ -0,0 +1,17 @@
+package tcc;
+
+public enum Backend {
+    JAVA(".java"),
+    BYTECODE(".class"),
+    VM(".cafeb");
+
+    private final String extension;
+
+    Backend(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,90 @@
+package tcc;
+
+import tcc.exceptions.CompilationException;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+// Compila vários arquivos em uma única JVM, distribuindo-os entre as threads de um ForkJoinPool
+public class BatchCompiler {
+    private final int parallelism;
+    private final FileCompiler fileCompiler;
+
+    public interface FileCompiler {
+        void compile(Path inputPath) throws IOException, ParserException, SemanticAnalyzerException, CompilationException;
+    }
+
+    public record Result(Path inputPath, Optional<Exception> error) {}
+
+    public record Summary(List<Result> results, Duration elapsed) {
+        public long failures() {
+            return results.stream().filter(result -> result.error().isPresent()).count();
+        }
+
+        public double filesPerSecond() {
+            return results.size() / Math.max(elapsed.toNanos() / 1e9, 1e-9);
+        }
+    }
+
+    public BatchCompiler(int parallelism, boolean pipelined) {
+        this(parallelism, inputPath -> Compiler.compile(inputPath, Compiler.getOutputPath(inputPath), pipelined));
+    }
+
+    public BatchCompiler(int parallelism, FileCompiler fileCompiler) {
+        this.parallelism = parallelism;
+        this.fileCompiler = fileCompiler;
+    }
+
+    // diretórios são percorridos recursivamente em busca de arquivos .cafe
+    public static List<Path> findSources(List<Path> inputPaths) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (Path inputPath : inputPaths) {
+            if (!Files.isDirectory(inputPath)) {
+                sources.add(inputPath);
+                continue;
+            }
+
+            try (Stream<Path> files = Files.walk(inputPath)) {
+                files.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".cafe"))
+                    .sorted()
+                    .forEach(sources::add);
+            }
+        }
+
+        return sources;
+    }
+
+    public Summary compile(List<Path> sources) {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Result>> tasks = sources.stream()
+                .map(source -> pool.submit(() -> compileFile(source)))
+                .toList();
+            List<Result> results = tasks.stream().map(ForkJoinTask::join).toList();
+
+            return new Summary(results, Duration.ofNanos(System.nanoTime() - start));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result compileFile(Path inputPath) {
+        try {
+            fileCompiler.compile(inputPath);
+            return new Result(inputPath, Optional.empty());
+        } catch (Exception e) {
+            return new Result(inputPath, Optional.of(e));
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package tcc;
+
+import tcc.nodes.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Gera o arquivo .class diretamente a partir da árvore, sem passar por código Java e pelo javac.
+// As variáveis viram variáveis locais de main e imprimir vira System.out.println. Como o código não tem desvios,
+// a versão 52 do formato dispensa o atributo StackMapTable.
+public class BytecodeGenerator {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int CLASS_VERSION = 52;
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final int MAX_LOCALS = 65535;
+    private static final int MAX_STACK = 65535;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD = 0x15;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ISTORE = 0x36;
+    private static final int DSTORE = 0x39;
+    private static final int POP = 0x57;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int DUP2 = 0x5c;
+    private static final int IADD = 0x60;
+    private static final int DADD = 0x63;
+    private static final int ISUB = 0x64;
+    private static final int DSUB = 0x67;
+    private static final int IMUL = 0x68;
+    private static final int DMUL = 0x6b;
+    private static final int IDIV = 0x6c;
+    private static final int DDIV = 0x6f;
+    private static final int I2D = 0x87;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int WIDE = 0xc4;
+
+    private record Local(int index, DataType type) {}
+
+    private final String className;
+    private final ConstantPool constantPool = new ConstantPool();
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final Map<String, Local> locals = new HashMap<>();
+    // tipos das operações da expressão atual, para decidir onde converter int em double
+    private final Map<BinaryExpressionNode, DataType> types = new IdentityHashMap<>();
+    private int nextLocal = 1;
+    private int stack = 0;
+    private int maxStack = 0;
+
+    public BytecodeGenerator(String className) {
+        this.className = className;
+    }
+
+    public static byte[] generate(ProgramNode programNode, String className) {
+        BytecodeGenerator generator = new BytecodeGenerator(className);
+        for (StatementNode statement : programNode.statements()) {
+            generator.generateStatement(statement);
+        }
+
+        return generator.toByteArray();
+    }
+
+    public CodeEmitter emitter(OutputStream out) {
+        return new CodeEmitter() {
+            @Override
+            public void emit(StatementNode statement) {
+                generateStatement(statement);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                out.write(toByteArray());
+                out.flush();
+            }
+        };
+    }
+
+    public void generateStatement(StatementNode statement) {
+        switch (statement) {
+            case DeclarationNode declarationNode -> generateDeclaration(declarationNode);
+            case PrintCallNode printCallNode -> generatePrintCall(printCallNode);
+            case AssignmentNode assignmentNode -> generateAssignment(assignmentNode);
+            case ExpressionNode expressionNode -> {
+                DataType type = generateExpression(expressionNode);
+                op(type == DataType.DOUBLE ? POP2 : POP, -slots(type));
+            }
+        }
+    }
+
+    public byte[] toByteArray() {
+        if (maxStack > MAX_STACK) {
+            throw new IllegalStateException(String.format(
+                "Expressão aninhada demais para o método main: precisa de %d posições na pilha, o limite é %d", maxStack, MAX_STACK));
+        }
+
+        if (code.size() + 1 > MAX_CODE_LENGTH) {
+            throw new IllegalStateException(String.format(
+                "Programa grande demais para o método main: %d bytes de bytecode, o limite é %d", code.size() + 1, MAX_CODE_LENGTH));
+        }
+
+        int thisClass = constantPool.classRef(className);
+        int superClass = constantPool.classRef("java/lang/Object");
+        int codeAttribute = constantPool.utf8("Code");
+        int initName = constantPool.utf8("<init>");
+        int initDescriptor = constantPool.utf8("()V");
+        int objectInit = constantPool.methodRef("java/lang/Object", "<init>", "()V");
+        int mainName = constantPool.utf8("main");
+        int mainDescriptor = constantPool.utf8("([Ljava/lang/String;)V");
+
+        byte[] initCode = {
+            (byte) ALOAD_0,
+            (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+            (byte) RETURN
+        };
+        ByteArrayOutputStream mainCode = new ByteArrayOutputStream(code.size() + 1);
+        mainCode.writeBytes(code.toByteArray());
+        mainCode.write(RETURN);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            constantPool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // campos
+            out.writeShort(2); // métodos
+            writeMethod(out, ACC_PUBLIC, initName, initDescriptor, codeAttribute, 1, 1, initCode);
+            writeMethod(out, ACC_PUBLIC | ACC_STATIC, mainName, mainDescriptor, codeAttribute, maxStack, nextLocal, mainCode.toByteArray());
+            out.writeShort(0); // atributos
+        } catch (IOException e) {
+            // ByteArrayOutputStream nunca lança IOException
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private void generateDeclaration(DeclarationNode declarationNode) {
+        DataType type = declarationNode.type();
+        if (nextLocal + slots(type) > MAX_LOCALS) {
+            throw new IllegalStateException("Variáveis demais para o método main");
+        }
+
+        Local local = new Local(nextLocal, type);
+        nextLocal += slots(type);
+        locals.put(declarationNode.identifier().name(), local);
+
+        Optional<ExpressionNode> expression = declarationNode.expression();
+        if (expression.isPresent()) {
+            generateExpression(expression.get());
+            store(local);
+        }
+    }
+
+    private void generatePrintCall(PrintCallNode printCallNode) {
+        opWithShort(GETSTATIC, constantPool.fieldRef("java/lang/System", "out", "Ljava/io/PrintStream;"), 1);
+        DataType type = generateExpression(printCallNode.parameter());
+        String descriptor = type == DataType.DOUBLE ? "(D)V" : "(I)V";
+        opWithShort(INVOKEVIRTUAL, constantPool.methodRef("java/io/PrintStream", "println", descriptor), -1 - slots(type));
+    }
+
+    private DataType generateExpression(ExpressionNode expressionNode) {
+        computeTypes(expressionNode);
+        return emitter.walk(expressionNode);
+    }
+
+    // os tipos de toda a expressão são calculados antes, pois a conversão de um operando inteiro para double
+    // precisa ser feita logo depois dele, antes de se saber o tipo do outro operando
+    private final ExpressionWalker<DataType, RuntimeException> emitter = new ExpressionWalker<>() {
+        @Override
+        protected DataType leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> generateInt(intNode.value());
+                case DoubleNode doubleNode -> generateDouble(doubleNode.value());
+                case IdentifierNode identifierNode -> load(local(identifierNode));
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected void afterLeft(BinaryExpressionNode binaryExpressionNode, DataType left) {
+            widen(left, types.get(binaryExpressionNode));
+        }
+
+        @Override
+        protected DataType binary(BinaryExpressionNode binaryExpressionNode, DataType left, DataType right) {
+            DataType type = types.get(binaryExpressionNode);
+            widen(right, type);
+
+            boolean isInt = type == DataType.INT;
+            int opcode = switch (binaryExpressionNode.op()) {
+                case PLUS_SIGN -> isInt ? IADD : DADD;
+                case MINUS_SIGN -> isInt ? ISUB : DSUB;
+                case MULTIPLICATION_SIGN -> isInt ? IMUL : DMUL;
+                case DIVISION_SIGN -> isInt ? IDIV : DDIV;
+
+                // nunca acontece
+                case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser gerado como operação");
+            };
+            op(opcode, -slots(type));
+
+            return type;
+        }
+
+        @Override
+        protected DataType assignment(AssignmentNode assignmentNode, DataType value) {
+            // dentro de uma expressão o valor atribuído continua sendo usado
+            Local local = local(assignmentNode.identifier());
+            op(local.type() == DataType.DOUBLE ? DUP2 : DUP, slots(local.type()));
+            store(local);
+
+            return local.type();
+        }
+    };
+
+    private final ExpressionWalker<DataType, RuntimeException> typer = new ExpressionWalker<>() {
+        @Override
+        protected DataType leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> DataType.INT;
+                case DoubleNode doubleNode -> DataType.DOUBLE;
+                case IdentifierNode identifierNode -> local(identifierNode).type();
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected DataType binary(BinaryExpressionNode binaryExpressionNode, DataType left, DataType right) {
+            DataType type = left == DataType.INT && right == DataType.INT ? DataType.INT : DataType.DOUBLE;
+            types.put(binaryExpressionNode, type);
+            return type;
+        }
+
+        @Override
+        protected DataType assignment(AssignmentNode assignmentNode, DataType value) {
+            return local(assignmentNode.identifier()).type();
+        }
+    };
+
+    private void computeTypes(ExpressionNode expressionNode) {
+        types.clear();
+        typer.walk(expressionNode);
+    }
+
+    private void generateAssignment(AssignmentNode assignmentNode) {
+        // como instrução, o valor da atribuição não é usado e não precisa ser duplicado
+        Local local = local(assignmentNode.identifier());
+        generateExpression(assignmentNode.expression());
+        store(local);
+    }
+
+    private DataType generateInt(int value) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            opWithShort(SIPUSH, value, 1);
+        } else {
+            loadConstant(constantPool.integer(value));
+        }
+
+        return DataType.INT;
+    }
+
+    private DataType generateDouble(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            op(DCONST_0, 2);
+        } else if (value == 1.0) {
+            op(DCONST_1, 2);
+        } else {
+            opWithShort(LDC2_W, constantPool.doubleValue(value), 2);
+        }
+
+        return DataType.DOUBLE;
+    }
+
+    private void loadConstant(int index) {
+        if (index <= 0xff) {
+            op(LDC, 1);
+            code.write(index);
+        } else {
+            opWithShort(LDC_W, index, 1);
+        }
+    }
+
+    private DataType load(Local local) {
+        localInstruction(local.type() == DataType.DOUBLE ? DLOAD : ILOAD, local.index());
+        adjustStack(slots(local.type()));
+
+        return local.type();
+    }
+
+    private void store(Local local) {
+        localInstruction(local.type() == DataType.DOUBLE ? DSTORE : ISTORE, local.index());
+        adjustStack(-slots(local.type()));
+    }
+
+    private void localInstruction(int opcode, int index) {
+        if (index > 0xff) {
+            code.write(WIDE);
+            code.write(opcode);
+            writeShort(index);
+        } else {
+            code.write(opcode);
+            code.write(index);
+        }
+    }
+
+    private void widen(DataType from, DataType to) {
+        if (from == DataType.INT && to == DataType.DOUBLE) {
+            op(I2D, 1);
+        }
+    }
+
+    private Local local(IdentifierNode identifierNode) {
+        Local local = locals.get(identifierNode.name());
+        if (local == null) {
+            // o analisador semântico garante que isso não acontece
+            throw new IllegalStateException("Variável " + identifierNode.name() + " não foi declarada");
+        }
+
+        return local;
+    }
+
+    private static int slots(DataType type) {
+        return type == DataType.DOUBLE ? 2 : 1;
+    }
+
+    private void op(int opcode, int stackDelta) {
+        code.write(opcode);
+        adjustStack(stackDelta);
+    }
+
+    private void opWithShort(int opcode, int operand, int stackDelta) {
+        code.write(opcode);
+        writeShort(operand);
+        adjustStack(stackDelta);
+    }
+
+    private void writeShort(int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    private void adjustStack(int delta) {
+        stack += delta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // tabela de exceções
+        out.writeShort(0); // atributos
+    }
+
+    private static class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int FIELDREF = 9;
+        private static final int METHODREF = 10;
+        private static final int NAME_AND_TYPE = 12;
+        private static final int MAX_ENTRIES = 65535;
+
+        private interface Entry {
+            void write(DataOutputStream out) throws IOException;
+        }
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream entries = new DataOutputStream(bytes);
+        private final Map<List<Object>, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return add(List.of(UTF8, value), 1, out -> {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int integer(int value) {
+            return add(List.of(INTEGER, value), 1, out -> {
+                out.writeByte(INTEGER);
+                out.writeInt(value);
+            });
+        }
+
+        int doubleValue(double value) {
+            // double ocupa duas posições da tabela
+            return add(List.of(DOUBLE, Double.doubleToRawLongBits(value)), 2, out -> {
+                out.writeByte(DOUBLE);
+                out.writeDouble(value);
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return add(List.of(CLASS, name), 1, out -> {
+                out.writeByte(CLASS);
+                out.writeShort(nameIndex);
+            });
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(FIELDREF, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            return memberRef(METHODREF, owner, name, descriptor);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeShort(count);
+            bytes.writeTo(out);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameAndTypeIndex = nameAndType(name, descriptor);
+            return add(List.of(tag, owner, name, descriptor), 1, out -> {
+                out.writeByte(tag);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndTypeIndex);
+            });
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            return add(List.of(NAME_AND_TYPE, name, descriptor), 1, out -> {
+                out.writeByte(NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+        }
+
+        private int add(List<Object> key, int size, Entry entry) {
+            Integer existing = indexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            if (count + size > MAX_ENTRIES) {
+                throw new IllegalStateException("Constantes demais para um único arquivo .class");
+            }
+
+            try {
+                entry.write(entries);
+            } catch (IOException e) {
+                // ByteArrayOutputStream nunca lança IOException
+                throw new UncheckedIOException(e);
+            }
+
+            int index = count;
+            count += size;
+            indexes.put(key, index);
+            return index;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package tcc;
+
+import tcc.nodes.StatementNode;
+
+import java.io.IOException;
+
+// Recebe as instruções já analisadas, uma de cada vez, e escreve o código gerado
+public interface CodeEmitter {
+    void emit(StatementNode statement) throws IOException;
+
+    void finish() throws IOException;
+}
@@ -0,0 +1,171 @@
+package tcc;
+
+import tcc.exceptions.CompilationException;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Cache em disco das saídas geradas, indexado pelo SHA-256 da versão do compilador, das configurações que afetam a
+// saída e do conteúdo do fonte. Entradas são gravadas em um arquivo temporário e movidas atomicamente, então vários
+// processos podem usar o mesmo diretório; a data de modificação marca o último uso e guia a remoção das mais antigas.
+public class CompilationCache {
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final Duration ABANDONED_TEMPORARY_AGE = Duration.ofHours(1);
+
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // soma das entradas, lida do diretório na primeira gravação e depois só atualizada; -1 até essa leitura
+    private long totalSize = -1;
+
+    public interface Compilation {
+        void compile() throws IOException, ParserException, SemanticAnalyzerException, CompilationException;
+    }
+
+    public CompilationCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    public void compile(Path inputPath, Path outputPath, String settings, Compilation compilation)
+            throws IOException, ParserException, SemanticAnalyzerException, CompilationException {
+        Files.createDirectories(directory);
+        String key = key(inputPath, settings);
+        Path entry = directory.resolve(key);
+
+        if (restore(entry, outputPath)) {
+            hits.incrementAndGet();
+            return;
+        }
+
+        misses.incrementAndGet();
+        compilation.compile();
+        // o compilador lê o fonte de novo; se ele mudou no meio, como ao ser salvo por um editor durante o build, a
+        // saída não corresponde ao conteúdo da chave e não é guardada
+        if (!key(inputPath, settings).equals(key)) {
+            return;
+        }
+        store(outputPath, entry);
+        stored(Files.size(outputPath));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private boolean restore(Path entry, Path outputPath) throws IOException {
+        try {
+            Files.copy(entry, outputPath, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            // não existe ou foi removida por outro processo
+            return false;
+        }
+    }
+
+    private void store(Path outputPath, Path entry) throws IOException {
+        Path temporary = Files.createTempFile(directory, entry.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            Files.copy(outputPath, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // o diretório só é percorrido de novo quando o total passa do limite, e não a cada gravação, o que tornaria um lote
+    // de N arquivos novos quadrático. Entradas gravadas por outros processos só são vistas nessas leituras
+    private synchronized void stored(long size) throws IOException {
+        if (totalSize < 0) {
+            evict();
+            return;
+        }
+
+        totalSize += size;
+        if (totalSize > maxSize) {
+            evict();
+        }
+    }
+
+    private synchronized void evict() throws IOException {
+        record Entry(Path path, long size, FileTime lastUsed) {}
+
+        List<Entry> entries = new ArrayList<>();
+        totalSize = 0;
+        Instant abandoned = Instant.now().minus(ABANDONED_TEMPORARY_AGE);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                try {
+                    FileTime lastUsed = Files.getLastModifiedTime(path);
+                    if (path.toString().endsWith(TEMPORARY_SUFFIX)) {
+                        // sobra de um processo que morreu no meio da gravação
+                        if (lastUsed.toInstant().isBefore(abandoned)) {
+                            Files.deleteIfExists(path);
+                        }
+                        continue;
+                    }
+
+                    long size = Files.size(path);
+                    entries.add(new Entry(path, size, lastUsed));
+                    totalSize += size;
+                } catch (NoSuchFileException e) {
+                    // removida por outro processo enquanto a listagem acontecia
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (int i = 0; totalSize > maxSize && i < entries.size(); i++) {
+            Files.deleteIfExists(entries.get(i).path());
+            totalSize -= entries.get(i).size();
+        }
+    }
+
+    private static String key(Path inputPath, String settings) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // toda JVM precisa oferecer SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        digest.update((Compiler.VERSION + "\0" + settings + "\0").getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -1,42 +1,408 @@
 package tcc;
 
+import tcc.exceptions.CompilationException;
 import tcc.exceptions.ParserException;
 import tcc.exceptions.SemanticAnalyzerException;
-import tcc.nodes.ProgramNode;
+import tcc.ir.PassManager;
+import tcc.nodes.StatementNode;
+import tcc.optimizer.Optimizer;
+import tcc.vm.VirtualMachine;
+import tcc.vm.VmGenerator;
+import tcc.vm.VmProgram;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
 
 public class Compiler {
-    public static void main(String[] args) throws IOException, ParserException, SemanticAnalyzerException {
-        Path inputPath = Paths.get(args[0]);
-        String input = Files.readString(inputPath);
-
-        InputStream inputStream = new InputStream(input);
-        TokenStream tokenStream = new TokenStream(inputStream);
-        Parser parser = new Parser(tokenStream);
-        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
-        ProgramNode programNode = parser.parseTopLevel();
-        semanticAnalyzer.analyze(programNode);
-
-        // generate java code
-        JavaGenerator javaGenerator = new JavaGenerator();
-        String output = javaGenerator.generate(programNode, capitalize(getFileWithoutExtension(inputPath)));
-        Files.writeString(getOutputPath(inputPath), output);
-    }
-    private static Path getOutputPath(Path inputPath) {
+    // deve mudar sempre que o código gerado mudar, pois faz parte da chave do cache de compilação
+    public static final String VERSION = "1.6";
+
+    private static InMemoryRunner runner;
+
+    public static void main(String[] args) throws IOException {
+        CompilerOptions options;
+        try {
+            options = CompilerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        if (options.server()) {
+            new CompilerServer(options.socketPath()).serve();
+            return;
+        }
+
+        int status = run(options, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    // executa uma chamada do compilador e devolve o código de saída, para ser usado também pelo servidor
+    public static int run(CompilerOptions options, PrintStream out, PrintStream err) {
+        if (options.run()) {
+            return runProgram(options.inputPaths().get(0), options.generator(), options.maxErrors(), err);
+        }
+        if (options.interpret()) {
+            return interpretProgram(options.inputPaths().get(0), options.generator(), options.maxErrors(), out, err);
+        }
+
+        Optional<CompilationCache> cache = options.cacheDirectory()
+            .map(directory -> new CompilationCache(directory, options.cacheSize()));
+        Optimizer optimizer = new Optimizer();
+        BatchCompiler.FileCompiler fileCompiler = inputPath -> compileFile(inputPath, options, cache, optimizer);
+
+        int status = options.isBatch()
+            ? compileBatch(options, fileCompiler, out, err)
+            : compileSingle(options.inputPaths().get(0), fileCompiler, err);
+
+        if (options.generator().optimize()) {
+            out.printf("otimização: %d instruções e %d atribuições removidas, %d subexpressões reaproveitadas%n",
+                optimizer.getRemovedStatements(), optimizer.getRemovedStores(), optimizer.getEliminatedSubexpressions());
+        }
+        cache.ifPresent(c -> out.printf("cache: %d acertos, %d faltas%n", c.getHits(), c.getMisses()));
+        return status;
+    }
+
+    private static void compileFile(Path inputPath, CompilerOptions options, Optional<CompilationCache> cache,
+                                    Optimizer optimizer)
+            throws IOException, ParserException, SemanticAnalyzerException, CompilationException {
+        Path outputPath = getOutputPath(inputPath, options.generator().backend());
+        if (cache.isEmpty()) {
+            compile(inputPath, outputPath, options.pipelined(), options.generator(), optimizer, options.maxErrors());
+            return;
+        }
+
+        String settings = getClassName(inputPath) + " " + options.generator();
+        cache.get().compile(inputPath, outputPath, settings,
+            () -> compile(inputPath, outputPath, options.pipelined(), options.generator(), optimizer, options.maxErrors()));
+    }
+
+    private static int compileSingle(Path inputPath, BatchCompiler.FileCompiler fileCompiler, PrintStream err) {
+        try {
+            fileCompiler.compile(inputPath);
+            return 0;
+        } catch (IOException | ParserException | SemanticAnalyzerException | CompilationException | RuntimeException e) {
+            report(inputPath, e, err);
+            return 1;
+        }
+    }
+
+    private static int runProgram(Path inputPath, GeneratorOptions generatorOptions, int maxErrors, PrintStream err) {
+        if (inputPath.toString().endsWith(VmProgram.EXTENSION)) {
+            // um programa já compilado para a máquina virtual não passa pelo compilador
+            try {
+                VirtualMachine.run(VmProgram.read(inputPath), standardOutput());
+                return 0;
+            } catch (IOException | RuntimeException e) {
+                report(inputPath, e, err);
+                return 1;
+            }
+        }
+
+        try (InputStream inputStream = InputStream.open(inputPath)) {
+            run(inputStream, getClassName(inputPath), generatorOptions, new String[0], maxErrors);
+            return 0;
+        } catch (IOException | CompilationException | RuntimeException e) {
+            report(inputPath, e, err);
+            return 1;
+        }
+    }
+
+    private static int interpretProgram(Path inputPath, GeneratorOptions generatorOptions, int maxErrors, PrintStream out,
+                                        PrintStream err) {
+        try (InputStream inputStream = InputStream.open(inputPath)) {
+            interpret(inputStream, new OutputStreamWriter(out, StandardCharsets.UTF_8), generatorOptions, maxErrors);
+            return 0;
+        } catch (IOException | CompilationException | RuntimeException e) {
+            report(inputPath, e, err);
+            return 1;
+        }
+    }
+
+    // cada erro de compilação vai em uma linha no formato arquivo:linha:coluna: mensagem
+    private static void report(Path inputPath, Exception error, PrintStream err) {
+        if (!(error instanceof CompilationException compilationException)) {
+            err.println(inputPath + ": " + describe(error));
+            return;
+        }
+
+        for (Diagnostic diagnostic : compilationException.getDiagnostics()) {
+            err.println(inputPath + ":" + diagnostic);
+        }
+        if (compilationException.isTruncated()) {
+            err.println(inputPath + ": compilação interrompida depois de "
+                + compilationException.getDiagnostics().size() + " erros");
+        }
+    }
+
+    private static int compileBatch(CompilerOptions options, BatchCompiler.FileCompiler fileCompiler, PrintStream out, PrintStream err) {
+        List<Path> sources;
+        try {
+            sources = BatchCompiler.findSources(options.inputPaths());
+        } catch (IOException e) {
+            err.println(describe(e));
+            return 1;
+        }
+
+        BatchCompiler batchCompiler = new BatchCompiler(options.jobs(), fileCompiler);
+        BatchCompiler.Summary summary = batchCompiler.compile(sources);
+
+        for (BatchCompiler.Result result : summary.results()) {
+            result.error().ifPresent(error -> report(result.inputPath(), error, err));
+        }
+        out.printf(Locale.ROOT, "%d arquivos compilados, %d com erro, em %.2f s (%.1f arquivos/s, %d threads)%n",
+            summary.results().size(), summary.failures(), summary.elapsed().toNanos() / 1e9,
+            summary.filesPerSecond(), options.jobs());
+
+        return summary.failures() > 0 ? 1 : 0;
+    }
+
+    static String describe(Throwable error) {
+        StringBuilder message = new StringBuilder(String.valueOf(error.getMessage()));
+        for (Throwable cause = error.getCause(); cause != null; cause = cause.getCause()) {
+            message.append(": ").append(cause.getMessage());
+        }
+
+        return message.toString();
+    }
+
+    public static void compile(Path inputPath, Path outputPath, boolean pipelined)
+            throws IOException, CompilationException {
+        compile(inputPath, outputPath, pipelined, GeneratorOptions.DEFAULT);
+    }
+
+    public static void compile(Path inputPath, Path outputPath, boolean pipelined, GeneratorOptions generatorOptions)
+            throws IOException, CompilationException {
+        compile(inputPath, outputPath, pipelined, generatorOptions, new Optimizer(), Diagnostics.DEFAULT_MAX_ERRORS);
+    }
+
+    // os erros do arquivo inteiro são juntados e lançados de uma vez ao final, em uma CompilationException
+    public static void compile(Path inputPath, Path outputPath, boolean pipelined, GeneratorOptions generatorOptions,
+                               Optimizer optimizer, int maxErrors)
+            throws IOException, CompilationException {
+        String className = getClassName(inputPath);
+        Diagnostics diagnostics = new Diagnostics(maxErrors);
+
+        try (InputStream inputStream = InputStream.open(inputPath);
+             OutputStream output = new BufferedOutputStream(Files.newOutputStream(outputPath))) {
+            CodeEmitter emitter = createEmitter(className, output, generatorOptions, optimizer);
+            if (pipelined) {
+                compilePipelined(inputPath, inputStream, emitter, diagnostics);
+            } else {
+                compile(inputStream, emitter, diagnostics);
+            }
+        } catch (IOException | RuntimeException e) {
+            // a saída é escrita enquanto o programa é lido, então um erro deixaria um arquivo pela metade
+            Files.deleteIfExists(outputPath);
+            throw e;
+        }
+
+        if (diagnostics.hasErrors()) {
+            Files.deleteIfExists(outputPath);
+            throwErrors(diagnostics);
+        }
+    }
+
+    // As etapas em paralelo param no primeiro erro, sem saber a posição dele. Como erros são raros nesse modo, o
+    // arquivo é lido de novo sem as etapas para encontrar todos.
+    private static void compilePipelined(Path inputPath, InputStream inputStream, CodeEmitter emitter,
+                                         Diagnostics diagnostics) throws IOException {
+        try {
+            CompilerPipeline.compile(inputStream, emitter);
+        } catch (ParserException | SemanticAnalyzerException e) {
+            try (InputStream again = InputStream.open(inputPath)) {
+                compile(again, DISCARD, diagnostics);
+            }
+            if (!diagnostics.hasErrors()) {
+                diagnostics.error(0, 0, describe(e));
+            }
+        }
+    }
+
+    private static final CodeEmitter DISCARD = new CodeEmitter() {
+        @Override
+        public void emit(StatementNode statement) {}
+
+        @Override
+        public void finish() {}
+    };
+
+    public static void compile(InputStream inputStream, String className, Writer output)
+            throws IOException, ParserException, SemanticAnalyzerException {
+        compile(inputStream, new JavaGenerator().emitter(className, output));
+    }
+
+    // cada instrução é analisada e gerada assim que termina de ser lida, e depois descartada
+    public static void compile(InputStream inputStream, CodeEmitter emitter)
+            throws IOException, ParserException, SemanticAnalyzerException {
+        Parser parser = new Parser(new TokenStream(inputStream));
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(parser.getSymbols());
+
+        Optional<StatementNode> statement;
+        while ((statement = parser.parseNext()).isPresent()) {
+            semanticAnalyzer.analyze(statement.get());
+            emitter.emit(statement.get());
+        }
+        emitter.finish();
+    }
+
+    // Como compile(), mas os erros são guardados em diagnostics e a compilação continua na instrução seguinte. Depois
+    // do primeiro erro nada mais é gerado, e finish() não é chamado.
+    public static void compile(InputStream inputStream, CodeEmitter emitter, Diagnostics diagnostics) throws IOException {
+        Parser parser = new Parser(new TokenStream(inputStream));
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(parser.getSymbols());
+
+        Optional<StatementNode> statement;
+        while ((statement = parser.parseNext(diagnostics)).isPresent()) {
+            try {
+                semanticAnalyzer.analyze(statement.get());
+            } catch (SemanticAnalyzerException e) {
+                diagnostics.error(parser.getStatementLine(), parser.getStatementColumn(), e.getMessage());
+            }
+
+            if (!diagnostics.hasErrors()) {
+                emitter.emit(statement.get());
+            }
+        }
+
+        if (!diagnostics.hasErrors()) {
+            emitter.finish();
+        }
+    }
+
+    // compila e executa o programa na própria JVM, sem gravar a saída em disco
+    public static void run(InputStream inputStream, String className, GeneratorOptions generatorOptions, String[] args)
+            throws IOException, CompilationException {
+        run(inputStream, className, generatorOptions, args, Diagnostics.DEFAULT_MAX_ERRORS);
+    }
+
+    public static void run(InputStream inputStream, String className, GeneratorOptions generatorOptions, String[] args,
+                           int maxErrors)
+            throws IOException, CompilationException {
+        Diagnostics diagnostics = new Diagnostics(maxErrors);
+        // A representação intermediária é usada só pelo Java com -O e pela máquina virtual, de propósito. Os passes
+        // sobre ela precisam do programa inteiro em memória, enquanto o Java sem -O e o bytecode são gerados da árvore
+        // instrução por instrução, sem guardar a árvore. Os dois caminhos precisam imprimir o mesmo; IrTest e
+        // VirtualMachineTest comparam a saída deles com a do bytecode.
+        switch (generatorOptions.backend()) {
+            case JAVA -> {
+                StringWriter source = new StringWriter();
+                compile(inputStream, optimize(javaEmitter(className, source, generatorOptions), generatorOptions, new Optimizer()),
+                    diagnostics);
+                throwErrors(diagnostics);
+                runner().run(className, source.toString(), args);
+            }
+            case BYTECODE -> {
+                ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+                compile(inputStream, optimize(new BytecodeGenerator(className).emitter(classBytes), generatorOptions, new Optimizer()),
+                    diagnostics);
+                throwErrors(diagnostics);
+                runner().run(className, classBytes.toByteArray(), args);
+            }
+            case VM -> {
+                VmGenerator generator = vmGenerator(generatorOptions);
+                compile(inputStream, optimize(generator.emitter(), generatorOptions, new Optimizer()), diagnostics);
+                throwErrors(diagnostics);
+                VirtualMachine.run(generator.toProgram(), standardOutput());
+            }
+        }
+    }
+
+    // executa o programa pelo interpretador, sem gerar código; a saída do programa vai para out
+    public static void interpret(InputStream inputStream, Writer out, GeneratorOptions generatorOptions, int maxErrors)
+            throws IOException, CompilationException {
+        Diagnostics diagnostics = new Diagnostics(maxErrors);
+        Writer buffered = new BufferedWriter(out, 1 << 16);
+        compile(inputStream, optimize(new Interpreter(buffered).emitter(), generatorOptions, new Optimizer()), diagnostics);
+        throwErrors(diagnostics);
+    }
+
+    private static Writer standardOutput() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static void throwErrors(Diagnostics diagnostics) throws CompilationException {
+        if (diagnostics.hasErrors()) {
+            throw new CompilationException(diagnostics.getErrors(), diagnostics.isTruncated());
+        }
+    }
+
+    private static synchronized InMemoryRunner runner() {
+        if (runner == null) {
+            runner = new InMemoryRunner();
+        }
+
+        return runner;
+    }
+
+    private static CodeEmitter createEmitter(String className, OutputStream output, GeneratorOptions generatorOptions,
+                                             Optimizer optimizer)
+            throws IOException {
+        // os mesmos caminhos de run: só o Java com -O e a máquina virtual passam pela representação intermediária
+        CodeEmitter emitter = switch (generatorOptions.backend()) {
+            case JAVA -> javaEmitter(className, new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)),
+                generatorOptions);
+            case BYTECODE -> new BytecodeGenerator(className).emitter(output);
+            case VM -> vmGenerator(generatorOptions).emitter(output);
+        };
+        return optimize(emitter, generatorOptions, optimizer);
+    }
+
+    // com -O o código Java sai da representação intermediária, depois dos passes sobre ela
+    private static CodeEmitter javaEmitter(String className, Writer out, GeneratorOptions generatorOptions) throws IOException {
+        return generatorOptions.optimize()
+            ? javaGenerator(generatorOptions).emitter(className, out, PassManager.standard())
+            : javaGenerator(generatorOptions).emitter(className, out);
+    }
+
+    // com -O os passes sobre a representação intermediária rodam antes da geração
+    private static VmGenerator vmGenerator(GeneratorOptions generatorOptions) {
+        return generatorOptions.optimize() ? new VmGenerator(PassManager.standard()) : new VmGenerator();
+    }
+
+    private static JavaGenerator javaGenerator(GeneratorOptions generatorOptions) {
+        return new JavaGenerator(generatorOptions.bufferedOutput(), generatorOptions.chunkSize());
+    }
+
+    private static CodeEmitter optimize(CodeEmitter emitter, GeneratorOptions generatorOptions, Optimizer optimizer) {
+        return generatorOptions.optimize() ? optimizer.emitter(emitter) : emitter;
+    }
+
+    static Path getOutputPath(Path inputPath) {
+        return getOutputPath(inputPath, Backend.JAVA);
+    }
+
+    static Path getOutputPath(Path inputPath, Backend backend) {
         Path path = inputPath.getParent();
         if (path == null) {
             path = Paths.get("");
         }
 
-        String fileName = capitalize(getFileWithoutExtension(inputPath)) + ".java";
+        String fileName = getClassName(inputPath) + backend.getExtension();
         return Paths.get(path.toString(), fileName);
     }
 
+    private static String getClassName(Path inputPath) {
+        return capitalize(getFileWithoutExtension(inputPath));
+    }
+
     private static String getBasename(Path inputPath) {
         return inputPath.getFileName().toString();
     }
@@ -48,4 +414,4 @@ public class Compiler {
     private static String capitalize(String str) {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
-}
\ No newline at end of file
+}
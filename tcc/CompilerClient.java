@@ -0,0 +1,64 @@
+package tcc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cliente do servidor de compilação: repassa os argumentos e mostra a resposta
+public class CompilerClient {
+    public static void main(String[] args) {
+        Path socketPath = CompilerServer.DEFAULT_SOCKET_PATH;
+        List<String> forwarded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socketPath = Paths.get(args[++i]);
+            } else {
+                forwarded.add(args[i]);
+            }
+        }
+
+        Path workingDirectory = Paths.get("").toAbsolutePath();
+        System.exit(request(socketPath, workingDirectory, forwarded, System.out, System.err));
+    }
+
+    public static int request(Path socketPath, Path workingDirectory, List<String> args, PrintStream out, PrintStream err) {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+            writer.write(workingDirectory + "\n");
+            for (String arg : args) {
+                writer.write(arg + "\n");
+            }
+            writer.write("\n");
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("out ")) {
+                    out.println(line.substring(4));
+                } else if (line.startsWith("err ")) {
+                    err.println(line.substring(4));
+                } else if (line.startsWith("exit ")) {
+                    return Integer.parseInt(line.substring(5));
+                }
+            }
+
+            err.println("O servidor encerrou a conexão sem responder");
+            return 1;
+        } catch (IOException e) {
+            err.println("Não foi possível falar com o servidor em " + socketPath + ": " + e.getMessage());
+            return 2;
+        }
+    }
+}
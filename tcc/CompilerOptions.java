@@ -0,0 +1,120 @@
+package tcc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public record CompilerOptions(List<Path> inputPaths, boolean pipelined, int jobs, boolean server, Path socketPath,
+                              Optional<Path> cacheDirectory, long cacheSize, GeneratorOptions generator,
+                              boolean run, boolean interpret, int maxErrors) {
+    private static final long DEFAULT_CACHE_SIZE = 512L * 1024 * 1024;
+    private static final String USAGE = "Uso: java tcc.Compiler [--pipeline] [--jobs N] [--cache diretório] [--cache-size MB] [--backend java|bytecode|vm] [-O] [--buffered-output] [--chunk-size N] [--max-errors N] arquivo.cafe|diretório...\n"
+        + "     java tcc.Compiler --run [--backend java|bytecode|vm] [-O] [--buffered-output] [--chunk-size N] [--max-errors N] arquivo.cafe\n"
+        + "     java tcc.Compiler --interpret [-O] [--max-errors N] arquivo.cafe\n"
+        + "     java tcc.Compiler --server [--socket caminho]";
+
+    public static CompilerOptions parse(String[] args) {
+        List<Path> inputPaths = new ArrayList<>();
+        boolean pipelined = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean server = false;
+        Path socketPath = CompilerServer.DEFAULT_SOCKET_PATH;
+        Optional<Path> cacheDirectory = Optional.empty();
+        long cacheSize = DEFAULT_CACHE_SIZE;
+        Backend backend = GeneratorOptions.DEFAULT.backend();
+        boolean run = false;
+        boolean interpret = false;
+        boolean optimize = false;
+        boolean bufferedOutput = false;
+        int chunkSize = GeneratorOptions.DEFAULT_CHUNK_SIZE;
+        int maxErrors = Diagnostics.DEFAULT_MAX_ERRORS;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--pipeline")) {
+                pipelined = true;
+            } else if (arg.equals("--jobs")) {
+                jobs = parsePositive(arg, valueOf(args, ++i));
+            } else if (arg.equals("--server")) {
+                server = true;
+            } else if (arg.equals("--socket")) {
+                socketPath = Paths.get(valueOf(args, ++i));
+            } else if (arg.equals("--cache")) {
+                cacheDirectory = Optional.of(Paths.get(valueOf(args, ++i)));
+            } else if (arg.equals("--cache-size")) {
+                cacheSize = parsePositive(arg, valueOf(args, ++i)) * 1024L * 1024;
+            } else if (arg.equals("--backend")) {
+                backend = parseBackend(valueOf(args, ++i));
+            } else if (arg.equals("-O") || arg.equals("--optimize")) {
+                optimize = true;
+            } else if (arg.equals("--buffered-output")) {
+                bufferedOutput = true;
+            } else if (arg.equals("--chunk-size")) {
+                chunkSize = parsePositive(arg, valueOf(args, ++i));
+            } else if (arg.equals("--run")) {
+                run = true;
+            } else if (arg.equals("--interpret")) {
+                interpret = true;
+            } else if (arg.equals("--max-errors")) {
+                maxErrors = parsePositive(arg, valueOf(args, ++i));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Opção desconhecida: " + arg);
+            } else {
+                inputPaths.add(Paths.get(arg));
+            }
+        }
+
+        if (inputPaths.isEmpty() != server || (run && interpret) || ((run || interpret) && inputPaths.size() != 1)) {
+            throw new IllegalArgumentException(USAGE);
+        }
+
+        return new CompilerOptions(List.copyOf(inputPaths), pipelined, jobs, server, socketPath, cacheDirectory, cacheSize,
+            new GeneratorOptions(backend, optimize, bufferedOutput, chunkSize), run, interpret, maxErrors);
+    }
+
+    // caminhos relativos são resolvidos a partir de base, o diretório de trabalho de quem pediu a compilação
+    public CompilerOptions resolve(Path base) {
+        List<Path> resolved = inputPaths.stream().map(base::resolve).toList();
+        return new CompilerOptions(resolved, pipelined, jobs, server, socketPath, cacheDirectory.map(base::resolve), cacheSize,
+            generator, run, interpret, maxErrors);
+    }
+
+    // vários arquivos ou um diretório são compilados em lote
+    public boolean isBatch() {
+        return inputPaths.size() > 1 || Files.isDirectory(inputPaths.get(0));
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Opção " + args[index - 1] + " precisa de um valor");
+        }
+
+        return args[index];
+    }
+
+    private static Backend parseBackend(String value) {
+        for (Backend backend : Backend.values()) {
+            if (backend.name().equalsIgnoreCase(value)) {
+                return backend;
+            }
+        }
+
+        throw new IllegalArgumentException("Backend desconhecido: " + value);
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // tratado abaixo
+        }
+
+        throw new IllegalArgumentException("Valor inválido para " + option + ": " + value);
+    }
+}
@@ -0,0 +1,243 @@
+package tcc;
+
+import tcc.exceptions.InvalidCharacterException;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.nodes.StatementNode;
+import tcc.nodes.Symbols;
+import tcc.tokens.Token;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+// Compila com as etapas léxica, sintática e semântica cada uma em sua própria thread, passando lotes de
+// tokens e instruções por filas limitadas. A geração de código roda na thread que chamou compile().
+public class CompilerPipeline {
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private record Batch<T>(List<T> items, boolean last, Throwable failure) {}
+
+    private interface Stage<T> {
+        void run(BatchWriter<T> out) throws Exception;
+    }
+
+    public static void compile(InputStream inputStream, String className, Writer output)
+            throws IOException, ParserException, SemanticAnalyzerException {
+        compile(inputStream, new JavaGenerator().emitter(className, output));
+    }
+
+    public static void compile(InputStream inputStream, CodeEmitter emitter)
+            throws IOException, ParserException, SemanticAnalyzerException {
+        BlockingQueue<Batch<Token>> tokens = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Batch<StatementNode>> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Batch<StatementNode>> analyzed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        // os nomes registrados pelo parser chegam ao analisador junto com as instruções, pela fila
+        Symbols symbols = new Symbols();
+
+        List<Thread> stages = List.of(
+            startStage("cafe-lexer", tokens, out -> lex(inputStream, out)),
+            startStage("cafe-parser", parsed, out -> parse(new BatchReader<>(tokens), symbols, out)),
+            startStage("cafe-analyzer", analyzed, out -> analyze(new BatchReader<>(parsed), symbols, out))
+        );
+
+        try {
+            generate(new BatchReader<>(analyzed), emitter);
+        } finally {
+            // em caso de erro as etapas anteriores podem estar bloqueadas em uma fila cheia
+            for (Thread stage : stages) {
+                stage.interrupt();
+            }
+        }
+    }
+
+    private static void lex(InputStream inputStream, BatchWriter<Token> out) throws Exception {
+        TokenStream tokenStream = new TokenStream(inputStream);
+        Optional<Token> token;
+        while ((token = tokenStream.next()).isPresent()) {
+            out.add(token.get());
+        }
+    }
+
+    private static void parse(BatchReader<Token> in, Symbols symbols, BatchWriter<StatementNode> out) throws Exception {
+        Parser parser = new Parser(new QueuedTokens(in), symbols);
+        Optional<StatementNode> statement;
+        while ((statement = parser.parseNext()).isPresent()) {
+            out.add(statement.get());
+        }
+    }
+
+    private static void analyze(BatchReader<StatementNode> in, Symbols symbols, BatchWriter<StatementNode> out)
+            throws Exception {
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer(symbols);
+        StatementNode statement;
+        while ((statement = in.next()) != null) {
+            semanticAnalyzer.analyze(statement);
+            out.add(statement);
+        }
+    }
+
+    private static void generate(BatchReader<StatementNode> in, CodeEmitter emitter)
+            throws IOException, ParserException, SemanticAnalyzerException {
+        StatementNode statement;
+        while ((statement = nextStatement(in)) != null) {
+            emitter.emit(statement);
+        }
+        emitter.finish();
+    }
+
+    private static StatementNode nextStatement(BatchReader<StatementNode> in)
+            throws IOException, ParserException, SemanticAnalyzerException {
+        try {
+            return in.next();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compilação interrompida");
+        } catch (IOException | ParserException | SemanticAnalyzerException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> Thread startStage(String name, BlockingQueue<Batch<T>> queue, Stage<T> stage) {
+        BatchWriter<T> out = new BatchWriter<>(queue);
+        return Thread.ofPlatform().name(name).daemon().start(() -> {
+            try {
+                stage.run(out);
+                out.finish();
+            } catch (InterruptedException | CancellationException e) {
+                // quem consome a fila já desistiu do resultado
+            } catch (Throwable e) {
+                // um Error, como falta de memória em uma entrada enorme, também precisa chegar ao fim da fila, ou
+                // quem a consome esperaria para sempre
+                out.fail(e);
+            }
+        });
+    }
+
+    private static class BatchWriter<T> {
+        private final BlockingQueue<Batch<T>> queue;
+        private List<T> items = new ArrayList<>(BATCH_SIZE);
+
+        BatchWriter(BlockingQueue<Batch<T>> queue) {
+            this.queue = queue;
+        }
+
+        void add(T item) throws InterruptedException {
+            items.add(item);
+            if (items.size() == BATCH_SIZE) {
+                queue.put(new Batch<>(items, false, null));
+                items = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+
+        void finish() throws InterruptedException {
+            queue.put(new Batch<>(items, true, null));
+        }
+
+        // as instruções já lidas seguem junto com o erro, para que um erro nelas apareça antes dele, como na
+        // compilação sequencial
+        void fail(Throwable failure) {
+            try {
+                queue.put(new Batch<>(items, true, failure));
+            } catch (InterruptedException e) {
+                // quem consome a fila já desistiu do resultado
+            }
+        }
+    }
+
+    private static class BatchReader<T> {
+        private final BlockingQueue<Batch<T>> queue;
+        private Batch<T> batch;
+        private int index;
+
+        BatchReader(BlockingQueue<Batch<T>> queue) {
+            this.queue = queue;
+        }
+
+        // devolve null ao fim da fila e relança o erro da etapa anterior, se houver; um Error é relançado como veio
+        T next() throws Exception {
+            while (batch == null || index == batch.items().size()) {
+                if (batch != null && batch.last()) {
+                    if (batch.failure() instanceof Error error) {
+                        throw error;
+                    }
+                    if (batch.failure() instanceof Exception exception) {
+                        throw exception;
+                    }
+                    if (batch.failure() != null) {
+                        throw new IllegalStateException(batch.failure());
+                    }
+                    return null;
+                }
+
+                batch = queue.take();
+                index = 0;
+            }
+
+            return batch.items().get(index++);
+        }
+    }
+
+    private static class QueuedTokens implements TokenSource {
+        private final BatchReader<Token> in;
+        private Token peeked;
+        private boolean hasPeeked = false;
+
+        QueuedTokens(BatchReader<Token> in) {
+            this.in = in;
+        }
+
+        @Override
+        public Optional<Token> peek() throws InvalidCharacterException {
+            if (!hasPeeked) {
+                peeked = read();
+                hasPeeked = true;
+            }
+
+            return Optional.ofNullable(peeked);
+        }
+
+        @Override
+        public Optional<Token> next() throws InvalidCharacterException {
+            if (hasPeeked) {
+                hasPeeked = false;
+                return Optional.ofNullable(peeked);
+            }
+
+            return Optional.ofNullable(read());
+        }
+
+        // as posições não passam pelas filas; os erros são diagnosticados de novo sem as etapas
+        @Override
+        public int getLine() {
+            return 0;
+        }
+
+        @Override
+        public int getColumn() {
+            return 0;
+        }
+
+        private Token read() throws InvalidCharacterException {
+            try {
+                return in.next();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } catch (InvalidCharacterException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package tcc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Servidor de compilação que fica em execução para que cada arquivo não pague a inicialização da JVM.
+// Cada conexão é atendida em uma thread virtual e cria seus próprios Parser, SemanticAnalyzer e JavaGenerator,
+// então pedidos simultâneos nunca compartilham uma tabela de símbolos.
+//
+// Protocolo, em linhas UTF-8: o cliente envia o diretório de trabalho, um argumento por linha e uma linha vazia.
+// O servidor responde com linhas "out <texto>" e "err <texto>" e termina com "exit <código>".
+public class CompilerServer {
+    public static final Path DEFAULT_SOCKET_PATH = Paths.get(System.getProperty("java.io.tmpdir"),
+        "cafe-compiler-" + System.getProperty("user.name") + ".sock");
+    public static final String SHUTDOWN = "--shutdown";
+
+    private static final int WARMUP_ITERATIONS = 200;
+
+    private final Path socketPath;
+
+    public CompilerServer(Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    public void serve() throws IOException {
+        warmUp();
+
+        if (Files.exists(socketPath)) {
+            if (isListening(socketPath)) {
+                throw new IOException("Já existe um servidor ouvindo em " + socketPath);
+            }
+            Files.delete(socketPath);
+        }
+
+        // o arquivo do socket aparece antes de o socket aceitar conexões, então ele é criado com outro nome e só
+        // recebe o nome esperado depois; quem espera o arquivo aparecer nunca encontra um socket que recusa conexões
+        Path temporaryPath = socketPath.resolveSibling(socketPath.getFileName() + "." + ProcessHandle.current().pid());
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            Files.deleteIfExists(temporaryPath);
+            server.bind(UnixDomainSocketAddress.of(temporaryPath));
+            Files.move(temporaryPath, socketPath, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Servidor do compilador ouvindo em " + socketPath);
+
+            while (true) {
+                SocketChannel connection = server.accept();
+                Thread.ofVirtual().name("cafe-request").start(() -> handle(connection, server));
+            }
+        } catch (AsynchronousCloseException e) {
+            // encerrado por um pedido --shutdown
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private void handle(SocketChannel connection, ServerSocketChannel server) {
+        try (connection) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8));
+            Writer writer = new OutputStreamWriter(Channels.newOutputStream(connection), StandardCharsets.UTF_8);
+
+            String workingDirectory = reader.readLine();
+            List<String> args = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                args.add(line);
+            }
+            if (workingDirectory == null) {
+                return;
+            }
+
+            int status = respond(Paths.get(workingDirectory), args, writer, server);
+            writer.write("exit " + status + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            // o cliente desconectou; não há a quem responder
+        }
+    }
+
+    private int respond(Path workingDirectory, List<String> args, Writer writer, ServerSocketChannel server) throws IOException {
+        PrintStream out = new PrintStream(new PrefixedLines("out ", writer), true, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(new PrefixedLines("err ", writer), true, StandardCharsets.UTF_8);
+
+        if (args.equals(List.of(SHUTDOWN))) {
+            out.println("Servidor encerrado");
+            server.close();
+            return 0;
+        }
+
+        CompilerOptions options;
+        try {
+            options = CompilerOptions.parse(args.toArray(String[]::new)).resolve(workingDirectory);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        }
+
+        if (options.server()) {
+            err.println("O servidor não pode iniciar outro servidor");
+            return 2;
+        }
+
+        if (options.run()) {
+            // o programa escreveria na saída do servidor, e não na de quem pediu
+            err.println("O servidor não executa programas; use --run diretamente no compilador");
+            return 2;
+        }
+
+        return Compiler.run(options, out, err);
+    }
+
+    private static boolean isListening(Path socketPath) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // roda o compilador algumas vezes para que o JIT já tenha compilado o caminho quente antes do primeiro pedido
+    private static void warmUp() {
+        StringBuilder sample = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sample.append("inteiro a").append(i).append(" = ").append(i).append(" * 2!\n");
+            sample.append("real b").append(i).append(" = (a").append(i).append(" + 1) / 3,0!\n");
+            sample.append("a").append(i).append(" = a").append(i).append(" - 1!\n");
+            sample.append("imprimir(b").append(i).append(")!\n");
+        }
+
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                Compiler.compile(new InputStream(sample.toString()), "Aquecimento", Writer.nullWriter());
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha ao aquecer o compilador", e);
+        }
+    }
+
+    // envia cada linha escrita no fluxo como uma linha do protocolo, com o prefixo dado
+    private static class PrefixedLines extends OutputStream {
+        private final String prefix;
+        private final Writer writer;
+        private byte[] line = new byte[256];
+        private int length = 0;
+
+        PrefixedLines(String prefix, Writer writer) {
+            this.prefix = prefix;
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                flushLine();
+                return;
+            }
+
+            if (length == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[length++] = (byte) b;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (length > 0) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() throws IOException {
+            int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            String text = new String(line, 0, end, StandardCharsets.UTF_8);
+            length = 0;
+
+            // out e err escrevem no mesmo socket
+            synchronized (writer) {
+                writer.write(prefix + text + "\n");
+                writer.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package tcc;
+
+// Um erro encontrado na compilação, com a linha e a coluna a partir de 1
+public record Diagnostic(int line, int column, String message) {
+    @Override
+    public String toString() {
+        return line + ":" + column + ": " + message;
+    }
+}
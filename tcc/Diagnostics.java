@@ -0,0 +1,54 @@
+package tcc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Junta os erros léxicos, sintáticos e semânticos de uma compilação, para que todos sejam mostrados de uma vez. Depois
+// de maxErrors erros a compilação para, já que os seguintes costumam ser consequência dos primeiros.
+public class Diagnostics {
+    public static final int DEFAULT_MAX_ERRORS = 100;
+
+    private final int maxErrors;
+    private final List<Diagnostic> errors = new ArrayList<>();
+    // se algum erro foi descartado ou parte da entrada ficou sem ser verificada
+    private boolean truncated = false;
+
+    public Diagnostics() {
+        this(DEFAULT_MAX_ERRORS);
+    }
+
+    public Diagnostics(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void error(int line, int column, String message) {
+        if (isFull()) {
+            truncated = true;
+        } else {
+            errors.add(new Diagnostic(line, column, message));
+        }
+    }
+
+    // chamado quando a compilação para no limite com entrada ainda por ler
+    public void truncate() {
+        truncated = true;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public boolean isFull() {
+        return errors.size() >= maxErrors;
+    }
+
+    // atingir o limite não basta: um arquivo com exatamente maxErrors erros foi verificado até o fim
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public List<Diagnostic> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+}
@@ -0,0 +1,17 @@
+package tcc;
+
+// Configurações que mudam o código gerado; também fazem parte da chave do cache de compilação
+public record GeneratorOptions(Backend backend, boolean optimize, boolean bufferedOutput, int chunkSize) {
+    // instruções por método no código Java dos programas grandes; cada instrução costuma virar algumas dezenas de bytes
+    // de bytecode, o que deixa os métodos bem abaixo do limite de 8000 bytes do JIT
+    public static final int DEFAULT_CHUNK_SIZE = 200;
+    public static final GeneratorOptions DEFAULT = new GeneratorOptions(Backend.JAVA, false);
+
+    public GeneratorOptions(Backend backend, boolean optimize) {
+        this(backend, optimize, false);
+    }
+
+    public GeneratorOptions(Backend backend, boolean optimize, boolean bufferedOutput) {
+        this(backend, optimize, bufferedOutput, DEFAULT_CHUNK_SIZE);
+    }
+}
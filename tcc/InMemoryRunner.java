@@ -0,0 +1,181 @@
+package tcc;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compila o código Java gerado em memória e executa o main na própria JVM, sem arquivos temporários. O compilador e o
+// gerenciador de arquivos padrão são reaproveitados entre execuções, já que abri-los é a parte cara de chamar o javac.
+public class InMemoryRunner {
+    private final JavaCompiler javaCompiler;
+    private final StandardJavaFileManager standardFileManager;
+
+    public InMemoryRunner() {
+        // em um JRE não há javac, mas ainda dá para executar o que o backend de bytecode gera
+        javaCompiler = ToolProvider.getSystemJavaCompiler();
+        standardFileManager = javaCompiler == null ? null : javaCompiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+    }
+
+    public void run(String className, String source, String[] args) {
+        invokeMain(compile(className, source), args);
+    }
+
+    // o backend de bytecode já gera a classe pronta, então não há o que compilar
+    public void run(String className, byte[] classBytes, String[] args) {
+        invokeMain(new MemoryClassLoader(Map.of(className, classBytes)).loadGenerated(className), args);
+    }
+
+    public Class<?> compile(String className, String source) {
+        if (javaCompiler == null) {
+            throw new IllegalStateException("Compilador Java indisponível; rode em um JDK ou use --backend bytecode");
+        }
+
+        Map<String, byte[]> classes = new HashMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        boolean success;
+        // o gerenciador de arquivos padrão não pode ser usado por duas compilações ao mesmo tempo
+        synchronized (standardFileManager) {
+            MemoryFileManager fileManager = new MemoryFileManager(standardFileManager, classes);
+            JavaCompiler.CompilationTask task = javaCompiler.getTask(null, fileManager, diagnostics,
+                List.of("-proc:none"), null, List.of(new MemorySource(className, source)));
+            success = task.call();
+        }
+
+        if (!success) {
+            StringBuilder message = new StringBuilder("O código Java gerado não compilou:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    message.append(System.lineSeparator()).append("linha ").append(diagnostic.getLineNumber())
+                        .append(": ").append(diagnostic.getMessage(null));
+                }
+            }
+            throw new IllegalStateException(message.toString());
+        }
+
+        return new MemoryClassLoader(classes).loadGenerated(className);
+    }
+
+    private static void invokeMain(Class<?> generatedClass, String[] args) {
+        try {
+            Method main = generatedClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) args);
+        } catch (InvocationTargetException e) {
+            // erros do próprio programa, como divisão por zero em tempo de execução, sobem sem o invólucro da reflexão
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Classe gerada sem um main válido", e);
+        }
+    }
+
+    private static class MemorySource extends SimpleJavaFileObject {
+        private final String source;
+
+        MemorySource(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class MemoryClass extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        MemoryClass(String className, Map<String, byte[]> classes) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    classes.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new MemoryClass(className, classes);
+        }
+
+        @Override
+        public void close() {
+            // o gerenciador padrão continua aberto para as próximas compilações
+        }
+    }
+
+    private static class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            super(InMemoryRunner.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        Class<?> loadGenerated(String className) {
+            try {
+                return loadClass(className);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Classe gerada não encontrada: " + className, e);
+            }
+        }
+
+        // as classes geradas vêm antes das do pai: uma classe de mesmo nome no classpath do compilador, como o
+        // Teste.class de uma compilação anterior, não pode ser executada no lugar do código que acabou de ser gerado
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    byte[] bytes = classes.get(name);
+                    loaded = bytes == null ? super.loadClass(name, false) : defineClass(name, bytes, 0, bytes.length);
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+
+                return loaded;
+            }
+        }
+    }
+}
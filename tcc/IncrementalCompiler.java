@@ -0,0 +1,410 @@
+package tcc;
+
+import tcc.exceptions.InvalidCharacterException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.nodes.DeclarationNode;
+import tcc.nodes.ProgramNode;
+import tcc.nodes.StatementNode;
+import tcc.nodes.Symbols;
+import tcc.tokens.IdentifierToken;
+import tcc.tokens.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+// Compilação incremental para editores, que mantém o texto, as instruções lidas e o estado da análise semântica entre
+// uma edição e outra.
+//
+// O texto é dividido em trechos que terminam em cada '!' fora de um comentário, e o último vai até o fim do texto.
+// Mesmo com erros, o parser sempre termina uma instrução em um desses '!', então cada trecho pode ser lido sozinho. Uma
+// edição só muda os trechos que ela toca, e os seguintes na mesma linha, já que um '#' pode transformar o resto da
+// linha em comentário. Esses trechos são lidos de novo, e a análise semântica volta ao ponto anterior à primeira
+// instrução que mudou e segue dali até o fim.
+//
+// A análise só é feita quando os erros ou o programa são pedidos, então várias edições seguidas recomeçam a análise
+// uma vez só. Ela também pode ser interrompida e continuada depois do ponto em que parou.
+public final class IncrementalCompiler {
+    private static final int INITIAL_CAPACITY = 64;
+    // instruções analisadas entre uma consulta e outra de analyze(stop)
+    private static final int ANALYSIS_SLICE = 1024;
+
+    // a declaração de uma variável e a posição do nome nela
+    public record Declaration(String name, DataType type, int line, int column) {}
+
+    // Um trecho lido: a instrução, ou null se houve erro ou só havia espaços e comentários, e as posições em que o
+    // trecho e a instrução começavam quando ele foi lido. Os erros guardam as posições daquele momento.
+    private record Segment(int length, StatementNode statement, int line, int column, int statementLine,
+                           int statementColumn, int newlines, List<Diagnostic> errors) {}
+
+    private final StringBuilder text = new StringBuilder();
+    private final Symbols symbols = new Symbols();
+    private final SemanticAnalyzer analyzer = new SemanticAnalyzer(symbols);
+
+    private final List<Segment> segments = new ArrayList<>();
+    // posição logo depois do fim de cada trecho
+    private int[] ends = new int[INITIAL_CAPACITY];
+    // ponto da análise antes de cada trecho
+    private int[] checkpoints = new int[INITIAL_CAPACITY];
+    // erro semântico de cada trecho, ou null
+    private String[] semanticErrors = new String[INITIAL_CAPACITY];
+
+    // as instruções antes de analyzed já foram analisadas; a análise continua do ponto analyzedCheckpoint
+    private int analyzed = 0;
+    private int analyzedCheckpoint = 0;
+
+    private int reparsed = 0;
+    private int reanalyzed = 0;
+
+    public IncrementalCompiler() {
+        this("");
+    }
+
+    public IncrementalCompiler(String text) {
+        segments.add(parse("", 1, 0, 0));
+        checkpoints[0] = analyzer.checkpoint();
+        edit(0, 0, text);
+    }
+
+    // troca length caracteres a partir de offset por replacement
+    public void edit(int offset, int length, String replacement) {
+        Objects.checkFromIndexSize(offset, length, text.length());
+
+        int first = segmentAt(offset);
+        int start = first == 0 ? 0 : ends[first - 1];
+        text.replace(offset, offset + length, replacement);
+        int delta = replacement.length() - length;
+
+        List<Segment> parsed = new ArrayList<>();
+        int last = parseRegion(first, start, offset + replacement.length(), delta, parsed);
+
+        // as primeiras instruções lidas de novo podem ser iguais às antigas, como depois de mudar só espaços
+        int oldCount = last - first + 1;
+        int same = 0;
+        while (same < oldCount && same < parsed.size()
+            && Objects.equals(segments.get(first + same).statement(), parsed.get(same).statement())) {
+            same++;
+        }
+        boolean unchanged = same == oldCount && same == parsed.size();
+        int changed = first + same;
+        if (!unchanged && changed < analyzed) {
+            analyzedCheckpoint = checkpoints[changed];
+            analyzed = changed;
+        }
+
+        replace(first, last, parsed, delta);
+        reparsed = parsed.size();
+        reanalyzed = 0;
+    }
+
+    // Analisa as instruções que ainda não foram analisadas, consultando stop a cada grupo de instruções. Devolve false
+    // se parou antes do fim; a próxima chamada continua dali.
+    public boolean analyze(BooleanSupplier stop) {
+        if (analyzed < segments.size()) {
+            analyzer.rollback(analyzedCheckpoint);
+        }
+
+        while (analyzed < segments.size()) {
+            int end = Math.min(segments.size(), analyzed + ANALYSIS_SLICE);
+            for (int i = analyzed; i < end; i++) {
+                checkpoints[i] = analyzer.checkpoint();
+                semanticErrors[i] = null;
+                StatementNode statement = segments.get(i).statement();
+                if (statement != null) {
+                    try {
+                        analyzer.analyze(statement);
+                    } catch (SemanticAnalyzerException e) {
+                        semanticErrors[i] = e.getMessage();
+                    }
+                }
+            }
+            reanalyzed += end - analyzed;
+            analyzed = end;
+            analyzedCheckpoint = analyzer.checkpoint();
+
+            if (analyzed < segments.size() && stop.getAsBoolean()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    // instruções lidas de novo na última edição
+    public int getReparsedStatements() {
+        return reparsed;
+    }
+
+    // instruções analisadas de novo desde a última edição
+    public int getReanalyzedStatements() {
+        return reanalyzed;
+    }
+
+    public boolean hasErrors() {
+        analyze(() -> false);
+        for (int i = 0; i < segments.size(); i++) {
+            if (!segments.get(i).errors().isEmpty() || semanticErrors[i] != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // os mesmos erros, na mesma ordem, que a compilação do texto inteiro encontraria
+    public List<Diagnostic> getDiagnostics() {
+        analyze(() -> false);
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        int line = 1;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (!segment.errors().isEmpty() || semanticErrors[i] != null) {
+                int start = i == 0 ? 0 : ends[i - 1];
+                int column = columnOf(start);
+                // as mensagens de erros léxicos citam a linha, então o trecho é lido de novo se ela mudou
+                if (segment.line() != line && !segment.errors().isEmpty()) {
+                    segment = parse(text.substring(start, ends[i]), line, column, segment.newlines());
+                    segments.set(i, segment);
+                }
+
+                for (Diagnostic error : segment.errors()) {
+                    diagnostics.add(move(segment, error.line(), error.column(), error.message(), line, column + 1));
+                }
+                if (semanticErrors[i] != null) {
+                    diagnostics.add(move(segment, segment.statementLine(), segment.statementColumn(), semanticErrors[i],
+                        line, column + 1));
+                }
+            }
+
+            line += segment.newlines();
+        }
+
+        return diagnostics;
+    }
+
+    // as instruções lidas sem erro, em ordem
+    public ProgramNode getProgram() {
+        analyze(() -> false);
+        List<StatementNode> statements = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.statement() != null) {
+                statements.add(segment.statement());
+            }
+        }
+
+        return new ProgramNode(statements);
+    }
+
+    // uma posição guardada quando o trecho foi lido, corrigida para onde o trecho começa agora
+    private static Diagnostic move(Segment segment, int line, int column, String message, int newLine, int newColumn) {
+        if (line == segment.line()) {
+            return new Diagnostic(newLine, column - segment.column() + newColumn, message);
+        }
+
+        return new Diagnostic(line - segment.line() + newLine, column, message);
+    }
+
+    // primeiro trecho que termina depois de offset; o último vai até o fim do texto
+    private int segmentAt(int offset) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] > offset) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return low;
+    }
+
+    private int lineOf(int segment) {
+        int line = 1;
+        for (int i = 0; i < segment; i++) {
+            line += segments.get(i).newlines();
+        }
+
+        return line;
+    }
+
+    // caracteres da linha antes de offset
+    private int columnOf(int offset) {
+        return offset - (text.lastIndexOf("\n", offset - 1) + 1);
+    }
+
+    // Lê os trechos a partir de start, no começo do trecho first, até um fim de trecho depois de editEnd que também era
+    // o fim de um trecho antigo: dali em diante o texto e a divisão em trechos são os mesmos de antes. Devolve o último
+    // trecho antigo substituído.
+    private int parseRegion(int first, int start, int editEnd, int delta, List<Segment> parsed) {
+        int line = lineOf(first);
+        int column = columnOf(start);
+        boolean comment = false;
+        int newlines = 0;
+        int segmentStart = start;
+        for (int i = start; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '#') {
+                comment = true;
+            } else if (ch == '\n') {
+                comment = false;
+                newlines++;
+            } else if (ch == '!' && !comment) {
+                parsed.add(parse(text.substring(segmentStart, i + 1), line, column, newlines));
+                line += newlines;
+                newlines = 0;
+                column = columnOf(i + 1);
+                segmentStart = i + 1;
+
+                // o fim do último trecho antigo não é um '!'
+                if (segmentStart >= editEnd) {
+                    int old = segmentAt(segmentStart - delta - 1);
+                    if (old >= first && old < segments.size() - 1 && ends[old] == segmentStart - delta) {
+                        return old;
+                    }
+                }
+            }
+        }
+
+        // o último trecho não termina em '!'
+        parsed.add(parse(text.substring(segmentStart), line, column, newlines));
+        return segments.size() - 1;
+    }
+
+    private Segment parse(String source, int line, int column, int newlines) {
+        Parser parser = new Parser(new TokenStream(new InputStream(source, line, column)), symbols);
+        Diagnostics diagnostics = new Diagnostics(Integer.MAX_VALUE);
+        StatementNode statement = parser.parseNext(diagnostics).orElse(null);
+        if (diagnostics.hasErrors()) {
+            statement = null;
+        }
+
+        return new Segment(source.length(), statement, line, column + 1, parser.getStatementLine(), parser.getStatementColumn(),
+            newlines, diagnostics.getErrors());
+    }
+
+    // troca os trechos de first a last pelos lidos de novo, movendo os fins dos trechos seguintes
+    private void replace(int first, int last, List<Segment> parsed, int delta) {
+        int oldCount = segments.size();
+        int removed = last - first + 1;
+        int count = oldCount - removed + parsed.size();
+        if (count > ends.length) {
+            int capacity = Math.max(count, ends.length * 2);
+            ends = Arrays.copyOf(ends, capacity);
+            checkpoints = Arrays.copyOf(checkpoints, capacity);
+            semanticErrors = Arrays.copyOf(semanticErrors, capacity);
+        }
+
+        int tail = oldCount - last - 1;
+        System.arraycopy(ends, last + 1, ends, first + parsed.size(), tail);
+        System.arraycopy(checkpoints, last + 1, checkpoints, first + parsed.size(), tail);
+        System.arraycopy(semanticErrors, last + 1, semanticErrors, first + parsed.size(), tail);
+        for (int i = first + parsed.size(); i < count; i++) {
+            ends[i] += delta;
+        }
+
+        int end = first == 0 ? 0 : ends[first - 1];
+        for (int i = 0; i < parsed.size(); i++) {
+            end += parsed.get(i).length();
+            ends[first + i] = end;
+        }
+        segments.subList(first, last + 1).clear();
+        segments.addAll(first, parsed);
+    }
+
+    // posição no texto da linha e coluna dadas, a partir de 1; posições depois do fim da linha ficam no fim dela
+    public int offset(int line, int column) {
+        int segment = 0;
+        int segmentLine = 1;
+        while (segment < segments.size() - 1 && segmentLine + segments.get(segment).newlines() < line) {
+            segmentLine += segments.get(segment).newlines();
+            segment++;
+        }
+
+        int offset = segment == 0 ? 0 : ends[segment - 1];
+        for (; segmentLine < line && offset < text.length(); offset++) {
+            if (text.charAt(offset) == '\n') {
+                segmentLine++;
+            }
+        }
+        if (segmentLine < line) {
+            return text.length();
+        }
+
+        int lineEnd = text.indexOf("\n", offset);
+        return Math.min(offset + column - 1, lineEnd == -1 ? text.length() : lineEnd);
+    }
+
+    // A declaração da variável cujo nome está na posição offset. Como redeclarações são erros, é a primeira declaração
+    // do nome no texto, mesmo que o uso venha antes dela.
+    public Optional<Declaration> declarationAt(int offset) {
+        int segment = segmentAt(offset);
+        int start = segment == 0 ? 0 : ends[segment - 1];
+        Optional<String> name = Optional.empty();
+        for (Located token : tokens(segment)) {
+            if (token.start() <= offset - start && offset - start <= token.end()
+                && token.token() instanceof IdentifierToken identifier) {
+                name = Optional.of(identifier.value());
+            }
+        }
+        if (name.isEmpty()) {
+            return Optional.empty();
+        }
+
+        int line = 1;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).statement() instanceof DeclarationNode declarationNode
+                && declarationNode.identifier().name().equals(name.get())) {
+                // o nome é o segundo token da declaração
+                Located identifier = tokens(i).get(1);
+                int declarationStart = i == 0 ? 0 : ends[i - 1];
+                int column = identifier.line() == 1 ? columnOf(declarationStart) + identifier.column() : identifier.column();
+                return Optional.of(new Declaration(name.get(), declarationNode.type(), line + identifier.line() - 1, column));
+            }
+            line += segments.get(i).newlines();
+        }
+
+        return Optional.empty();
+    }
+
+    // um token do trecho, com a linha e a coluna relativas ao começo dele e o intervalo que ocupa no trecho
+    private record Located(Token token, int line, int column, int start, int end) {}
+
+    private List<Located> tokens(int segment) {
+        String source = text.substring(segment == 0 ? 0 : ends[segment - 1], ends[segment]);
+        TokenStream tokenStream = new TokenStream(new InputStream(source));
+        List<Located> tokens = new ArrayList<>();
+        int line = 1;
+        int lineStart = 0;
+        while (true) {
+            Optional<Token> token;
+            try {
+                token = tokenStream.next();
+            } catch (InvalidCharacterException e) {
+                continue;
+            }
+            if (token.isEmpty()) {
+                return tokens;
+            }
+
+            for (; line < tokenStream.getLine(); line++) {
+                lineStart = source.indexOf('\n', lineStart) + 1;
+            }
+            int start = lineStart + tokenStream.getColumn() - 1;
+            int length = token.get() instanceof IdentifierToken identifier ? identifier.value().length() : 1;
+            tokens.add(new Located(token.get(), tokenStream.getLine(), tokenStream.getColumn(), start, start + length));
+        }
+    }
+}
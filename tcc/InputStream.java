@@ -1,19 +1,106 @@
 package tcc;
 
-import java.util.Optional;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Lê a entrada em uma janela de caracteres. Fontes em arquivo são decodificadas de UTF-8 aos poucos, e a janela só
+// guarda os caracteres a partir da última marca, que o analisador léxico põe no início de cada token. Linha e coluna
+// são contadas à medida que os caracteres passam, então a memória não depende do tamanho das linhas, mesmo em
+// arquivos gerados sem nenhuma quebra de linha.
+public class InputStream implements Closeable {
+    // valor devolvido por peek() quando não há mais caracteres
+    public static final int EOF = -1;
+
+    private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
 
-public class InputStream {
     private int position = 0;
     private int line = 1;
     private int column = 0;
-    private final String input;
+    // os caracteres antes dessa posição não são mais necessários
+    private int mark = 0;
+
+    // buffer[0] corresponde à posição absoluta offset
+    private char[] buffer;
+    private int offset = 0;
+    private int length;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private boolean bytesExhausted;
+    private boolean decoded;
 
     public InputStream(String input) {
-        this.input = input;
+        this(input, 1, 0);
+    }
+
+    // lê um trecho de um texto maior, que começa na linha line depois de column caracteres dela
+    public InputStream(String input, int line, int column) {
+        this.line = line;
+        this.column = column;
+        this.buffer = input.toCharArray();
+        this.length = buffer.length;
+        this.channel = null;
+        this.bytes = null;
+        this.decoder = null;
+        this.decoded = true;
+    }
+
+    public InputStream(ReadableByteChannel channel) {
+        this(channel, DEFAULT_CHUNK_SIZE);
+    }
+
+    public InputStream(ReadableByteChannel channel, int chunkSize) {
+        this(channel, ByteBuffer.allocate(chunkSize).flip(), false, chunkSize);
+    }
+
+    // decodifica um buffer já completo, como um arquivo mapeado em memória
+    public InputStream(ByteBuffer bytes) {
+        this(null, bytes, true, DEFAULT_CHUNK_SIZE);
+    }
+
+    private InputStream(ReadableByteChannel channel, ByteBuffer bytes, boolean bytesExhausted, int chunkSize) {
+        this.buffer = new char[chunkSize];
+        this.length = 0;
+        this.channel = channel;
+        this.bytes = bytes;
+        this.bytesExhausted = bytesExhausted;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    public static InputStream open(Path path) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = fileChannel.size();
+        if (size > Integer.MAX_VALUE) {
+            return new InputStream(fileChannel);
+        }
+
+        try (fileChannel) {
+            return new InputStream(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
     }
 
     public char next() {
-        char c = input.charAt(position++);
+        if (position == offset + length && !fill()) {
+            throw new IndexOutOfBoundsException("Fim da entrada na posição " + position);
+        }
+
+        char c = buffer[position++ - offset];
         if (c == '\n') {
             line++;
             column = 0;
@@ -24,34 +111,161 @@ public class InputStream {
         return c;
     }
 
-
     public String readWhile(CharacterPredicate predicate) {
-        StringBuilder str = new StringBuilder();
-        Optional<Character> ch = peek();
-        while (ch.isPresent() && predicate.predicate(ch.get())) {
-            str.append(ch.get());
+        int start = position;
+        skipWhile(predicate);
+        return slice(start, position);
+    }
+
+    public void skipWhile(CharacterPredicate predicate) {
+        int ch = peek();
+        while (ch != EOF && predicate.predicate((char) ch)) {
             next();
             ch = peek();
         }
-        return str.toString();
     }
 
-    public Optional<Character> peek() {
-        if (position >= input.length()) {
-            return Optional.empty();
+    public int peek() {
+        if (position == offset + length && !fill()) {
+            return EOF;
         }
-        return Optional.of(input.charAt(position));
+        return buffer[position - offset];
     }
 
     public boolean eof() {
-        return peek().isEmpty();
+        return peek() == EOF;
+    }
+
+    // as posições abaixo precisam estar depois da marca
+    public String slice(int start, int end) {
+        return new String(buffer, start - offset, end - start);
+    }
+
+    public char charAt(int index) {
+        return buffer[index - offset];
+    }
+
+    public boolean regionMatches(int start, String word) {
+        if (start + word.length() > offset + length) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++) {
+            if (buffer[start - offset + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public int parseInt(int start, int end) {
+        if (start == end) {
+            return Integer.parseInt("");
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer[i - offset] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                // deixa a mensagem de erro para a implementação padrão
+                return Integer.parseInt(slice(start, end));
+            }
+            value = value * 10 + digit;
+        }
+
+        return value;
     }
 
     public interface CharacterPredicate {
         boolean predicate(char ch);
     }
 
+    public int getPosition() {
+        return position;
+    }
+
+    // tamanho da janela de caracteres, que cresce só quando um token não cabe nela
+    public int getWindowCapacity() {
+        return buffer.length;
+    }
+
+    // a partir daqui os caracteres anteriores à posição atual podem ser descartados
+    public void mark() {
+        mark = position;
+    }
+
     public int getLine() {
         return line;
     }
+
+    // caracteres já lidos na linha atual
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private boolean fill() {
+        if (decoded) {
+            return false;
+        }
+
+        discardBeforeMark();
+        // deixa espaço para ao menos um par substituto
+        if (buffer.length - length < 2) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, 2));
+        }
+
+        try {
+            CharBuffer out = CharBuffer.wrap(buffer, length, buffer.length - length);
+            while (out.position() == length && !decoded) {
+                CoderResult result = decoder.decode(bytes, out, bytesExhausted);
+                if (result.isError()) {
+                    result.throwException();
+                }
+
+                if (result.isUnderflow()) {
+                    if (bytesExhausted) {
+                        decoder.flush(out);
+                        decoded = true;
+                    } else {
+                        readBytes();
+                    }
+                }
+            }
+            length = out.position();
+        } catch (CharacterCodingException e) {
+            throw new UncheckedIOException("Entrada não é UTF-8 válido", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return position < offset + length;
+    }
+
+    private void discardBeforeMark() {
+        int discarded = mark - offset;
+        if (discarded == 0) {
+            return;
+        }
+
+        System.arraycopy(buffer, discarded, buffer, 0, length - discarded);
+        length -= discarded;
+        offset = mark;
+    }
+
+    private void readBytes() throws IOException {
+        bytes.compact();
+        int read = channel.read(bytes);
+        bytes.flip();
+        if (read == -1) {
+            bytesExhausted = true;
+        }
+    }
 }
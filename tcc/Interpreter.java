@@ -0,0 +1,362 @@
+package tcc;
+
+import tcc.nodes.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+// Executa o programa diretamente, sem gerar código Java nem bytecode. Antes da execução cada expressão é compilada uma
+// só vez em uma árvore de closures especializadas pelo tipo do resultado: IntCode devolve int e DoubleCode devolve
+// double, então durante a execução nenhum valor é encaixotado e o tipo de nenhum nó é consultado. Os casos mais comuns,
+// como operações com uma constante à direita, têm closures próprias para economizar chamadas.
+//
+// As variáveis ficam em dois arrays, um de int e outro de double. Cada variável recebe uma posição no array do seu tipo
+// a partir do número do nome na tabela de símbolos, então ler uma variável é só um acesso ao array.
+public class Interpreter {
+    // a avaliação das closures é recursiva; expressões mais profundas que isso são avaliadas sem recursão
+    private static final int MAX_DEPTH = 1_000;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @FunctionalInterface
+    private interface IntCode {
+        int run(int[] ints, double[] doubles);
+    }
+
+    @FunctionalInterface
+    private interface DoubleCode {
+        double run(int[] ints, double[] doubles);
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run(int[] ints, double[] doubles) throws IOException;
+    }
+
+    // resultado da compilação de um nó: só um dos dois códigos existe, conforme o tipo
+    private record Code(DataType type, IntCode intCode, DoubleCode doubleCode, int depth) {
+        static Code ofInt(IntCode intCode, int depth) {
+            return new Code(DataType.INT, intCode, null, depth);
+        }
+
+        static Code ofDouble(DoubleCode doubleCode, int depth) {
+            return new Code(DataType.DOUBLE, null, doubleCode, depth);
+        }
+
+        DoubleCode asDouble() {
+            if (doubleCode != null) {
+                return doubleCode;
+            }
+
+            IntCode code = intCode;
+            return (ints, doubles) -> code.run(ints, doubles);
+        }
+    }
+
+    private final Writer out;
+    private final Symbols symbols = new Symbols();
+    private final List<Action> actions = new ArrayList<>();
+    // tipo (ordinal + 1, ou 0 se não declarada) e posição no array do tipo de cada variável, pelo número do nome
+    private byte[] types = new byte[64];
+    private int[] slots = new int[64];
+    private int intSlots = 0;
+    private int doubleSlots = 0;
+
+    public Interpreter(Writer out) {
+        this.out = out;
+    }
+
+    public static void run(ProgramNode programNode, Writer out) throws IOException {
+        Interpreter interpreter = new Interpreter(out);
+        for (StatementNode statement : programNode.statements()) {
+            interpreter.compile(statement);
+        }
+        interpreter.run();
+    }
+
+    // as instruções são compiladas conforme chegam e o programa só é executado em finish(), quando se sabe que não há erros
+    public CodeEmitter emitter() {
+        return new CodeEmitter() {
+            @Override
+            public void emit(StatementNode statement) {
+                compile(statement);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                run();
+            }
+        };
+    }
+
+    public void compile(StatementNode statement) {
+        switch (statement) {
+            case DeclarationNode declarationNode -> compileDeclaration(declarationNode);
+            case PrintCallNode printCallNode -> compilePrintCall(printCallNode);
+            case AssignmentNode assignmentNode -> compileAssignment(assignmentNode);
+            case ExpressionNode expressionNode -> {
+                // o valor é descartado, mas a expressão ainda pode ter atribuições dentro
+                Code code = compileExpression(expressionNode);
+                if (code.type() == DataType.INT) {
+                    IntCode value = code.intCode();
+                    actions.add(value::run);
+                } else {
+                    DoubleCode value = code.doubleCode();
+                    actions.add(value::run);
+                }
+            }
+        }
+    }
+
+    // executa as instruções compiladas até aqui; o que foi impresso chega à saída mesmo se a execução falhar
+    public void run() throws IOException {
+        int[] ints = new int[intSlots];
+        double[] doubles = new double[doubleSlots];
+        try {
+            for (Action action : actions) {
+                action.run(ints, doubles);
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void compileDeclaration(DeclarationNode declarationNode) {
+        int id = symbols.resolve(declarationNode.identifier());
+        DataType type = declarationNode.type();
+        if (id >= types.length) {
+            types = Arrays.copyOf(types, Math.max(types.length * 2, id + 1));
+            slots = Arrays.copyOf(slots, types.length);
+        }
+        if (types[id] == 0) {
+            types[id] = (byte) (type.ordinal() + 1);
+            slots[id] = type == DataType.INT ? intSlots++ : doubleSlots++;
+        }
+
+        Optional<ExpressionNode> expression = declarationNode.expression();
+        if (expression.isPresent()) {
+            compileStore(slots[id], type, compileExpression(expression.get()));
+        }
+    }
+
+    private void compileAssignment(AssignmentNode assignmentNode) {
+        // como instrução, o valor da atribuição não é usado
+        int id = variable(assignmentNode.identifier());
+        compileStore(slots[id], typeOf(id), compileExpression(assignmentNode.expression()));
+    }
+
+    private void compileStore(int slot, DataType type, Code code) {
+        if (type == DataType.INT) {
+            IntCode value = code.intCode();
+            actions.add((ints, doubles) -> ints[slot] = value.run(ints, doubles));
+        } else {
+            DoubleCode value = code.asDouble();
+            actions.add((ints, doubles) -> doubles[slot] = value.run(ints, doubles));
+        }
+    }
+
+    private void compilePrintCall(PrintCallNode printCallNode) {
+        // mesmo formato de System.out.println
+        Code code = compileExpression(printCallNode.parameter());
+        if (code.type() == DataType.INT) {
+            IntCode value = code.intCode();
+            actions.add((ints, doubles) -> {
+                out.write(Integer.toString(value.run(ints, doubles)));
+                out.write(LINE_SEPARATOR);
+            });
+        } else {
+            DoubleCode value = code.doubleCode();
+            actions.add((ints, doubles) -> {
+                out.write(Double.toString(value.run(ints, doubles)));
+                out.write(LINE_SEPARATOR);
+            });
+        }
+    }
+
+    private Code compileExpression(ExpressionNode expressionNode) {
+        Code code = compiler.walk(expressionNode);
+        return code.depth() > MAX_DEPTH ? deepCode(expressionNode, code.type()) : code;
+    }
+
+    // a árvore de closures é montada de baixo para cima sem recursão, já que a expressão pode ser muito profunda
+    private final ExpressionWalker<Code, RuntimeException> compiler = new ExpressionWalker<>() {
+        @Override
+        protected Code leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> {
+                    int value = intNode.value();
+                    yield Code.ofInt((ints, doubles) -> value, 1);
+                }
+                case DoubleNode doubleNode -> {
+                    double value = doubleNode.value();
+                    yield Code.ofDouble((ints, doubles) -> value, 1);
+                }
+                case IdentifierNode identifierNode -> {
+                    int id = variable(identifierNode);
+                    int slot = slots[id];
+                    yield typeOf(id) == DataType.INT
+                        ? Code.ofInt((ints, doubles) -> ints[slot], 1)
+                        : Code.ofDouble((ints, doubles) -> doubles[slot], 1);
+                }
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected Code binary(BinaryExpressionNode binaryExpressionNode, Code left, Code right) {
+            int depth = Math.max(left.depth(), right.depth()) + 1;
+            Operator op = binaryExpressionNode.op();
+            if (left.type() == DataType.INT && right.type() == DataType.INT) {
+                return Code.ofInt(intBinary(op, left.intCode(), right.intCode(), binaryExpressionNode.right()), depth);
+            }
+
+            return Code.ofDouble(doubleBinary(op, left.asDouble(), right.asDouble(), binaryExpressionNode.right()), depth);
+        }
+
+        @Override
+        protected Code assignment(AssignmentNode assignmentNode, Code value) {
+            // dentro de uma expressão o valor atribuído continua sendo usado
+            int id = variable(assignmentNode.identifier());
+            int slot = slots[id];
+            if (typeOf(id) == DataType.INT) {
+                IntCode code = value.intCode();
+                return Code.ofInt((ints, doubles) -> ints[slot] = code.run(ints, doubles), value.depth() + 1);
+            }
+
+            DoubleCode code = value.asDouble();
+            return Code.ofDouble((ints, doubles) -> doubles[slot] = code.run(ints, doubles), value.depth() + 1);
+        }
+    };
+
+    // segue as regras do Java: overflow circular e divisão truncada, com ArithmeticException na divisão por zero
+    private static IntCode intBinary(Operator op, IntCode left, IntCode right, ExpressionNode rightNode) {
+        if (rightNode instanceof IntNode intNode) {
+            int constant = intNode.value();
+            return switch (op) {
+                case PLUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) + constant;
+                case MINUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) - constant;
+                case MULTIPLICATION_SIGN -> (ints, doubles) -> left.run(ints, doubles) * constant;
+                case DIVISION_SIGN -> (ints, doubles) -> left.run(ints, doubles) / constant;
+                case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser interpretado como operação");
+            };
+        }
+
+        return switch (op) {
+            case PLUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) + right.run(ints, doubles);
+            case MINUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) - right.run(ints, doubles);
+            case MULTIPLICATION_SIGN -> (ints, doubles) -> left.run(ints, doubles) * right.run(ints, doubles);
+            case DIVISION_SIGN -> (ints, doubles) -> left.run(ints, doubles) / right.run(ints, doubles);
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser interpretado como operação");
+        };
+    }
+
+    private static DoubleCode doubleBinary(Operator op, DoubleCode left, DoubleCode right, ExpressionNode rightNode) {
+        if (rightNode instanceof IntNode || rightNode instanceof DoubleNode) {
+            double constant = rightNode instanceof IntNode intNode ? intNode.value() : ((DoubleNode) rightNode).value();
+            return switch (op) {
+                case PLUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) + constant;
+                case MINUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) - constant;
+                case MULTIPLICATION_SIGN -> (ints, doubles) -> left.run(ints, doubles) * constant;
+                case DIVISION_SIGN -> (ints, doubles) -> left.run(ints, doubles) / constant;
+                case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser interpretado como operação");
+            };
+        }
+
+        return switch (op) {
+            case PLUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) + right.run(ints, doubles);
+            case MINUS_SIGN -> (ints, doubles) -> left.run(ints, doubles) - right.run(ints, doubles);
+            case MULTIPLICATION_SIGN -> (ints, doubles) -> left.run(ints, doubles) * right.run(ints, doubles);
+            case DIVISION_SIGN -> (ints, doubles) -> left.run(ints, doubles) / right.run(ints, doubles);
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser interpretado como operação");
+        };
+    }
+
+    // Expressões profundas demais para a pilha são avaliadas percorrendo os nós sem recursão, com os valores
+    // encaixotados. É bem mais lento, mas só acontece em programas gerados.
+    private Code deepCode(ExpressionNode expressionNode, DataType type) {
+        DeepEvaluator evaluator = new DeepEvaluator();
+        if (type == DataType.INT) {
+            return Code.ofInt((ints, doubles) -> evaluator.evaluate(expressionNode, ints, doubles).intValue(), 1);
+        }
+
+        return Code.ofDouble((ints, doubles) -> evaluator.evaluate(expressionNode, ints, doubles).doubleValue(), 1);
+    }
+
+    private class DeepEvaluator extends ExpressionWalker<Number, RuntimeException> {
+        private int[] ints;
+        private double[] doubles;
+
+        Number evaluate(ExpressionNode expressionNode, int[] ints, double[] doubles) {
+            this.ints = ints;
+            this.doubles = doubles;
+            return walk(expressionNode);
+        }
+
+        @Override
+        protected Number leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> intNode.value();
+                case DoubleNode doubleNode -> doubleNode.value();
+                case IdentifierNode identifierNode -> {
+                    int id = variable(identifierNode);
+                    yield typeOf(id) == DataType.INT ? (Number) ints[slots[id]] : (Number) doubles[slots[id]];
+                }
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected Number binary(BinaryExpressionNode binaryExpressionNode, Number left, Number right) {
+            if (left instanceof Integer leftInt && right instanceof Integer rightInt) {
+                int a = leftInt;
+                int b = rightInt;
+                return switch (binaryExpressionNode.op()) {
+                    case PLUS_SIGN -> a + b;
+                    case MINUS_SIGN -> a - b;
+                    case MULTIPLICATION_SIGN -> a * b;
+                    case DIVISION_SIGN -> a / b;
+                    case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser interpretado como operação");
+                };
+            }
+
+            double a = left.doubleValue();
+            double b = right.doubleValue();
+            return switch (binaryExpressionNode.op()) {
+                case PLUS_SIGN -> a + b;
+                case MINUS_SIGN -> a - b;
+                case MULTIPLICATION_SIGN -> a * b;
+                case DIVISION_SIGN -> a / b;
+                case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser interpretado como operação");
+            };
+        }
+
+        @Override
+        protected Number assignment(AssignmentNode assignmentNode, Number value) {
+            int id = variable(assignmentNode.identifier());
+            if (typeOf(id) == DataType.INT) {
+                ints[slots[id]] = value.intValue();
+                return value.intValue();
+            }
+
+            doubles[slots[id]] = value.doubleValue();
+            return value.doubleValue();
+        }
+    }
+
+    private int variable(IdentifierNode identifierNode) {
+        int id = symbols.resolve(identifierNode);
+        if (id >= types.length || types[id] == 0) {
+            // o analisador semântico garante que isso não acontece
+            throw new IllegalStateException("Variável " + identifierNode.name() + " não foi declarada");
+        }
+
+        return id;
+    }
+
+    private DataType typeOf(int id) {
+        return DataType.values()[types[id] - 1];
+    }
+}
@@ -1,60 +1,603 @@
 package tcc;
 
+import tcc.ir.*;
 import tcc.nodes.*;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class JavaGenerator {
-    public String generate(ProgramNode programNode, String className) {
-        StringBuilder main = new StringBuilder();
+    // main chama no máximo esse número de métodos; acima disso as chamadas são divididas em níveis
+    private static final int MAX_CALLS = 1000;
+    // posições por array de variáveis; índices até 32767 cabem em um sipush, sem ocupar o pool de constantes
+    private static final int SLOTS_PER_ARRAY = 1 << 15;
+
+    // com a saída bufferizada, imprimir chama métodos print(int) e print(double) da própria classe gerada, que juntam o
+    // texto em um StringBuilder sem sincronização e só passam para System.out a cada 64 KB e no fim de main, inclusive
+    // quando o programa termina com uma exceção
+    private final boolean bufferedOutput;
+    // número de instruções por método nos programas que não cabem em um main só
+    private final int chunkSize;
 
-        main.append(String.format("public class %s {\n", className));
-        main.append("\tpublic static void main(String[] args) {\n");
-        for (StatementNode statement : programNode.statements()) {
-            String line = switch (statement) {
-                case DeclarationNode declarationNode -> generateDeclaration(declarationNode);
-                case PrintCallNode printCallNode -> generatePrintCall(printCallNode);
-                case ExpressionNode expressionNode -> generateExpression(expressionNode);
-            };
+    public JavaGenerator() {
+        this(false, GeneratorOptions.DEFAULT_CHUNK_SIZE);
+    }
 
-            main.append("\t\t").append(line).append(";\n");
+    public JavaGenerator(boolean bufferedOutput, int chunkSize) {
+        this.bufferedOutput = bufferedOutput;
+        this.chunkSize = chunkSize;
+    }
+
+    public String generate(ProgramNode programNode, String className) {
+        StringWriter main = new StringWriter();
+        try {
+            generate(programNode, className, main);
+        } catch (IOException e) {
+            // StringWriter nunca lança IOException
+            throw new UncheckedIOException(e);
         }
-        main.append("\t}\n");
-        main.append("}\n");
 
         return main.toString();
     }
 
+    public void generate(ProgramNode programNode, String className, Writer out) throws IOException {
+        generate(programNode.statements(), className, out);
+    }
+
+    public void generate(FlatProgram flatProgram, String className, Writer out) throws IOException {
+        generate(flatProgram.statements(), className, out);
+    }
+
+    private void generate(List<StatementNode> statements, String className, Writer out) throws IOException {
+        MainWriter main = new MainWriter(className, out, statements.size() > chunkSize);
+        for (StatementNode statement : statements) {
+            generateStatement(statement, main, out);
+        }
+        main.finish();
+    }
+
+    public CodeEmitter emitter(String className, Writer out) throws IOException {
+        return new CodeEmitter() {
+            // as primeiras instruções esperam até se saber se o programa cabe em um main só; depois disso cada
+            // instrução é escrita assim que chega
+            private List<StatementNode> waiting = new ArrayList<>();
+            private MainWriter main;
+
+            @Override
+            public void emit(StatementNode statement) throws IOException {
+                if (main != null) {
+                    generateStatement(statement, main, out);
+                    return;
+                }
+
+                waiting.add(statement);
+                if (waiting.size() > chunkSize) {
+                    main = new MainWriter(className, out, true);
+                    generateWaiting();
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                if (main == null) {
+                    main = new MainWriter(className, out, false);
+                    generateWaiting();
+                }
+                main.finish();
+                out.flush();
+            }
+
+            private void generateWaiting() throws IOException {
+                for (StatementNode statement : waiting) {
+                    generateStatement(statement, main, out);
+                }
+                waiting = null;
+            }
+        };
+    }
+
+    private void generateStatement(StatementNode statement, MainWriter main, Writer out) throws IOException {
+        switch (statement) {
+            case DeclarationNode declarationNode -> {
+                String name = generateIdentifier(declarationNode.identifier());
+                Optional<ExpressionNode> expression = declarationNode.expression();
+                if (expression.isPresent()) {
+                    main.beginAssignment(name, declarationNode.type());
+                    generateExpression(expression.get(), main, out);
+                    main.endStatement();
+                } else {
+                    main.declare(name, declarationNode.type());
+                }
+            }
+            case PrintCallNode printCallNode -> {
+                main.beginStatement();
+                generatePrintCall(printCallNode, main, out);
+                main.endStatement();
+            }
+            case ExpressionNode expressionNode -> {
+                main.beginStatement();
+                generateExpression(expressionNode, main, out);
+                main.endStatement();
+            }
+        }
+    }
+
+    // Escreve a classe em volta das instruções. Programas pequenos ficam inteiros em main, com variáveis locais. Nos
+    // maiores as instruções são divididas em métodos chunk0, chunk1, ... de chunkSize instruções, que main chama em
+    // ordem: um método único passaria do limite de 64 KB de bytecode, e bem antes disso do tamanho acima do qual o JIT
+    // não compila o método (8000 bytes), ficando sempre interpretado. As variáveis viram posições de arrays estáticos
+    // por tipo (_i0, _i1, ... e _d0, _d1, ...), e não campos: cada campo ocupa três entradas do pool de constantes da
+    // classe, que passaria do limite de 65535 com pouco mais de 20 mil variáveis. Os arrays são declarados depois dos
+    // métodos, já que a ordem dos membros de uma classe não importa em Java.
+    private class MainWriter {
+        private record Slot(DataType type, int index) {}
+
+        private final Writer out;
+        private final boolean chunked;
+        private final Map<String, Slot> slots = new HashMap<>();
+        private final int[] slotCounts = new int[DataType.values().length];
+        private final Set<String> locals = new HashSet<>();
+        private int chunks = 0;
+        private int chunkStatements = 0;
+
+        MainWriter(String className, Writer out, boolean chunked) throws IOException {
+            this.out = out;
+            this.chunked = chunked;
+
+            out.write(String.format("public class %s {\n", className));
+            if (bufferedOutput) {
+                generateOutputBuffer(out);
+            }
+            if (!chunked) {
+                beginMain();
+            }
+        }
+
+        // declaração sem valor inicial; as posições dos arrays já começam com zero
+        void declare(String name, DataType type) throws IOException {
+            if (chunked) {
+                slot(name, type);
+                return;
+            }
+
+            locals.add(name);
+            beginStatement();
+            out.write(generateDataType(type));
+            out.write(' ');
+            out.write(name);
+            endStatement();
+        }
+
+        // começa uma instrução que atribui um valor à variável, declarando-a na primeira vez
+        void beginAssignment(String name, DataType type) throws IOException {
+            beginStatement();
+            if (chunked) {
+                slot(name, type);
+            } else if (locals.add(name)) {
+                out.write(generateDataType(type));
+                out.write(' ');
+            }
+            out.write(reference(name));
+            out.write(" = ");
+        }
+
+        // como a variável, já declarada, é lida ou atribuída no código gerado
+        String reference(String name) {
+            if (!chunked) {
+                return name;
+            }
+
+            Slot slot = slots.get(name);
+            return arrayName(slot.type(), slot.index() / SLOTS_PER_ARRAY) + "[" + slot.index() % SLOTS_PER_ARRAY + "]";
+        }
+
+        private void slot(String name, DataType type) {
+            slots.computeIfAbsent(name, n -> new Slot(type, slotCounts[type.ordinal()]++));
+        }
+
+        private String arrayName(DataType type, int array) {
+            return (type == DataType.INT ? "_i" : "_d") + array;
+        }
 
+        void beginStatement() throws IOException {
+            if (!chunked) {
+                out.write(indentation());
+                return;
+            }
 
-    private String generateDeclaration(DeclarationNode declarationNode) {
-        String varName = generateIdentifier(declarationNode.identifier());
-        String type = generateDataType(declarationNode.type());
-        Optional<ExpressionNode> expression = declarationNode.expression();
+            if (chunkStatements == 0) {
+                out.write("\tprivate static void chunk" + chunks + "() {\n");
+            }
+            out.write("\t\t");
+        }
 
-        if (expression.isPresent()) {
-            return String.format("%s %s = %s", type, varName, generateExpression(expression.get()));
+        void endStatement() throws IOException {
+            out.write(";\n");
+            if (chunked && ++chunkStatements == chunkSize) {
+                endChunk();
+            }
         }
 
-        return String.format("%s %s", type, varName);
+        void finish() throws IOException {
+            if (chunked) {
+                if (chunkStatements > 0) {
+                    endChunk();
+                }
+                for (DataType type : DataType.values()) {
+                    int count = slotCounts[type.ordinal()];
+                    for (int array = 0; array * SLOTS_PER_ARRAY < count; array++) {
+                        String dataType = generateDataType(type);
+                        int size = Math.min(SLOTS_PER_ARRAY, count - array * SLOTS_PER_ARRAY);
+                        out.write("\tprivate static final " + dataType + "[] " + arrayName(type, array) + " = new "
+                            + dataType + "[" + size + "];\n");
+                    }
+                }
+                if (!slots.isEmpty()) {
+                    out.write('\n');
+                }
+
+                // com muitos métodos, cada nível agrupa MAX_CALLS chamadas do nível de baixo
+                String method = "chunk";
+                int methods = chunks;
+                for (int level = 1; methods > MAX_CALLS; level++) {
+                    int groups = (methods + MAX_CALLS - 1) / MAX_CALLS;
+                    for (int group = 0; group < groups; group++) {
+                        out.write("\tprivate static void level" + level + "_" + group + "() {\n");
+                        for (int i = group * MAX_CALLS; i < Math.min(methods, (group + 1) * MAX_CALLS); i++) {
+                            out.write("\t\t" + method + i + "();\n");
+                        }
+                        out.write("\t}\n\n");
+                    }
+                    method = "level" + level + "_";
+                    methods = groups;
+                }
+
+                beginMain();
+                for (int i = 0; i < methods; i++) {
+                    out.write(indentation() + method + i + "();\n");
+                }
+            }
+
+            if (bufferedOutput) {
+                out.write("\t\t} finally {\n");
+                out.write("\t\t\tflush();\n");
+                out.write("\t\t}\n");
+            }
+            out.write("\t}\n");
+            out.write("}\n");
+        }
+
+        private void beginMain() throws IOException {
+            out.write("\tpublic static void main(String[] args) {\n");
+            if (bufferedOutput) {
+                out.write("\t\ttry {\n");
+            }
+        }
+
+        private void endChunk() throws IOException {
+            out.write("\t}\n\n");
+            chunks++;
+            chunkStatements = 0;
+        }
     }
 
-    private String generatePrintCall(PrintCallNode printCallNode) {
-        return String.format("System.out.println(%s)", generateExpression(printCallNode.parameter()));
+    // StringBuilder.append(int) e append(double) escrevem o mesmo texto que System.out.println, sem converter o
+    // valor em String antes. Os nomes com _ não colidem com os das variáveis de Café.
+    private void generateOutputBuffer(Writer out) throws IOException {
+        out.write("""
+            \tprivate static final String _lineSeparator = System.lineSeparator();
+            \tprivate static final StringBuilder _output = new StringBuilder((1 << 16) + 64);
+
+            \tprivate static void print(int value) {
+            \t\t_output.append(value).append(_lineSeparator);
+            \t\tif (_output.length() >= 1 << 16) {
+            \t\t\tflush();
+            \t\t}
+            \t}
+
+            \tprivate static void print(double value) {
+            \t\t_output.append(value).append(_lineSeparator);
+            \t\tif (_output.length() >= 1 << 16) {
+            \t\t\tflush();
+            \t\t}
+            \t}
+
+            \tprivate static void flush() {
+            \t\tSystem.out.append(_output);
+            \t\tSystem.out.flush();
+            \t\t_output.setLength(0);
+            \t}
+
+            """);
     }
 
-    private String generateExpression(ExpressionNode expressionNode) {
-        return switch (expressionNode) {
-            case BinaryExpressionNode binaryExpressionNode -> generateBinaryExpression(binaryExpressionNode);
-            case IdentifierNode identifierNode -> generateIdentifier(identifierNode);
-            case AssignmentNode assignmentNode -> generateAssignment(assignmentNode);
-            case IntNode intNode -> generateInt(intNode);
-            case DoubleNode doubleNode -> generateDouble(doubleNode);
+    // o código é gerado a partir da representação intermediária, depois dos passes de otimização; como eles precisam
+    // do programa inteiro, nada é escrito antes do fim
+    public CodeEmitter emitter(String className, Writer out, PassManager passManager) {
+        IrBuilder builder = new IrBuilder();
+        return new CodeEmitter() {
+            @Override
+            public void emit(StatementNode statement) {
+                builder.add(statement);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                IrProgram program = builder.build();
+                passManager.run(program);
+                generate(program, className, out);
+                out.flush();
+            }
         };
     }
 
+    public void generate(IrProgram program, String className, Writer out) throws IOException {
+        IrWriter irWriter = new IrWriter(program, out);
+        MainWriter main = new MainWriter(className, out, irWriter.statementCount() > chunkSize);
+        irWriter.write(main);
+        main.finish();
+    }
+
+    // Escreve como Java um programa em forma SSA. Constantes e valores intermediários usados uma só vez voltam para
+    // dentro da expressão que os usa; os outros valores viram variáveis. As versões de uma variável usam o nome
+    // dela, e uma versão só ganha outro nome (a_1, a_2, ...) quando a anterior ainda vai ser lida depois dela, o que
+    // acontece, por exemplo, quando a propagação de cópias troca uma leitura de b por uma versão antiga de a.
+    private class IrWriter {
+        private final IrProgram program;
+        private final Writer out;
+        private final List<Instruction> instructions;
+        private final Instruction[] definitions;
+        private final int[] uses;
+        private final boolean[] inline;
+        // posição da última instrução que lê o valor, contando a instrução onde uma expressão embutida é escrita
+        private final int[] lastUse;
+        private final String[] names;
+        // versão guardada atualmente em cada variável do código gerado
+        private final Map<String, Integer> owners = new HashMap<>();
+        private final Deque<Object> pending = new ArrayDeque<>();
+        private MainWriter main;
+
+        IrWriter(IrProgram program, Writer out) {
+            this.program = program;
+            this.out = out;
+            instructions = program.instructions();
+
+            int count = program.valueCount();
+            definitions = new Instruction[count];
+            uses = new int[count];
+            for (Instruction instruction : instructions) {
+                if (instruction.result() != Instruction.NO_VALUE) {
+                    definitions[instruction.result()] = instruction;
+                }
+                for (int operand : instruction.operands()) {
+                    uses[operand]++;
+                }
+            }
+
+            inline = new boolean[count];
+            for (Instruction instruction : instructions) {
+                int result = instruction.result();
+                if (result != Instruction.NO_VALUE) {
+                    inline[result] = instruction instanceof IntConstant || instruction instanceof DoubleConstant
+                        || (program.name(result) == null && uses[result] == 1 && !mayThrow(instruction));
+                }
+            }
+
+            // de trás para frente, o uso de um valor embutido já tem a posição onde ele vai ser escrito
+            lastUse = new int[count];
+            int[] writtenAt = new int[count];
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                Instruction instruction = instructions.get(i);
+                int result = instruction.result();
+                int position = result != Instruction.NO_VALUE && inline[result] ? writtenAt[result] : i;
+                for (int operand : instruction.operands()) {
+                    lastUse[operand] = Math.max(lastUse[operand], position);
+                    writtenAt[operand] = position;
+                }
+            }
+
+            names = new String[count];
+        }
+
+        int statementCount() {
+            int count = 0;
+            for (Instruction instruction : instructions) {
+                if (isStatement(instruction)) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        void write(MainWriter main) throws IOException {
+            this.main = main;
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+                if (!isStatement(instruction)) {
+                    continue;
+                }
+
+                if (instruction instanceof Print print) {
+                    main.beginStatement();
+                    out.write(printMethod());
+                    writeExpression(print.value());
+                    out.write(')');
+                    main.endStatement();
+                    continue;
+                }
+
+                int result = instruction.result();
+                String name = chooseName(result, i);
+                owners.put(name, result);
+                main.beginAssignment(name, program.type(result));
+                pending.push(instruction);
+                writePending();
+                main.endStatement();
+            }
+        }
+
+        // sem os passes de otimização pode haver valores intermediários que ninguém usa
+        private boolean isStatement(Instruction instruction) {
+            int result = instruction.result();
+            return result == Instruction.NO_VALUE
+                || !(inline[result] || (program.name(result) == null && uses[result] == 0 && !mayThrow(instruction)));
+        }
+
+        private String chooseName(int value, int position) {
+            String base = program.name(value) != null ? removeAccents(program.name(value)) : "_v" + value;
+            String name = base;
+            // a versão anterior pode ser lida na própria instrução que a substitui, já que a leitura vem antes
+            for (int suffix = 1; owners.containsKey(name) && lastUse[owners.get(name)] > position; suffix++) {
+                name = base + "_" + suffix;
+            }
+
+            names[value] = name;
+            return name;
+        }
+
+        // percorre a expressão sem recursão, com as partes ainda por escrever em uma pilha
+        private void writeExpression(int value) throws IOException {
+            pending.push(value);
+            writePending();
+        }
+
+        private void writePending() throws IOException {
+            while (!pending.isEmpty()) {
+                switch (pending.pop()) {
+                    case String text -> out.write(text);
+                    case Integer value -> {
+                        if (inline[value]) {
+                            pending.push(definitions[value]);
+                        } else {
+                            out.write(main.reference(names[value]));
+                        }
+                    }
+                    case IntConstant constant -> out.write(String.valueOf(constant.value()));
+                    case DoubleConstant constant -> out.write(generateDouble(constant.value()));
+                    case Binary binary -> {
+                        pending.push(")");
+                        pending.push(binary.right());
+                        pending.push(" " + binary.op().getValue() + " ");
+                        pending.push(binary.left());
+                        pending.push("(");
+                    }
+                    case Widen widen -> {
+                        pending.push(")");
+                        pending.push(widen.source());
+                        pending.push("((double) ");
+                    }
+                    case Copy copy -> pending.push(copy.source());
+                    default -> throw new IllegalStateException("Instrução sem valor dentro de uma expressão");
+                }
+            }
+        }
+
+        // uma divisão inteira por algo que pode ser zero não pode mudar de lugar, para lançar a exceção no mesmo ponto
+        private boolean mayThrow(Instruction instruction) {
+            return instruction instanceof Binary binary && binary.type() == DataType.INT
+                && binary.op() == Operator.DIVISION_SIGN
+                && !(definitions[binary.right()] instanceof IntConstant constant && constant.value() != 0);
+        }
+
+        private static String generateDouble(double value) {
+            if (Double.isNaN(value)) {
+                return "Double.NaN";
+            }
+            if (Double.isInfinite(value)) {
+                return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+            }
+
+            return String.valueOf(value);
+        }
+    }
+
+    // as instruções de main ficam dentro do try que descarrega a saída bufferizada
+    private String indentation() {
+        return bufferedOutput ? "\t\t\t" : "\t\t";
+    }
+
+    private String printMethod() {
+        return bufferedOutput ? "print(" : "System.out.println(";
+    }
+
+    private void generatePrintCall(PrintCallNode printCallNode, MainWriter main, Writer out) throws IOException {
+        out.write(printMethod());
+        generateExpression(printCallNode.parameter(), main, out);
+        out.write(')');
+    }
+
+    // a expressão é escrita enquanto é percorrida, sem montar strings intermediárias, para que o tempo seja linear
+    // no tamanho da expressão
+    private void generateExpression(ExpressionNode expressionNode, MainWriter main, Writer out) throws IOException {
+        new ExpressionWalker<Void, IOException>() {
+            @Override
+            protected Void leaf(ExpressionNode leaf) throws IOException {
+                out.write(switch (leaf) {
+                    case IdentifierNode identifierNode -> main.reference(generateIdentifier(identifierNode));
+                    case IntNode intNode -> generateInt(intNode);
+                    case DoubleNode doubleNode -> generateDouble(doubleNode);
+                    default -> throw new IllegalStateException("Expressão composta tratada como folha");
+                });
+                return null;
+            }
+
+            @Override
+            protected void enterBinary(BinaryExpressionNode binaryExpressionNode) throws IOException {
+                out.write('(');
+                // em Java a atribuição tem precedência menor que os operadores aritméticos
+                if (binaryExpressionNode.left() instanceof AssignmentNode) {
+                    out.write('(');
+                }
+            }
+
+            @Override
+            protected void afterLeft(BinaryExpressionNode binaryExpressionNode, Void left) throws IOException {
+                if (binaryExpressionNode.left() instanceof AssignmentNode) {
+                    out.write(')');
+                }
+                out.write(' ');
+                out.write(binaryExpressionNode.op().getValue());
+                out.write(' ');
+                if (binaryExpressionNode.right() instanceof AssignmentNode) {
+                    out.write('(');
+                }
+            }
+
+            @Override
+            protected Void binary(BinaryExpressionNode binaryExpressionNode, Void left, Void right) throws IOException {
+                if (binaryExpressionNode.right() instanceof AssignmentNode) {
+                    out.write(')');
+                }
+                out.write(')');
+                return null;
+            }
+
+            @Override
+            protected void enterAssignment(AssignmentNode assignmentNode) throws IOException {
+                out.write(main.reference(generateIdentifier(assignmentNode.identifier())));
+                out.write(" = ");
+            }
+
+            @Override
+            protected Void assignment(AssignmentNode assignmentNode, Void value) {
+                return null;
+            }
+        }.walk(expressionNode);
+    }
+
     private String generateDataType(DataType dataType) {
         return switch (dataType) {
             case INT -> "int";
@@ -62,25 +605,10 @@ public class JavaGenerator {
         };
     }
 
-    private String generateBinaryExpression(BinaryExpressionNode binaryExpressionNode) {
-        String left = generateExpression(binaryExpressionNode.left());
-        String right = generateExpression(binaryExpressionNode.right());
-        char op = binaryExpressionNode.op().getValue();
-
-        return String.format("(%s %s %s)", left, op, right);
-    }
-
     private String generateIdentifier(IdentifierNode identifierNode) {
         return removeAccents(identifierNode.name());
     }
 
-    private String generateAssignment(AssignmentNode assignmentNode) {
-        String identifier = generateIdentifier(assignmentNode.identifier());
-        String expression = generateExpression(assignmentNode.expression());
-
-        return String.format("%s = %s", identifier, expression);
-    }
-
     private String generateInt(IntNode intNode) {
         return String.valueOf(intNode.value());
     }
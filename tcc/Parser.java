@@ -4,11 +4,17 @@ import tcc.exceptions.*;
 import tcc.nodes.*;
 import tcc.tokens.*;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 public class Parser {
-    private final TokenStream tokenStream;
+    private final TokenSource tokenStream;
+    private final Symbols symbols;
+    // posição do primeiro token da última instrução lida, usada nos erros semânticos
+    private int statementLine;
+    private int statementColumn;
+    private Token lastToken;
 
     private static final Map<Operator, Integer> PRECEDENCE = Map.of(
             Operator.EQUAL_SIGN, 1,
@@ -18,23 +24,120 @@ public class Parser {
             Operator.MULTIPLICATION_SIGN, 3
     );
 
-    public Parser(TokenStream tokenStream) {
+    public Parser(TokenSource tokenStream) {
+        this(tokenStream, new Symbols());
+    }
+
+    public Parser(TokenSource tokenStream, Symbols symbols) {
         this.tokenStream = tokenStream;
+        this.symbols = symbols;
+    }
+
+    public Symbols getSymbols() {
+        return symbols;
+    }
+
+    public int getStatementLine() {
+        return statementLine;
+    }
+
+    public int getStatementColumn() {
+        return statementColumn;
     }
 
     public ProgramNode parseTopLevel() throws ParserException {
         ArrayList<StatementNode> statements = new ArrayList<>();
-        while (peekToken().isPresent()) {
-            statements.add(parseStatement());
-            skipPunctuation(Punctuation.EXCLAMATION_MARK);
+        Optional<StatementNode> statement;
+        while ((statement = parseNext()).isPresent()) {
+            statements.add(statement.get());
         }
 
         return new ProgramNode(statements);
     }
 
+    // lê o programa inteiro na representação compacta; a árvore de records de cada instrução é descartada logo depois
+    public FlatProgram parseFlat() throws ParserException {
+        FlatProgram flatProgram = new FlatProgram(symbols);
+        Optional<StatementNode> statement;
+        while ((statement = parseNext()).isPresent()) {
+            flatProgram.add(statement.get());
+        }
+
+        flatProgram.trimToSize();
+        return flatProgram;
+    }
+
+    // lê só a próxima instrução, para que o programa possa ser compilado sem montar a árvore inteira
+    public Optional<StatementNode> parseNext() throws ParserException {
+        lastToken = null;
+        if (peekToken().isEmpty()) {
+            return Optional.empty();
+        }
+
+        statementLine = tokenStream.getLine();
+        statementColumn = tokenStream.getColumn();
+        StatementNode statement = parseStatement();
+        skipPunctuation(Punctuation.EXCLAMATION_MARK);
+        return Optional.of(statement);
+    }
+
+    // Como parseNext(), mas um erro é guardado em diagnostics e a leitura continua depois do próximo '!', o fim da
+    // instrução com erro. Devolve vazio no fim da entrada ou quando o limite de erros é atingido; nesse caso, se ainda
+    // há entrada, diagnostics fica marcado como truncado.
+    public Optional<StatementNode> parseNext(Diagnostics diagnostics) {
+        while (!diagnostics.isFull()) {
+            try {
+                return parseNext();
+            } catch (ParserException e) {
+                error(diagnostics, e);
+                skipStatement(diagnostics);
+            }
+        }
+
+        if (hasInputLeft()) {
+            diagnostics.truncate();
+        }
+        return Optional.empty();
+    }
+
+    private boolean hasInputLeft() {
+        try {
+            return tokenStream.peek().isPresent();
+        } catch (InvalidCharacterException e) {
+            return true;
+        }
+    }
+
+    private void skipStatement(Diagnostics diagnostics) {
+        // o erro pode ter sido justamente no '!', que já foi consumido
+        Token terminator = new PuncToken(Punctuation.EXCLAMATION_MARK);
+        while (!terminator.equals(lastToken)) {
+            try {
+                Optional<Token> token = tokenStream.next();
+                if (token.isEmpty()) {
+                    return;
+                }
+                lastToken = token.get();
+            } catch (InvalidCharacterException e) {
+                error(diagnostics, e);
+                if (diagnostics.isFull()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void error(Diagnostics diagnostics, Exception e) {
+        // erros léxicos chegam embrulhados; a mensagem original já diz o que houve
+        String message = e.getCause() instanceof InvalidCharacterException cause ? cause.getMessage() : e.getMessage();
+        diagnostics.error(tokenStream.getLine(), tokenStream.getColumn(), message);
+    }
+
     private Token nextTokenOrThrow() throws ParserException {
         try {
-            return tokenStream.next().orElseThrow(UnexpectedEOFException::new);
+            lastToken = null;
+            lastToken = tokenStream.next().orElseThrow(UnexpectedEOFException::new);
+            return lastToken;
         } catch (InvalidCharacterException e) {
             throw new ParserException("Erro ao ler próximo token", e);
         }
@@ -90,71 +193,109 @@ public class Parser {
             default -> throw new UnexpectedTokenException(IdentifierToken.class);
         };
 
-        return new IdentifierNode(name);
-    }
-
-    private ExpressionNode parseExpression() throws ParserException {
-        return maybeBinary(parseAtom(), 0);
+        return identifier(name);
     }
 
-    private Optional<Token> peekToken() throws ParserException {
-        try {
-            return tokenStream.peek();
-        } catch (InvalidCharacterException e) {
-            throw new ParserException("Erro ao ler próximo token", e);
-        }
+    // o nome é resolvido uma só vez aqui; os nós do mesmo nome compartilham a string guardada na tabela
+    private IdentifierNode identifier(String name) {
+        int id = symbols.intern(name);
+        return new IdentifierNode(symbols.name(id), id);
     }
 
-    private ExpressionNode maybeBinary(ExpressionNode left, int myPrecedence) throws ParserException {
-        Optional<Token> optToken = peekToken();
-        if (optToken.isEmpty()) {
-            return left;
-        }
-        Token token = optToken.get();
-
-        if (token instanceof OperatorToken ot) {
-            Operator op = ot.value();
-            int theirPrecedence = PRECEDENCE.get(op);
-
-            boolean isMoreImportant = theirPrecedence > myPrecedence;
-            if (op.getAssociativity() == OperatorAssociativity.RIGHT) {
-                isMoreImportant = theirPrecedence >= myPrecedence;
-            }
+    // precedência com pilhas explícitas no lugar da recursão, para que expressões longas ou muito aninhadas não
+    // estourem a pilha de chamadas; cada token é empilhado e desempilhado uma vez só
+    private ExpressionNode parseExpression() throws ParserException {
+        List<ExpressionNode> operands = new ArrayList<>();
+        // null marca um parêntese aberto
+        List<Operator> operators = new ArrayList<>();
+        int openParentheses = 0;
 
-            if (isMoreImportant) {
+        while (true) {
+            while (isPunctuation(Punctuation.OPEN_PARENTHESIS)) {
                 nextTokenOrThrow();
-                ExpressionNode right = maybeBinary(parseAtom(), theirPrecedence);
-                ExpressionNode expression;
+                operators.add(null);
+                openParentheses++;
+            }
+            operands.add(parseAtom());
+
+            while (true) {
+                Optional<Token> token = peekToken();
+                if (token.isPresent() && token.get() instanceof OperatorToken ot) {
+                    Operator op = ot.value();
+                    reduceWhile(operands, operators, op);
+                    nextTokenOrThrow();
+                    operators.add(op);
+                    break;
+                }
 
-                if (op.equals(Operator.EQUAL_SIGN)) {
-                    if (!(left instanceof IdentifierNode identifierNode)) {
-                        throw new InvalidAssigneeException();
+                if (openParentheses > 0 && isPunctuation(Punctuation.CLOSE_PARENTHESIS)) {
+                    nextTokenOrThrow();
+                    while (operators.get(operators.size() - 1) != null) {
+                        reduce(operands, operators);
                     }
+                    operators.remove(operators.size() - 1);
+                    openParentheses--;
+                    continue;
+                }
+
+                if (openParentheses > 0) {
+                    throw new UnexpectedTokenException(new PuncToken(Punctuation.CLOSE_PARENTHESIS));
+                }
 
-                    expression = new AssignmentNode(identifierNode, right);
-                } else {
-                    expression = new BinaryExpressionNode(op, left, right);
+                while (!operators.isEmpty()) {
+                    reduce(operands, operators);
                 }
+                return operands.get(0);
+            }
+        }
+    }
 
-                return maybeBinary(expression, myPrecedence);
+    // monta as operações já lidas que devem ser feitas antes de next
+    private static void reduceWhile(List<ExpressionNode> operands, List<Operator> operators, Operator next)
+            throws ParserException {
+        int nextPrecedence = PRECEDENCE.get(next);
+        while (!operators.isEmpty() && operators.get(operators.size() - 1) != null) {
+            int topPrecedence = PRECEDENCE.get(operators.get(operators.size() - 1));
+            boolean topFirst = next.getAssociativity() == OperatorAssociativity.RIGHT
+                ? topPrecedence > nextPrecedence
+                : topPrecedence >= nextPrecedence;
+            if (!topFirst) {
+                return;
             }
+
+            reduce(operands, operators);
         }
+    }
 
-        return left;
+    private static void reduce(List<ExpressionNode> operands, List<Operator> operators) throws ParserException {
+        Operator op = operators.remove(operators.size() - 1);
+        ExpressionNode right = operands.remove(operands.size() - 1);
+        ExpressionNode left = operands.remove(operands.size() - 1);
+
+        if (op.equals(Operator.EQUAL_SIGN)) {
+            if (!(left instanceof IdentifierNode identifierNode)) {
+                throw new InvalidAssigneeException();
+            }
+
+            operands.add(new AssignmentNode(identifierNode, right));
+        } else {
+            operands.add(new BinaryExpressionNode(op, left, right));
+        }
     }
 
-    private ExpressionNode parseAtom() throws ParserException {
-        if (isPunctuation(Punctuation.OPEN_PARENTHESIS)) {
-            skipPunctuation(Punctuation.OPEN_PARENTHESIS);
-            ExpressionNode expression = parseExpression();
-            skipPunctuation(Punctuation.CLOSE_PARENTHESIS);
-            return expression;
+    private Optional<Token> peekToken() throws ParserException {
+        try {
+            return tokenStream.peek();
+        } catch (InvalidCharacterException e) {
+            throw new ParserException("Erro ao ler próximo token", e);
         }
+    }
 
+    private ExpressionNode parseAtom() throws ParserException {
         return switch(nextTokenOrThrow()) {
             case IntToken it -> new IntNode(it.value());
             case DoubleToken dt -> new DoubleNode(dt.value());
-            case IdentifierToken it -> new IdentifierNode(it.value());
+            case IdentifierToken it -> identifier(it.value());
             default -> throw new UnexpectedTokenException("esperado número ou identificador");
         };
     }
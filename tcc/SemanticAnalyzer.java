@@ -1,8 +1,6 @@
 package tcc;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.Arrays;
 
 import tcc.exceptions.*;
 import tcc.nodes.*;
@@ -10,28 +8,76 @@ import tcc.nodes.*;
 // Analisador semântico
 public class SemanticAnalyzer {
 
-    private record Variable(DataType dataType, Optional<ExpressionValue> value) {}
+    private static final DataType[] DATA_TYPES = DataType.values();
+    // valor de types para variáveis ainda não declaradas; as declaradas guardam o ordinal do tipo mais um
+    private static final byte UNDECLARED = 0;
 
-    private record DoubleValue(Double value) implements ExpressionValue {
+    // estado de cada variável, indexado pelo número do nome na tabela de símbolos
+    private final Symbols symbols;
+    private byte[] types = new byte[64];
+    private boolean[] initialized = new boolean[64];
+    private boolean[] unknown = new boolean[64];
+    private double[] values = new double[64];
 
+    // Registro das alterações feitas nas variáveis, com o estado de cada uma antes da alteração, para que a análise
+    // possa voltar a um ponto do programa e seguir dali com outras instruções. Só é mantido depois da primeira chamada
+    // de checkpoint(), para não custar nada na compilação de um arquivo inteiro.
+    private boolean recording = false;
+    private int[] trailIds = new int[0];
+    private byte[] trailTypes = new byte[0];
+    private boolean[] trailInitialized = new boolean[0];
+    private boolean[] trailUnknown = new boolean[0];
+    private double[] trailValues = new double[0];
+    private int trailSize = 0;
+
+    // Os valores ficam em pilhas de tipos primitivos, com um int e um double por posição, dos quais só o do tipo
+    // indicado em typeStack vale. O percurso em si não produz valores, então nada é alocado por nó da expressão.
+    private DataType[] typeStack = new DataType[16];
+    private int[] intStack = new int[16];
+    private double[] doubleStack = new double[16];
+    // valores que dependem de uma variável cuja declaração teve erro
+    private boolean[] unknownStack = new boolean[16];
+    private int depth = 0;
+
+    private final ExpressionWalker<Void, SemanticAnalyzerException> evaluator = new ExpressionWalker<>() {
         @Override
-        public DataType dataType() {
-            return DataType.DOUBLE;
+        protected Void leaf(ExpressionNode leaf) throws SemanticAnalyzerException {
+            switch (leaf) {
+                case IntNode in -> pushInt(in.value());
+                case DoubleNode db -> pushDouble(db.value());
+                case IdentifierNode id -> readIdentifier(id);
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            }
+            return null;
         }
-    }
-    private record IntegerValue(Integer value) implements ExpressionValue {
 
         @Override
-        public DataType dataType() {
-            return DataType.INT;
+        protected void enterAssignment(AssignmentNode assignmentNode) throws SemanticAnalyzerException {
+            declaredSlot(assignmentNode.identifier());
         }
-    }
-    private sealed interface ExpressionValue permits DoubleValue, IntegerValue {
-        Number value();
-        DataType dataType();
+
+        @Override
+        protected Void assignment(AssignmentNode assignmentNode, Void value) throws SemanticAnalyzerException {
+            evaluateAssignment(assignmentNode);
+            return null;
+        }
+
+        @Override
+        protected Void binary(BinaryExpressionNode binaryExpressionNode, Void left, Void right)
+                throws SemanticAnalyzerException {
+            evaluateBinaryExpression(binaryExpressionNode.op());
+            return null;
+        }
+    };
+
+    public SemanticAnalyzer() {
+        this(new Symbols());
     }
 
-    private final Map<String, Variable> symbolTable = new HashMap<>();
+    // a mesma tabela usada pelo parser, para que os identificadores já cheguem resolvidos
+    public SemanticAnalyzer(Symbols symbols) {
+        this.symbols = symbols;
+    }
 
     public void analyze(ProgramNode programNode) throws SemanticAnalyzerException {
         for (StatementNode statement : programNode.statements()) {
@@ -39,7 +85,38 @@ public class SemanticAnalyzer {
         }
     }
 
+    // as instruções da representação compacta são convertidas em records uma de cada vez
+    public void analyze(FlatProgram flatProgram) throws SemanticAnalyzerException {
+        for (StatementNode statement : flatProgram.statements()) {
+            visitStatement(statement);
+        }
+    }
+
+    public void analyze(StatementNode statement) throws SemanticAnalyzerException {
+        visitStatement(statement);
+    }
+
+    // ponto da análise ao qual rollback() pode voltar, desfazendo o efeito das instruções analisadas depois dele
+    public int checkpoint() {
+        recording = true;
+        return trailSize;
+    }
+
+    // o registro é desfeito do fim para o começo, então cada variável volta ao estado que tinha no ponto dado
+    public void rollback(int checkpoint) {
+        while (trailSize > checkpoint) {
+            trailSize--;
+            int id = trailIds[trailSize];
+            types[id] = trailTypes[trailSize];
+            initialized[id] = trailInitialized[trailSize];
+            unknown[id] = trailUnknown[trailSize];
+            values[id] = trailValues[trailSize];
+        }
+    }
+
     private void visitStatement(StatementNode statement) throws SemanticAnalyzerException {
+        // uma instrução anterior pode ter parado no meio da avaliação por causa de um erro
+        depth = 0;
         switch (statement) {
             case DeclarationNode declarationNode -> visitDeclaration(declarationNode);
             case ExpressionNode expressionNode -> evaluateExpression(expressionNode);
@@ -50,87 +127,208 @@ public class SemanticAnalyzer {
     private void visitDeclaration(DeclarationNode declarationNode) throws SemanticAnalyzerException {
         String varName = declarationNode.identifier().name();
         DataType type = declarationNode.type();
-        Optional<ExpressionValue> varValue = Optional.empty();
-        if (declarationNode.expression().isPresent()) {
-            varValue = Optional.of(evaluateExpression(declarationNode.expression().get()));
+        boolean hasValue = declarationNode.expression().isPresent();
+        int id = slot(declarationNode.identifier());
+        if (hasValue) {
+            try {
+                evaluateExpression(declarationNode.expression().get());
+            } catch (SemanticAnalyzerException e) {
+                declareUnknown(id, type);
+                throw e;
+            }
         }
 
-        if (symbolTable.containsKey(varName)) {
+        if (types[id] != UNDECLARED) {
             throw new RedeclarationException(varName);
         }
 
-        if (varValue.isPresent() && varValue.get().dataType() != type) {
-            throw new TypeMismatchException(varValue.get().value().toString(), type);
+        if (hasValue && typeStack[0] != type) {
+            declareUnknown(id, type);
+            throw new TypeMismatchException(describe(0), type);
         }
 
-        symbolTable.put(varName, new Variable(type, varValue));
+        save(id);
+        types[id] = (byte) (type.ordinal() + 1);
+        if (hasValue) {
+            store(id, 0);
+        }
     }
 
-    private ExpressionValue readIdentifier(IdentifierNode identifierNode) throws SemanticAnalyzerException {
-        String varName = identifierNode.name();
+    // Depois de um erro na declaração a variável continua declarada, para que a análise das instruções seguintes não
+    // acuse um erro por uso dela. O valor fica desconhecido, e divisões por ele não são acusadas.
+    private void declareUnknown(int id, DataType type) {
+        if (types[id] == UNDECLARED) {
+            save(id);
+            types[id] = (byte) (type.ordinal() + 1);
+            initialized[id] = true;
+            unknown[id] = true;
+        }
+    }
 
-        if (!symbolTable.containsKey(varName)) {
-            throw new UndeclaredIdentifierException(varName);
+    private void readIdentifier(IdentifierNode identifierNode) throws SemanticAnalyzerException {
+        int id = declaredSlot(identifierNode);
+        if (!initialized[id]) {
+            throw new UnitializedIdentifierException(identifierNode.name());
         }
 
-        Variable variable = symbolTable.get(varName);
-        Optional<ExpressionValue> value = variable.value();
-        return value.orElseThrow(() -> new UnitializedIdentifierException(varName));
+        switch (typeOf(id)) {
+            case INT -> pushInt((int) values[id]);
+            case DOUBLE -> pushDouble(values[id]);
+        }
+        unknownStack[depth - 1] = unknown[id];
     }
 
-    private ExpressionValue evaluateExpression(ExpressionNode expression) throws SemanticAnalyzerException {
-        return switch (expression) {
-            case IntNode in -> new IntegerValue(in.value());
-            case DoubleNode db -> new DoubleValue(db.value());
-            case IdentifierNode id -> readIdentifier(id);
-            case BinaryExpressionNode bin -> evaluateBinaryExpression(bin);
-            case AssignmentNode assignmentNode -> evaluateAssignment(assignmentNode);
-        };
+    // guarda na variável o valor que está na posição index da pilha
+    private void store(int id, int index) {
+        save(id);
+        initialized[id] = true;
+        unknown[id] = unknownStack[index];
+        // todo int cabe exatamente em um double
+        values[id] = typeStack[index] == DataType.INT ? intStack[index] : doubleStack[index];
+    }
+
+    // guarda o estado da variável antes de uma alteração
+    private void save(int id) {
+        if (!recording) {
+            return;
+        }
+
+        if (trailSize == trailIds.length) {
+            int capacity = Math.max(64, trailSize * 2);
+            trailIds = Arrays.copyOf(trailIds, capacity);
+            trailTypes = Arrays.copyOf(trailTypes, capacity);
+            trailInitialized = Arrays.copyOf(trailInitialized, capacity);
+            trailUnknown = Arrays.copyOf(trailUnknown, capacity);
+            trailValues = Arrays.copyOf(trailValues, capacity);
+        }
+
+        trailIds[trailSize] = id;
+        trailTypes[trailSize] = types[id];
+        trailInitialized[trailSize] = initialized[id];
+        trailUnknown[trailSize] = unknown[id];
+        trailValues[trailSize] = values[id];
+        trailSize++;
+    }
+
+    private DataType typeOf(int id) {
+        return DATA_TYPES[types[id] - 1];
     }
 
-    private ExpressionValue evaluateAssignment(AssignmentNode assignmentNode) throws SemanticAnalyzerException {
-        String varName = assignmentNode.identifier().name();
-        if (!symbolTable.containsKey(varName)) {
-            throw new UndeclaredIdentifierException(varName);
+    private int declaredSlot(IdentifierNode identifierNode) throws UndeclaredIdentifierException {
+        int id = slot(identifierNode);
+        if (types[id] == UNDECLARED) {
+            throw new UndeclaredIdentifierException(identifierNode.name());
         }
 
-        ExpressionValue expressionValue = evaluateExpression(assignmentNode.expression());
-        Variable variable = symbolTable.get(varName);
-        DataType type = variable.dataType();
+        return id;
+    }
 
-        if (expressionValue.dataType() != type) {
-            throw new TypeMismatchException(expressionValue.value().toString(), type);
+    private int slot(IdentifierNode identifierNode) {
+        int id = symbols.resolve(identifierNode);
+        if (id >= types.length) {
+            int capacity = Math.max(id + 1, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            initialized = Arrays.copyOf(initialized, capacity);
+            unknown = Arrays.copyOf(unknown, capacity);
+            values = Arrays.copyOf(values, capacity);
         }
 
-        symbolTable.put(varName, new Variable(type, Optional.of(expressionValue)));
-        return expressionValue;
+        return id;
     }
 
-    private ExpressionValue evaluateBinaryExpression(BinaryExpressionNode binaryExpressionNode) throws SemanticAnalyzerException {
-        Operator op = binaryExpressionNode.op();
-        ExpressionValue leftOperand = evaluateExpression(binaryExpressionNode.left());
-        ExpressionValue rightOperand = evaluateExpression(binaryExpressionNode.right());
+    // deixa o valor da expressão no fundo da pilha de valores
+    private void evaluateExpression(ExpressionNode expression) throws SemanticAnalyzerException {
+        evaluator.walk(expression);
+    }
+
+    // o valor atribuído continua na pilha, já que também é o valor da expressão
+    private void evaluateAssignment(AssignmentNode assignmentNode) throws SemanticAnalyzerException {
+        int id = slot(assignmentNode.identifier());
+        DataType type = typeOf(id);
+        int top = depth - 1;
 
-        double leftValue = leftOperand.value().doubleValue();
-        double rightValue = rightOperand.value().doubleValue();
+        if (typeStack[top] != type) {
+            save(id);
+            initialized[id] = true;
+            unknown[id] = true;
+            throw new TypeMismatchException(describe(top), type);
+        }
 
-        Double value = switch (op) {
+        store(id, top);
+    }
+
+    // segue as regras do Java: operações entre inteiros continuam inteiras, com overflow circular e divisão truncada,
+    // e basta um dos lados ser real para a operação ser feita em double
+    private void evaluateBinaryExpression(Operator op) throws SemanticAnalyzerException {
+        int right = --depth;
+        int left = depth - 1;
+        boolean rightUnknown = unknownStack[right];
+        unknownStack[left] |= rightUnknown;
+
+        if (typeStack[left] == DataType.INT && typeStack[right] == DataType.INT) {
+            int leftValue = intStack[left];
+            int rightValue = intStack[right];
+            intStack[left] = switch (op) {
+                case PLUS_SIGN -> leftValue + rightValue;
+                case MINUS_SIGN -> leftValue - rightValue;
+                case MULTIPLICATION_SIGN -> leftValue * rightValue;
+                case DIVISION_SIGN -> {
+                    if (rightValue == 0) {
+                        if (rightUnknown) yield 0;
+                        throw new DivisionByZeroException();
+                    }
+                    yield leftValue / rightValue;
+                }
+
+                // nunca acontece
+                case EQUAL_SIGN -> throw new RuntimeException("Operador de atribuição não deve ser avaliado");
+            };
+            return;
+        }
+
+        double leftValue = typeStack[left] == DataType.INT ? intStack[left] : doubleStack[left];
+        double rightValue = typeStack[right] == DataType.INT ? intStack[right] : doubleStack[right];
+        typeStack[left] = DataType.DOUBLE;
+        doubleStack[left] = switch (op) {
             case PLUS_SIGN -> leftValue + rightValue;
             case MINUS_SIGN -> leftValue - rightValue;
             case MULTIPLICATION_SIGN -> leftValue * rightValue;
             case DIVISION_SIGN -> {
-                if (rightValue == 0) throw new DivisionByZeroException();
+                // a linguagem também rejeita divisões reais por zero, em vez de produzir infinito
+                if (rightValue == 0 && !rightUnknown) throw new DivisionByZeroException();
                 yield leftValue / rightValue;
             }
 
             // nunca acontece
             case EQUAL_SIGN -> throw new RuntimeException("Operador de atribuição não deve ser avaliado");
         };
+    }
 
-        if (leftOperand.dataType() == DataType.INT && rightOperand.dataType() == DataType.INT) {
-            return new IntegerValue(value.intValue());
-        } else {
-            return new DoubleValue(value);
+    private void pushInt(int value) {
+        grow();
+        typeStack[depth] = DataType.INT;
+        unknownStack[depth] = false;
+        intStack[depth++] = value;
+    }
+
+    private void pushDouble(double value) {
+        grow();
+        typeStack[depth] = DataType.DOUBLE;
+        unknownStack[depth] = false;
+        doubleStack[depth++] = value;
+    }
+
+    private void grow() {
+        if (depth == typeStack.length) {
+            typeStack = Arrays.copyOf(typeStack, depth * 2);
+            intStack = Arrays.copyOf(intStack, depth * 2);
+            doubleStack = Arrays.copyOf(doubleStack, depth * 2);
+            unknownStack = Arrays.copyOf(unknownStack, depth * 2);
         }
     }
+
+    // texto do valor usado nas mensagens de erro, igual ao que o Java mostraria
+    private String describe(int index) {
+        return typeStack[index] == DataType.INT ? Integer.toString(intStack[index]) : Double.toString(doubleStack[index]);
+    }
 }
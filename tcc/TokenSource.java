@@ -0,0 +1,18 @@
+package tcc;
+
+import tcc.exceptions.InvalidCharacterException;
+import tcc.tokens.Token;
+
+import java.util.Optional;
+
+public interface TokenSource {
+    Optional<Token> peek() throws InvalidCharacterException;
+
+    Optional<Token> next() throws InvalidCharacterException;
+
+    // linha e coluna, a partir de 1, do último token lido da entrada; depois de peek() é a do token espiado, e no fim
+    // da entrada é a posição do fim. Fontes que não sabem a posição devolvem 0.
+    int getLine();
+
+    int getColumn();
+}
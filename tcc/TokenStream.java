@@ -5,14 +5,57 @@ import tcc.tokens.*;
 import java.util.*;
 
 // Analisador léxico
-public class TokenStream {
+public class TokenStream implements TokenSource {
+    // classes de caracteres ASCII, calculadas uma única vez; acima disso só letras Unicode são aceitas
+    private static final int ASCII_LIMIT = 128;
+    private static final byte DIGIT = 1;
+    private static final byte ID_START = 2;
+    private static final byte WHITESPACE = 4;
+    private static final byte[] CHAR_CLASSES = new byte[ASCII_LIMIT];
+    private static final OperatorToken[] OPERATOR_TOKENS = new OperatorToken[ASCII_LIMIT];
+    private static final PuncToken[] PUNC_TOKENS = new PuncToken[ASCII_LIMIT];
+    private static final KeywordToken[] KEYWORD_TOKENS = new KeywordToken[Keyword.values().length];
+    private static final Keyword[][] KEYWORDS_BY_FIRST_CHAR = new Keyword[ASCII_LIMIT][];
+
+    static {
+        for (char ch = 0; ch < ASCII_LIMIT; ch++) {
+            if (ch >= '0' && ch <= '9') CHAR_CLASSES[ch] |= DIGIT;
+            if (Character.isLetter(ch)) CHAR_CLASSES[ch] |= ID_START;
+            if (" \t\r\n".indexOf(ch) >= 0) CHAR_CLASSES[ch] |= WHITESPACE;
+        }
+
+        for (Operator op : Operator.values()) {
+            OPERATOR_TOKENS[op.getValue()] = new OperatorToken(op);
+        }
+
+        for (Punctuation punc : Punctuation.values()) {
+            PUNC_TOKENS[punc.getValue()] = new PuncToken(punc);
+        }
+
+        for (Keyword keyword : Keyword.values()) {
+            KEYWORD_TOKENS[keyword.ordinal()] = new KeywordToken(keyword);
+
+            char first = keyword.getValue().charAt(0);
+            Keyword[] bucket = KEYWORDS_BY_FIRST_CHAR[first];
+            if (bucket == null) {
+                bucket = new Keyword[0];
+            }
+            bucket = Arrays.copyOf(bucket, bucket.length + 1);
+            bucket[bucket.length - 1] = keyword;
+            KEYWORDS_BY_FIRST_CHAR[first] = bucket;
+        }
+    }
+
     private final InputStream inputStream;
     private Optional<Optional<Token>> current = Optional.empty();
+    private int tokenLine = 1;
+    private int tokenColumn = 1;
 
     public TokenStream(InputStream inputStream) {
         this.inputStream = inputStream;
     }
 
+    @Override
     public Optional<Token> peek() throws InvalidCharacterException {
         if (current.isEmpty()) {
             current = Optional.ofNullable(readNext());
@@ -21,6 +64,7 @@ public class TokenStream {
         return current.get();
     }
 
+    @Override
     public Optional<Token> next() throws InvalidCharacterException {
         Optional<Token> token;
 
@@ -34,140 +78,158 @@ public class TokenStream {
         return token;
     }
 
-    private boolean isKeyword(String word) {
-        for (Keyword keyword : Keyword.values()) {
-            if (Objects.equals(keyword.getValue(), word)) {
-                return true;
-            }
+    @Override
+    public int getLine() {
+        return tokenLine;
+    }
+
+    @Override
+    public int getColumn() {
+        return tokenColumn;
+    }
+
+    private boolean hasClass(char ch, byte mask) {
+        if (ch < ASCII_LIMIT) {
+            return (CHAR_CLASSES[ch] & mask) != 0;
         }
 
-        return false;
+        return (mask & ID_START) != 0 && Character.isLetter(ch);
     }
 
-    private boolean isDigit(char ch) {
-        return "0123456789".indexOf(ch) >= 0;
+    private void skipClass(byte mask) {
+        int ch = inputStream.peek();
+        while (ch != InputStream.EOF && hasClass((char) ch, mask)) {
+            inputStream.next();
+            ch = inputStream.peek();
+        }
     }
 
-    private boolean isIdStart(char ch) {
-        return Character.isLetter(ch);
+    private boolean isDigit(char ch) {
+        return hasClass(ch, DIGIT);
     }
 
-    private boolean isId(char ch) {
-        return isIdStart(ch) || isDigit(ch);
+    private boolean isIdStart(char ch) {
+        return hasClass(ch, ID_START);
     }
 
     private boolean isOpChar(char ch) {
-        for (Operator op : Operator.values()) {
-            if (op.getValue() == ch) {
-                return true;
-            }
-        }
-
-        return false;
+        return ch < ASCII_LIMIT && OPERATOR_TOKENS[ch] != null;
     }
 
     private boolean isPunc(char ch) {
-        for (Punctuation punc : Punctuation.values()) {
-            if (punc.getValue() == ch) {
-                return true;
-            }
+        return ch < ASCII_LIMIT && PUNC_TOKENS[ch] != null;
+    }
+
+    private Token readNumber() {
+        int start = inputStream.getPosition();
+        skipClass(DIGIT);
+        if (inputStream.peek() != ',') {
+            return new IntToken(inputStream.parseInt(start, inputStream.getPosition()));
         }
 
-        return false;
-    }
+        inputStream.next();
+        skipClass(DIGIT);
+        String number = inputStream.slice(start, inputStream.getPosition());
 
-    private boolean isWhitespace(char ch) {
-        return " \t\r\n".indexOf(ch) >= 0;
+        // replace comma with dot
+        return new DoubleToken(Double.parseDouble(number.replace(',', '.')));
     }
 
-    private Token readNumber(char ch) {
-        boolean hasComma = false;
-        StringBuilder number = new StringBuilder();
-
-        while (!inputStream.eof()) {
-            if (ch == ',') {
-                if (hasComma) break;
-                hasComma = true;
-            }
-            if (isDigit(ch) || ch == ',') {
-                number.append(ch);
-            } else {
-                break;
-            }
-            inputStream.next();
-            Optional<Character> optCh = inputStream.peek();
-            if (optCh.isEmpty()) break;
-            ch = optCh.get();
-        }
+    private Token readIdent() {
+        int start = inputStream.getPosition();
+        skipClass((byte) (ID_START | DIGIT));
+        int end = inputStream.getPosition();
 
-        if (hasComma) {
-            // replace comma with dot
-            return new DoubleToken(Double.parseDouble(number.toString().replace(",", ".")));
+        KeywordToken keyword = findKeyword(start, end);
+        if (keyword != null) {
+            return keyword;
         }
 
-        return new IntToken(Integer.parseInt(number.toString()));
+        return new IdentifierToken(inputStream.slice(start, end));
     }
 
-    private Token readIdent() {
-        String id = inputStream.readWhile(this::isId);
-        if (isKeyword(id)) {
-            for (Keyword keyword : Keyword.values()) {
-                if (Objects.equals(keyword.getValue(), id)) {
-                    return new KeywordToken(keyword);
-                }
+    private KeywordToken findKeyword(int start, int end) {
+        char first = inputStream.charAt(start);
+        if (first >= ASCII_LIMIT || KEYWORDS_BY_FIRST_CHAR[first] == null) {
+            return null;
+        }
+
+        for (Keyword keyword : KEYWORDS_BY_FIRST_CHAR[first]) {
+            String value = keyword.getValue();
+            if (value.length() == end - start && inputStream.regionMatches(start, value)) {
+                return KEYWORD_TOKENS[keyword.ordinal()];
             }
         }
 
-        return new IdentifierToken(id);
+        return null;
     }
 
     private PuncToken readPunc(char ch) throws InvalidCharacterException {
-        for (Punctuation punc : Punctuation.values()) {
-            if (punc.getValue() == ch) {
-                inputStream.next();
-                return new PuncToken(punc);
-            }
+        if (!isPunc(ch)) {
+            throw invalidCharacter(ch);
         }
 
-        throw new InvalidCharacterException(ch, inputStream.getLine());
+        inputStream.next();
+        return PUNC_TOKENS[ch];
     }
 
     private OperatorToken readOperator(char ch) throws InvalidCharacterException {
-        for (Operator op: Operator.values()) {
-            if (op.getValue() == ch) {
-                inputStream.next();
-                return new OperatorToken(op);
-            }
+        if (!isOpChar(ch)) {
+            throw invalidCharacter(ch);
         }
 
-        throw new InvalidCharacterException(ch, inputStream.getLine());
-    }
-
-    private void skipComment() {
-        inputStream.readWhile(ch -> ch != '\n');
+        inputStream.next();
+        return OPERATOR_TOKENS[ch];
     }
 
     private boolean isComment(char ch) {
         return ch == '#';
     }
 
-    private Optional<Token> readComment() throws InvalidCharacterException {
-        skipComment();
-        return readNext();
+    // Pula espaços e comentários até o próximo token e devolve o primeiro caractere dele. A marca acompanha cada
+    // caractere pulado, então nada disso fica na janela, nem um bloco de comentários de vários MB.
+    private int skipIgnored() {
+        boolean inComment = false;
+        while (true) {
+            inputStream.mark();
+            int ch = inputStream.peek();
+            if (ch == InputStream.EOF) {
+                return ch;
+            }
+
+            if (inComment) {
+                inComment = ch != '\n';
+            } else if (isComment((char) ch)) {
+                inComment = true;
+            } else if (!hasClass((char) ch, WHITESPACE)) {
+                // a marca já está no início do token
+                return ch;
+            }
+            inputStream.next();
+        }
     }
 
     private Optional<Token> readNext() throws InvalidCharacterException {
-        inputStream.readWhile(this::isWhitespace);
-        Optional<Character> och = inputStream.peek();
-        if (och.isEmpty()) return Optional.empty();
-        char ch = och.get();
-        if (isComment(ch)) return readComment();
+        int next = skipIgnored();
+
+        tokenLine = inputStream.getLine();
+        tokenColumn = inputStream.getColumn() + 1;
+
+        if (next == InputStream.EOF) return Optional.empty();
+        char ch = (char) next;
         if (isIdStart(ch)) return Optional.of(readIdent());
 
         if (isPunc(ch)) return Optional.of(readPunc(ch));
-        if (isDigit(ch)) return Optional.of(readNumber(ch));
+        if (isDigit(ch)) return Optional.of(readNumber());
         if (isOpChar(ch)) return Optional.of(readOperator(ch));
 
-        throw new InvalidCharacterException(ch, inputStream.getLine());
+        throw invalidCharacter(ch);
+    }
+
+    // o caractere é consumido, para que a leitura possa continuar depois do erro
+    private InvalidCharacterException invalidCharacter(char ch) {
+        InvalidCharacterException exception = new InvalidCharacterException(ch, inputStream.getLine());
+        inputStream.next();
+        return exception;
     }
 }
@@ -0,0 +1,34 @@
+package tcc.benchmarks;
+
+import tcc.InputStream;
+import tcc.Parser;
+import tcc.SemanticAnalyzer;
+import tcc.TokenStream;
+import tcc.nodes.ProgramNode;
+import tcc.nodes.Symbols;
+
+// Mede só a análise semântica de um programa já lido, com metade das instruções declarando uma variável nova
+public class AnalyzerBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Parser parser = new Parser(new TokenStream(new InputStream(ProgramGenerator.generate(statements))));
+        ProgramNode programNode = parser.parseTopLevel();
+        Symbols symbols = parser.getSymbols();
+        System.out.printf("%d instruções, %d variáveis%n", statements, symbols.size());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            new SemanticAnalyzer(symbols).analyze(programNode);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            new SemanticAnalyzer(symbols).analyze(programNode);
+        }
+        double milliseconds = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        System.out.printf("análise semântica: %.0f ms (%.0f ns por instrução)%n", milliseconds, milliseconds * 1e6 / statements);
+    }
+}
@@ -0,0 +1,57 @@
+package tcc.benchmarks;
+
+import tcc.InputStream;
+import tcc.JavaGenerator;
+import tcc.Parser;
+import tcc.SemanticAnalyzer;
+import tcc.TokenStream;
+import tcc.nodes.FlatProgram;
+import tcc.nodes.ProgramNode;
+
+import java.io.Writer;
+
+// Compara a memória ocupada pela árvore de records com a da representação compacta, depois de o programa inteiro ser
+// lido, e o tempo de análise e geração sobre cada uma. Rode com um heap fixo (-Xms igual a -Xmx) para medidas estáveis.
+public class AstMemoryBenchmark {
+    private static final int GC_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String program = ProgramGenerator.generate(statements);
+        System.out.printf("entrada: %.1f MB, %d instruções%n", program.length() / (1024.0 * 1024.0), statements);
+
+        long baseline = usedMemory();
+        Parser parser = new Parser(new TokenStream(new InputStream(program)));
+        ProgramNode programNode = parser.parseTopLevel();
+        long treeBytes = usedMemory() - baseline;
+        long start = System.nanoTime();
+        new SemanticAnalyzer(parser.getSymbols()).analyze(programNode);
+        new JavaGenerator().generate(programNode, "Main", Writer.nullWriter());
+        double treeMilliseconds = (System.nanoTime() - start) / 1e6;
+        programNode = null;
+        parser = null;
+
+        baseline = usedMemory();
+        FlatProgram flatProgram = new Parser(new TokenStream(new InputStream(program))).parseFlat();
+        long flatBytes = usedMemory() - baseline;
+        start = System.nanoTime();
+        new SemanticAnalyzer(flatProgram.getSymbols()).analyze(flatProgram);
+        new JavaGenerator().generate(flatProgram, "Main", Writer.nullWriter());
+        double flatMilliseconds = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("records: %.1f MB, %.1f bytes por instrução, análise e geração em %.0f ms%n",
+            treeBytes / (1024.0 * 1024.0), (double) treeBytes / statements, treeMilliseconds);
+        System.out.printf("compacta: %.1f MB, %.1f bytes por instrução, análise e geração em %.0f ms (%d nós, %d nomes)%n",
+            flatBytes / (1024.0 * 1024.0), (double) flatBytes / statements, flatMilliseconds,
+            flatProgram.nodeCount(), flatProgram.getSymbols().size());
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,67 @@
+package tcc.benchmarks;
+
+import tcc.BytecodeGenerator;
+import tcc.InputStream;
+import tcc.JavaGenerator;
+import tcc.Parser;
+import tcc.SemanticAnalyzer;
+import tcc.TokenStream;
+import tcc.nodes.ProgramNode;
+import tcc.optimizer.Optimizer;
+
+import java.io.Writer;
+import java.util.function.IntFunction;
+
+// Mede cada etapa da compilação de expressões muito longas ou muito aninhadas, com a pilha padrão da thread. O código
+// sem otimização não cabe no limite de 64 KB de um método, então o bytecode só é gerado depois de -O.
+public class ExpressionBenchmark {
+    private static final int WARMUP_ITERATIONS = 1;
+    private static final int ITERATIONS = 3;
+
+    private interface Stage {
+        Object run(Object input) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int terms = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        measure("expressão longa", terms, ProgramGenerator::generateLongExpression);
+        measure("expressão aninhada", terms, ProgramGenerator::generateNestedExpression);
+        measure("cadeia de atribuições", terms, ProgramGenerator::generateAssignmentChain);
+    }
+
+    private static void measure(String name, int terms, IntFunction<String> generator) throws Exception {
+        String program = generator.apply(terms);
+        System.out.printf("%s: %d termos, %.1f MB%n", name, terms, program.length() / (1024.0 * 1024.0));
+
+        ProgramNode programNode = (ProgramNode) stage("análise sintática", program,
+            input -> new Parser(new TokenStream(new InputStream((String) input))).parseTopLevel());
+        stage("análise semântica", programNode, input -> {
+            new SemanticAnalyzer().analyze((ProgramNode) input);
+            return null;
+        });
+        stage("geração de Java", programNode, input -> {
+            new JavaGenerator().generate((ProgramNode) input, "Main", Writer.nullWriter());
+            return null;
+        });
+        ProgramNode optimized = (ProgramNode) stage("otimização", programNode,
+            input -> new Optimizer().optimize((ProgramNode) input));
+        stage("geração de bytecode", optimized, input -> BytecodeGenerator.generate((ProgramNode) input, "Main"));
+    }
+
+    private static Object stage(String name, Object input, Stage stage) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            stage.run(input);
+        }
+
+        Object result = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            result = stage.run(input);
+        }
+        double milliseconds = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        System.out.printf("  %s: %.0f ms%n", name, milliseconds);
+        return result;
+    }
+}
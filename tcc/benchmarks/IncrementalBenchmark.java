@@ -0,0 +1,64 @@
+package tcc.benchmarks;
+
+import tcc.IncrementalCompiler;
+
+import java.util.Arrays;
+
+// Mede a latência de cada edição em um arquivo grande, como um editor faria a cada tecla: a edição em si e a busca dos
+// erros. Para comparação, também mede a compilação do texto inteiro.
+public class IncrementalBenchmark {
+    private static final int WARMUP_EDITS = 200;
+    private static final int EDITS = 100;
+
+    private interface Edit {
+        void apply(IncrementalCompiler compiler, int iteration);
+    }
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String program = ProgramGenerator.generate(statements);
+        System.out.printf("%d linhas, %.1f MB%n", program.lines().count(), program.length() / (1024.0 * 1024.0));
+
+        long start = System.nanoTime();
+        IncrementalCompiler compiler = new IncrementalCompiler(program);
+        compiler.getDiagnostics();
+        System.out.printf("compilação inicial: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        int beginning = program.indexOf("inteiro valor0 = ") + "inteiro valor0 = ".length();
+        int middle = program.indexOf("inteiro valor" + statements / 2 + " = ") + ("inteiro valor" + statements / 2 + " = ").length();
+        int end = program.lastIndexOf("média = média") + "média = média".length();
+        int comment = program.indexOf("# atualiza a média") + 1;
+
+        measure("dígito trocado no começo", compiler, (c, i) -> c.edit(beginning, 1, String.valueOf(i % 10)));
+        measure("dígito trocado no meio", compiler, (c, i) -> c.edit(middle, 1, String.valueOf(i % 10)));
+        measure("soma acrescentada no fim", compiler, (c, i) -> c.edit(end, i % 2 == 0 ? 0 : 4, i % 2 == 0 ? " + 1" : ""));
+        measure("letra no comentário", compiler, (c, i) -> c.edit(comment, 0, "x"));
+        measure("instrução nova no meio", compiler, (c, i) -> c.edit(middle - "inteiro valor".length() - 1, 0, "imprimir(contador)!\n"));
+
+        start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            new IncrementalCompiler(compiler.getText()).getDiagnostics();
+        }
+        System.out.printf("compilação do texto inteiro: %.1f ms%n", (System.nanoTime() - start) / 1e6 / 5);
+    }
+
+    private static void measure(String name, IncrementalCompiler compiler, Edit edit) {
+        for (int i = 0; i < WARMUP_EDITS; i++) {
+            edit.apply(compiler, i);
+            compiler.getDiagnostics();
+        }
+
+        double[] latencies = new double[EDITS];
+        for (int i = 0; i < EDITS; i++) {
+            long start = System.nanoTime();
+            edit.apply(compiler, i);
+            compiler.getDiagnostics();
+            latencies[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%s: mediana %.2f ms, p99 %.2f ms (%d instruções lidas, %d analisadas)%n", name,
+            latencies[EDITS / 2], latencies[EDITS * 99 / 100], compiler.getReparsedStatements(),
+            compiler.getReanalyzedStatements());
+    }
+}
@@ -0,0 +1,135 @@
+package tcc.benchmarks;
+
+import tcc.Backend;
+import tcc.Compiler;
+import tcc.Diagnostics;
+import tcc.GeneratorOptions;
+import tcc.InputStream;
+import tcc.Parser;
+import tcc.SemanticAnalyzer;
+import tcc.TokenStream;
+import tcc.nodes.ProgramNode;
+import tcc.vm.VirtualMachine;
+import tcc.vm.VmGenerator;
+import tcc.vm.VmProgram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+// Compara o interpretador com a execução pelo código gerado, em um programa pequeno e em um grande. Dentro da JVM mede
+// do texto do programa até o fim da execução; em processos separados mede o caminho completo de quem só quer rodar um
+// script: gerar o .java, chamar o javac e iniciar outra JVM, contra uma só chamada do compilador com --interpret e contra
+// a máquina virtual executando um .cafeb já compilado.
+public class InterpreterBenchmark {
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 20;
+    private static final int PROCESS_ROUNDS = 3;
+
+    private interface Execution {
+        void run(String program) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int small = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        // o main gerado pelo backend bytecode precisa caber no limite de 64 KB de bytecode de um método
+        int large = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        for (int statements : new int[]{small, large}) {
+            String program = ProgramGenerator.generate(statements);
+            System.out.printf("%d instruções:%n", statements);
+            measure("  interpretador", program, InterpreterBenchmark::interpret);
+            measure("  java, compilado em memória", program, p -> run(p, Backend.JAVA));
+            measure("  bytecode, carregado em memória", program, p -> run(p, Backend.BYTECODE));
+            measure("  máquina virtual", program, p -> run(p, Backend.VM));
+            VmProgram compiled = VmGenerator.generate(parse(program));
+            measure("  máquina virtual, só a execução", program, p -> VirtualMachine.run(compiled, Writer.nullWriter()));
+            measureProcesses(program);
+        }
+    }
+
+    private static void interpret(String program) throws Exception {
+        Compiler.interpret(new InputStream(program), Writer.nullWriter(), GeneratorOptions.DEFAULT,
+            Diagnostics.DEFAULT_MAX_ERRORS);
+    }
+
+    private static ProgramNode parse(String program) throws Exception {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(program))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        return programNode;
+    }
+
+    private static void run(String program, Backend backend) throws Exception {
+        PrintStream originalOut = System.out;
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            Compiler.run(new InputStream(program), "Main", new GeneratorOptions(backend, false), new String[0]);
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+
+    private static void measure(String name, String program, Execution execution) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            execution.run(program);
+        }
+
+        double[] times = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            execution.run(program);
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+
+        System.out.printf("%s: mediana %.2f ms%n", name, times[ROUNDS / 2]);
+    }
+
+    private static void measureProcesses(String program) throws Exception {
+        Path directory = Files.createTempDirectory("cafe");
+        Path source = directory.resolve("programa.cafe");
+        Files.writeString(source, program);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String javac = Path.of(System.getProperty("java.home"), "bin", "javac").toString();
+        String classPath = System.getProperty("java.class.path");
+
+        Path compiled = directory.resolve("Programa" + VmProgram.EXTENSION);
+        execute(directory, java, "-cp", classPath, "tcc.Compiler", "--backend", "vm", source.toString());
+
+        double generated = 0;
+        double interpreted = 0;
+        double virtualMachine = 0;
+        for (int i = 0; i < PROCESS_ROUNDS; i++) {
+            long start = System.nanoTime();
+            execute(directory, java, "-cp", classPath, "tcc.Compiler", source.toString());
+            execute(directory, javac, "-d", directory.toString(), directory.resolve("Programa.java").toString());
+            execute(directory, java, "-cp", directory.toString(), "Programa");
+            generated += (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            execute(directory, java, "-cp", classPath, "tcc.Compiler", "--interpret", source.toString());
+            interpreted += (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            execute(directory, java, "-cp", classPath, "tcc.vm.VirtualMachine", compiled.toString());
+            virtualMachine += (System.nanoTime() - start) / 1e6;
+        }
+
+        System.out.printf("  processos, compilador + javac + java: %.0f ms%n", generated / PROCESS_ROUNDS);
+        System.out.printf("  processo, compilador --interpret: %.0f ms%n", interpreted / PROCESS_ROUNDS);
+        System.out.printf("  processo, máquina virtual com o .cafeb: %.0f ms%n", virtualMachine / PROCESS_ROUNDS);
+    }
+
+    private static void execute(Path directory, String... command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(List.of(command)).directory(directory.toFile())
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Falha ao executar " + command[0]);
+        }
+    }
+}
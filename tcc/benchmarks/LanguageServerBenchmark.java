@@ -0,0 +1,170 @@
+package tcc.benchmarks;
+
+import tcc.lsp.Json;
+import tcc.lsp.LanguageServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Mede a latência do servidor da linguagem com um arquivo grande enquanto se digita no começo dele, onde cada edição
+// obriga a analisar o arquivo inteiro de novo: o tempo de resposta de um hover pedido logo depois de uma tecla, com a
+// análise em andamento, e o tempo entre a última tecla e a publicação dos erros.
+public class LanguageServerBenchmark {
+    private static final String URI = "file:///benchmark.cafe";
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 50;
+    // meta de resposta de um pedido, com qualquer tamanho de arquivo
+    private static final double TARGET_MILLIS = 20;
+
+    private static final BlockingQueue<Map<?, ?>> responses = new LinkedBlockingQueue<>();
+    private static OutputStream toServer;
+    private static int nextId = 0;
+
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String program = ProgramGenerator.generate(statements);
+
+        toServer = new PipedOutputStream();
+        PipedInputStream serverInput = new PipedInputStream((PipedOutputStream) toServer, 1 << 20);
+        PipedOutputStream serverOutput = new PipedOutputStream();
+        PipedInputStream clientInput = new PipedInputStream(serverOutput, 1 << 20);
+        Thread.ofPlatform().daemon().start(() -> {
+            try {
+                new LanguageServer(serverInput, serverOutput).run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.ofPlatform().daemon().start(() -> readMessages(clientInput));
+
+        request("initialize", Map.of("capabilities", Map.of()));
+        long start = System.nanoTime();
+        send(message("textDocument/didOpen", Map.of("textDocument",
+            Map.of("uri", URI, "languageId", "cafe", "version", 1, "text", program))));
+        waitForDiagnostics();
+        System.out.printf("%d linhas abertas e analisadas em %.0f ms%n", program.lines().count(),
+            (System.nanoTime() - start) / 1e6);
+
+        // o hover é sobre um uso de contador no fim do arquivo, cuja declaração está no começo
+        int lastLine = (int) program.lines().count() - 2;
+        int version = 1;
+        double[] hovers = new double[ROUNDS];
+        double[] diagnostics = new double[ROUNDS];
+        for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+            String digit = String.valueOf(Math.floorMod(round, 10));
+            send(message("textDocument/didChange", Map.of(
+                "textDocument", Map.of("uri", URI, "version", ++version),
+                "contentChanges", List.of(Map.of("range", range(1, 18, 1, 19), "text", digit))
+            )));
+            long typed = System.nanoTime();
+            Thread.sleep(LanguageServer.DEBOUNCE_MILLIS + 5);
+
+            long asked = System.nanoTime();
+            request("textDocument/hover", Map.of("textDocument", Map.of("uri", URI),
+                "position", Map.of("line", lastLine, "character", 20)));
+            double hover = (System.nanoTime() - asked) / 1e6;
+            waitForDiagnostics();
+            if (round >= 0) {
+                hovers[round] = hover;
+                diagnostics[round] = (System.nanoTime() - typed) / 1e6;
+            }
+        }
+
+        report("hover durante a análise", hovers);
+        System.out.printf("  meta de %.0f ms %s%n", TARGET_MILLIS,
+            hovers[ROUNDS * 99 / 100] <= TARGET_MILLIS ? "atingida" : "NÃO atingida");
+        report("tecla até os erros publicados", diagnostics);
+    }
+
+    private static void report(String name, double[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s: mediana %.2f ms, p99 %.2f ms%n", name, latencies[latencies.length / 2],
+            latencies[latencies.length * 99 / 100]);
+    }
+
+    private static Map<String, Object> range(int startLine, int startCharacter, int endLine, int endCharacter) {
+        return Map.of("start", Map.of("line", startLine, "character", startCharacter),
+            "end", Map.of("line", endLine, "character", endCharacter));
+    }
+
+    private static void request(String method, Object params) throws IOException, InterruptedException {
+        Map<String, Object> message = message(method, params);
+        int id = nextId++;
+        message.put("id", id);
+        send(message);
+
+        Map<?, ?> response;
+        do {
+            response = next();
+        } while (!Long.valueOf(id).equals(response.get("id")));
+    }
+
+    private static void waitForDiagnostics() throws InterruptedException {
+        while (!"textDocument/publishDiagnostics".equals(next().get("method"))) {
+            // respostas que chegaram antes
+        }
+    }
+
+    private static Map<?, ?> next() throws InterruptedException {
+        Map<?, ?> message = responses.poll(60, TimeUnit.SECONDS);
+        if (message == null) {
+            throw new IllegalStateException("o servidor não respondeu");
+        }
+        return message;
+    }
+
+    private static Map<String, Object> message(String method, Object params) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("jsonrpc", "2.0");
+        message.put("method", method);
+        message.put("params", params);
+        return message;
+    }
+
+    private static void send(Map<String, Object> message) throws IOException {
+        byte[] body = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        toServer.write(("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        toServer.write(body);
+        toServer.flush();
+    }
+
+    private static void readMessages(InputStream input) {
+        try {
+            while (true) {
+                int length = -1;
+                StringBuilder header = new StringBuilder();
+                int b;
+                while ((b = input.read()) != -1) {
+                    if (b == '\n') {
+                        String line = header.toString().trim();
+                        header.setLength(0);
+                        if (line.isEmpty()) {
+                            break;
+                        }
+                        length = Integer.parseInt(line.substring("Content-Length:".length()).trim());
+                    } else {
+                        header.append((char) b);
+                    }
+                }
+                if (b == -1) {
+                    return;
+                }
+
+                responses.add((Map<?, ?>) Json.parse(new String(input.readNBytes(length), StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            // o servidor terminou
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package tcc.benchmarks;
+
+import tcc.InputStream;
+import tcc.TokenStream;
+import tcc.exceptions.InvalidCharacterException;
+
+// Mede a vazão do analisador léxico sobre um programa grande gerado
+public class LexerBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws InvalidCharacterException {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        boolean keywordHeavy = args.length > 1 && args[1].equals("reservadas");
+        String program = keywordHeavy
+            ? ProgramGenerator.generateKeywordHeavy(statements)
+            : ProgramGenerator.generate(statements);
+        double megabytes = program.length() / (1024.0 * 1024.0);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            lex(program);
+        }
+
+        long tokens = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            tokens += lex(program);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("entrada: %.1f MB, %d instruções%s%n", megabytes, statements,
+            keywordHeavy ? " (palavras reservadas)" : "");
+        System.out.printf("%.1f MB/s, %.1f milhões de tokens/s%n",
+            megabytes * ITERATIONS / seconds, tokens / seconds / 1e6);
+    }
+
+    private static long lex(String program) throws InvalidCharacterException {
+        TokenStream tokenStream = new TokenStream(new InputStream(program));
+        long tokens = 0;
+        while (tokenStream.next().isPresent()) {
+            tokens++;
+        }
+
+        return tokens;
+    }
+}
@@ -0,0 +1,49 @@
+package tcc.benchmarks;
+
+import tcc.Compiler;
+import tcc.CompilerPipeline;
+import tcc.InputStream;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+// Compara a compilação sequencial com a compilação em etapas paralelas
+public class PipelineBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+
+    private interface Compilation {
+        void compile(InputStream inputStream, String className, Writer output) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        String program = ProgramGenerator.generate(statements);
+
+        StringWriter sequentialOutput = new StringWriter();
+        StringWriter pipelinedOutput = new StringWriter();
+        Compiler.compile(new InputStream(program), "Main", sequentialOutput);
+        CompilerPipeline.compile(new InputStream(program), "Main", pipelinedOutput);
+        if (!sequentialOutput.toString().equals(pipelinedOutput.toString())) {
+            throw new IllegalStateException("As saídas sequencial e em etapas são diferentes");
+        }
+
+        System.out.printf("entrada: %.1f MB, %d instruções%n", program.length() / (1024.0 * 1024.0), statements);
+        measure("sequencial", program, Compiler::compile);
+        measure("em etapas", program, CompilerPipeline::compile);
+    }
+
+    private static void measure(String name, String program, Compilation compilation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            compilation.compile(new InputStream(program), "Main", Writer.nullWriter());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            compilation.compile(new InputStream(program), "Main", Writer.nullWriter());
+        }
+        double milliseconds = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+        System.out.printf("%s: %.0f ms por compilação%n", name, milliseconds);
+    }
+}
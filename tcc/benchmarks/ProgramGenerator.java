@@ -0,0 +1,76 @@
+package tcc.benchmarks;
+
+// Gera programas Café sintéticos para os benchmarks
+public class ProgramGenerator {
+    private ProgramGenerator() {}
+
+    public static String generate(int statements) {
+        StringBuilder program = new StringBuilder();
+        program.append("# programa gerado com ").append(statements).append(" instruções\n");
+        program.append("inteiro contador = 0!\n");
+        program.append("real média = 0,0!\n");
+
+        for (int i = 0; i < statements; i++) {
+            switch (i % 4) {
+                case 0 -> program.append("inteiro valor").append(i).append(" = ").append(i % 1000).append(" * 3 + contador!\n");
+                case 1 -> program.append("real peso").append(i).append(" = ").append(i % 100).append(",25 / 2,0!\n");
+                case 2 -> program.append("contador = (contador + ").append(i % 7).append(") - 1!\n");
+                default -> program.append("média = média + (contador * 2) / 4,0! # atualiza a média\n");
+            }
+        }
+        program.append("imprimir(média)!\n");
+
+        return program.toString();
+    }
+
+    // programa dominado por palavras reservadas, operadores e pontuação
+    public static String generateKeywordHeavy(int statements) {
+        StringBuilder program = new StringBuilder();
+        program.append("inteiro a = 1!\n");
+
+        for (int i = 0; i < statements; i++) {
+            switch (i % 3) {
+                case 0 -> program.append("inteiro i").append(i).append(" = a!\n");
+                case 1 -> program.append("real r").append(i).append("!\n");
+                default -> program.append("imprimir((a + a) * (a - a) / a)!\n");
+            }
+        }
+
+        return program.toString();
+    }
+
+    // uma só expressão com os termos encadeados da esquerda para a direita: a + a - a + ...
+    public static String generateLongExpression(int terms) {
+        StringBuilder program = new StringBuilder(terms * 4 + 64);
+        program.append("inteiro a = 1!\n");
+        program.append("imprimir(a");
+        for (int i = 1; i < terms; i++) {
+            program.append(i % 2 == 0 ? " - a" : " + a");
+        }
+        program.append(")!\n");
+
+        return program.toString();
+    }
+
+    // uma expressão com um nível de parênteses por termo: (1 + (1 + (1 + ...)))
+    public static String generateNestedExpression(int depth) {
+        StringBuilder program = new StringBuilder(depth * 6 + 64);
+        program.append("imprimir(");
+        program.append("(1 + ".repeat(depth));
+        program.append('1');
+        program.append(")".repeat(depth));
+        program.append(")!\n");
+
+        return program.toString();
+    }
+
+    // uma cadeia de atribuições, associativas à direita: a = a = a = ... = 1
+    public static String generateAssignmentChain(int length) {
+        StringBuilder program = new StringBuilder(length * 4 + 64);
+        program.append("inteiro a!\n");
+        program.append("a = ".repeat(length));
+        program.append("1!\nimprimir(a)!\n");
+
+        return program.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package tcc.exceptions;
+
+import tcc.Diagnostic;
+
+import java.util.List;
+
+// Lançada ao fim de uma compilação que encontrou erros, com todos eles
+public class CompilationException extends Exception {
+    private final List<Diagnostic> diagnostics;
+    private final boolean truncated;
+
+    public CompilationException(List<Diagnostic> diagnostics, boolean truncated) {
+        super(diagnostics.size() == 1 ? diagnostics.get(0).toString() : diagnostics.size() + " erros");
+        this.diagnostics = List.copyOf(diagnostics);
+        this.truncated = truncated;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    // se a compilação parou ao atingir o limite de erros
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
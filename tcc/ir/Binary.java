@@ -0,0 +1,18 @@
+package tcc.ir;
+
+import tcc.DataType;
+import tcc.Operator;
+
+import java.util.function.IntUnaryOperator;
+
+public record Binary(int result, DataType type, Operator op, int left, int right) implements Instruction {
+    @Override
+    public int[] operands() {
+        return new int[]{left, right};
+    }
+
+    @Override
+    public Instruction mapOperands(IntUnaryOperator map) {
+        return new Binary(result, type, op, map.applyAsInt(left), map.applyAsInt(right));
+    }
+}
@@ -0,0 +1,79 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.List;
+
+// Calcula durante a compilação as operações cujos operandos são constantes, seguindo as regras de int e double do Java,
+// e troca a instrução por uma constante. Em SSA o valor de uma versão nunca muda, então a constante vale para todos os
+// usos dela, inclusive os que vêm depois de outras atribuições à mesma variável.
+public class ConstantPropagation implements Pass {
+    @Override
+    public String name() {
+        return "propagação de constantes";
+    }
+
+    @Override
+    public int run(IrProgram program) {
+        int count = program.valueCount();
+        boolean[] known = new boolean[count];
+        int[] ints = new int[count];
+        double[] doubles = new double[count];
+
+        List<Instruction> instructions = program.instructions();
+        int changes = 0;
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instruction = instructions.get(i);
+            Instruction folded = switch (instruction) {
+                case Binary binary when known[binary.left()] && known[binary.right()] -> binary.type() == DataType.INT
+                    ? foldInt(binary, ints[binary.left()], ints[binary.right()])
+                    : new DoubleConstant(binary.result(), foldDouble(binary, doubles[binary.left()], doubles[binary.right()]));
+                case Widen widen when known[widen.source()] -> new DoubleConstant(widen.result(), ints[widen.source()]);
+                case Copy copy when known[copy.source()] -> copy.type() == DataType.INT
+                    ? new IntConstant(copy.result(), ints[copy.source()])
+                    : new DoubleConstant(copy.result(), doubles[copy.source()]);
+                default -> instruction;
+            };
+
+            if (folded != instruction) {
+                instructions.set(i, folded);
+                changes++;
+            }
+
+            switch (folded) {
+                case IntConstant constant -> {
+                    known[constant.result()] = true;
+                    ints[constant.result()] = constant.value();
+                }
+                case DoubleConstant constant -> {
+                    known[constant.result()] = true;
+                    doubles[constant.result()] = constant.value();
+                }
+                default -> {}
+            }
+        }
+
+        return changes;
+    }
+
+    // a divisão inteira por zero fica para a execução, onde lança ArithmeticException
+    private static Instruction foldInt(Binary binary, int left, int right) {
+        return switch (binary.op()) {
+            case PLUS_SIGN -> new IntConstant(binary.result(), left + right);
+            case MINUS_SIGN -> new IntConstant(binary.result(), left - right);
+            case MULTIPLICATION_SIGN -> new IntConstant(binary.result(), left * right);
+            case DIVISION_SIGN -> right == 0 ? binary : new IntConstant(binary.result(), left / right);
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não é uma operação");
+        };
+    }
+
+    private static double foldDouble(Binary binary, double left, double right) {
+        return switch (binary.op()) {
+            case PLUS_SIGN -> left + right;
+            case MINUS_SIGN -> left - right;
+            case MULTIPLICATION_SIGN -> left * right;
+            case DIVISION_SIGN -> left / right;
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não é uma operação");
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.function.IntUnaryOperator;
+
+// uma atribuição: o resultado é uma nova versão da variável, com o valor de source
+public record Copy(int result, DataType type, int source) implements Instruction {
+    @Override
+    public int[] operands() {
+        return new int[]{source};
+    }
+
+    @Override
+    public Instruction mapOperands(IntUnaryOperator map) {
+        return new Copy(result, type, map.applyAsInt(source));
+    }
+}
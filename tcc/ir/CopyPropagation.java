@@ -0,0 +1,40 @@
+package tcc.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Remove as cópias, fazendo os usos de uma versão criada por uma atribuição lerem direto o valor atribuído. Se esse
+// valor não tinha nome, ele fica com o nome da variável, para que o código gerado continue usando o nome dela.
+public class CopyPropagation implements Pass {
+    @Override
+    public String name() {
+        return "propagação de cópias";
+    }
+
+    @Override
+    public int run(IrProgram program) {
+        int[] replacements = new int[program.valueCount()];
+        for (int value = 0; value < replacements.length; value++) {
+            replacements[value] = value;
+        }
+
+        List<Instruction> kept = new ArrayList<>(program.instructions().size());
+        int changes = 0;
+        for (Instruction instruction : program.instructions()) {
+            // a fonte de uma cópia vem antes dela, então já está resolvida
+            Instruction mapped = instruction.mapOperands(value -> replacements[value]);
+            if (mapped instanceof Copy copy) {
+                replacements[copy.result()] = copy.source();
+                if (program.name(copy.source()) == null) {
+                    program.setName(copy.source(), program.name(copy.result()));
+                }
+                changes++;
+            } else {
+                kept.add(mapped);
+            }
+        }
+
+        program.setInstructions(kept);
+        return changes;
+    }
+}
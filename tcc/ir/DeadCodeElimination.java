@@ -0,0 +1,54 @@
+package tcc.ir;
+
+import tcc.DataType;
+import tcc.Operator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Remove as instruções cujo valor nunca é usado, de trás para frente, para que os operandos de uma instrução removida
+// também possam sair. Impressões ficam, e também divisões inteiras que podem lançar ArithmeticException.
+public class DeadCodeElimination implements Pass {
+    @Override
+    public String name() {
+        return "eliminação de código morto";
+    }
+
+    @Override
+    public int run(IrProgram program) {
+        List<Instruction> instructions = program.instructions();
+        boolean[] constants = new boolean[program.valueCount()];
+        int[] intValues = new int[program.valueCount()];
+        for (Instruction instruction : instructions) {
+            if (instruction instanceof IntConstant constant) {
+                constants[constant.result()] = true;
+                intValues[constant.result()] = constant.value();
+            }
+        }
+
+        boolean[] used = new boolean[program.valueCount()];
+        List<Instruction> kept = new ArrayList<>(instructions.size());
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            Instruction instruction = instructions.get(i);
+            boolean live = instruction instanceof Print || used[instruction.result()]
+                || (instruction instanceof Binary binary && mayThrow(binary, constants, intValues));
+            if (live) {
+                kept.add(instruction);
+                for (int operand : instruction.operands()) {
+                    used[operand] = true;
+                }
+            }
+        }
+
+        int changes = instructions.size() - kept.size();
+        Collections.reverse(kept);
+        program.setInstructions(kept);
+        return changes;
+    }
+
+    public static boolean mayThrow(Binary binary, boolean[] constants, int[] intValues) {
+        return binary.type() == DataType.INT && binary.op() == Operator.DIVISION_SIGN
+            && !(constants[binary.right()] && intValues[binary.right()] != 0);
+    }
+}
@@ -0,0 +1,22 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.function.IntUnaryOperator;
+
+public record DoubleConstant(int result, double value) implements Instruction {
+    @Override
+    public DataType type() {
+        return DataType.DOUBLE;
+    }
+
+    @Override
+    public int[] operands() {
+        return new int[0];
+    }
+
+    @Override
+    public Instruction mapOperands(IntUnaryOperator map) {
+        return this;
+    }
+}
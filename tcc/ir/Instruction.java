@@ -0,0 +1,22 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.function.IntUnaryOperator;
+
+// Uma instrução de três endereços. Os valores são números sequenciais do IrProgram, e cada um é definido por uma só
+// instrução; os operandos de uma operação têm sempre o mesmo tipo dela, com as conversões de int para double feitas
+// por instruções Widen explícitas.
+public sealed interface Instruction permits IntConstant, DoubleConstant, Binary, Widen, Copy, Print {
+    // instruções que não produzem valor, como Print
+    int NO_VALUE = -1;
+
+    int result();
+
+    DataType type();
+
+    int[] operands();
+
+    // a mesma instrução com cada operando trocado por map(operando)
+    Instruction mapOperands(IntUnaryOperator map);
+}
@@ -0,0 +1,22 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.function.IntUnaryOperator;
+
+public record IntConstant(int result, int value) implements Instruction {
+    @Override
+    public DataType type() {
+        return DataType.INT;
+    }
+
+    @Override
+    public int[] operands() {
+        return new int[0];
+    }
+
+    @Override
+    public Instruction mapOperands(IntUnaryOperator map) {
+        return this;
+    }
+}
@@ -0,0 +1,135 @@
+package tcc.ir;
+
+import tcc.DataType;
+import tcc.nodes.*;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+// Traduz a árvore já analisada para a representação intermediária. Cada nó vira uma instrução com o tipo do seu
+// resultado, conversões implícitas de int para double viram instruções Widen e cada atribuição cria uma nova versão da
+// variável, então o programa sai direto em forma SSA. A versão atual de cada variável fica em um array indexado pelo
+// número do nome na tabela de símbolos.
+public class IrBuilder {
+    private static final int NO_VERSION = -1;
+
+    private final IrProgram program = new IrProgram();
+    private final Symbols symbols = new Symbols();
+    // tipo declarado (ordinal + 1, ou 0 se não declarada) e versão atual de cada variável
+    private byte[] types = new byte[64];
+    private int[] versions = new int[64];
+
+    public static IrProgram lower(ProgramNode programNode) {
+        IrBuilder builder = new IrBuilder();
+        for (StatementNode statement : programNode.statements()) {
+            builder.add(statement);
+        }
+
+        return builder.build();
+    }
+
+    public IrProgram build() {
+        return program;
+    }
+
+    public void add(StatementNode statement) {
+        switch (statement) {
+            case DeclarationNode declarationNode -> {
+                int id = symbols.resolve(declarationNode.identifier());
+                if (id >= types.length) {
+                    types = Arrays.copyOf(types, Math.max(types.length * 2, id + 1));
+                    versions = Arrays.copyOf(versions, types.length);
+                }
+                types[id] = (byte) (declarationNode.type().ordinal() + 1);
+                versions[id] = NO_VERSION;
+
+                Optional<ExpressionNode> expression = declarationNode.expression();
+                if (expression.isPresent()) {
+                    assign(id, declarationNode.identifier().name(), lower(expression.get()));
+                }
+            }
+            case PrintCallNode printCallNode -> {
+                int value = lower(printCallNode.parameter());
+                program.add(new Print(program.type(value), value));
+            }
+            case ExpressionNode expressionNode -> lower(expressionNode);
+        }
+    }
+
+    private int lower(ExpressionNode expressionNode) {
+        return lowering.walk(expressionNode);
+    }
+
+    private final ExpressionWalker<Integer, RuntimeException> lowering = new ExpressionWalker<>() {
+        @Override
+        protected Integer leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> {
+                    int result = program.newValue(DataType.INT, null);
+                    program.add(new IntConstant(result, intNode.value()));
+                    yield result;
+                }
+                case DoubleNode doubleNode -> {
+                    int result = program.newValue(DataType.DOUBLE, null);
+                    program.add(new DoubleConstant(result, doubleNode.value()));
+                    yield result;
+                }
+                case IdentifierNode identifierNode -> {
+                    int version = versions[variable(identifierNode)];
+                    if (version == NO_VERSION) {
+                        // o analisador semântico garante que isso não acontece
+                        throw new IllegalStateException("Variável " + identifierNode.name() + " usada sem valor");
+                    }
+                    yield version;
+                }
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected Integer binary(BinaryExpressionNode binaryExpressionNode, Integer left, Integer right) {
+            DataType type = program.type(left) == DataType.INT && program.type(right) == DataType.INT
+                ? DataType.INT : DataType.DOUBLE;
+            int leftValue = convert(left, type);
+            int rightValue = convert(right, type);
+
+            int result = program.newValue(type, null);
+            program.add(new Binary(result, type, binaryExpressionNode.op(), leftValue, rightValue));
+            return result;
+        }
+
+        @Override
+        protected Integer assignment(AssignmentNode assignmentNode, Integer value) {
+            int id = variable(assignmentNode.identifier());
+            return assign(id, assignmentNode.identifier().name(), value);
+        }
+    };
+
+    private int assign(int id, String name, int value) {
+        DataType type = DataType.values()[types[id] - 1];
+        int version = program.newValue(type, name);
+        program.add(new Copy(version, type, convert(value, type)));
+        versions[id] = version;
+        return version;
+    }
+
+    private int convert(int value, DataType type) {
+        if (program.type(value) == type) {
+            return value;
+        }
+
+        int result = program.newValue(DataType.DOUBLE, null);
+        program.add(new Widen(result, value));
+        return result;
+    }
+
+    private int variable(IdentifierNode identifierNode) {
+        int id = symbols.resolve(identifierNode);
+        if (id >= types.length || types[id] == 0) {
+            // o analisador semântico garante que isso não acontece
+            throw new IllegalStateException("Variável " + identifierNode.name() + " não foi declarada");
+        }
+
+        return id;
+    }
+}
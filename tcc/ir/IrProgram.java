@@ -0,0 +1,128 @@
+package tcc.ir;
+
+import tcc.DataType;
+import tcc.Operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Representação intermediária tipada de um programa: uma lista de instruções de três endereços em forma SSA, em que
+// cada valor é definido uma só vez. Como Café não tem desvios, não há funções phi: cada atribuição cria uma nova versão
+// da variável, e uma leitura usa a versão mais recente.
+//
+// O tipo de cada valor e, nas versões de variáveis, o nome dela ficam em tabelas indexadas pelo número do valor; os
+// nomes só servem para que o código gerado continue legível.
+public class IrProgram {
+    private List<Instruction> instructions = new ArrayList<>();
+    private DataType[] types = new DataType[64];
+    private String[] names = new String[64];
+    private int valueCount = 0;
+
+    public int newValue(DataType type, String name) {
+        if (valueCount == types.length) {
+            types = Arrays.copyOf(types, valueCount * 2);
+            names = Arrays.copyOf(names, valueCount * 2);
+        }
+        types[valueCount] = type;
+        names[valueCount] = name;
+        return valueCount++;
+    }
+
+    public void add(Instruction instruction) {
+        instructions.add(instruction);
+    }
+
+    public List<Instruction> instructions() {
+        return instructions;
+    }
+
+    public void setInstructions(List<Instruction> instructions) {
+        this.instructions = instructions;
+    }
+
+    public int valueCount() {
+        return valueCount;
+    }
+
+    public DataType type(int value) {
+        return types[value];
+    }
+
+    // nome da variável de que o valor é uma versão, ou null para valores intermediários
+    public String name(int value) {
+        return names[value];
+    }
+
+    public void setName(int value, String name) {
+        names[value] = name;
+    }
+
+    // Confere as regras da representação: cada valor é definido uma só vez, antes de ser usado, com o tipo registrado
+    // para ele, e os operandos têm o tipo que a instrução espera. Os passes de otimização precisam mantê-las.
+    public void verify() {
+        boolean[] defined = new boolean[valueCount];
+        for (Instruction instruction : instructions) {
+            for (int operand : instruction.operands()) {
+                if (operand < 0 || operand >= valueCount || !defined[operand]) {
+                    throw new IllegalStateException("Valor " + operand + " usado antes de ser definido em " + instruction);
+                }
+            }
+
+            DataType operandType = instruction instanceof Widen ? DataType.INT : instruction.type();
+            for (int operand : instruction.operands()) {
+                if (types[operand] != operandType) {
+                    throw new IllegalStateException("Operando " + operand + " com tipo errado em " + instruction);
+                }
+            }
+
+            int result = instruction.result();
+            if (result != Instruction.NO_VALUE) {
+                if (result < 0 || result >= valueCount || defined[result]) {
+                    throw new IllegalStateException("Valor " + result + " definido mais de uma vez em " + instruction);
+                }
+                if (types[result] != instruction.type()) {
+                    throw new IllegalStateException("Valor " + result + " com tipo errado em " + instruction);
+                }
+                defined[result] = true;
+            }
+        }
+    }
+
+    // uma instrução por linha, com as versões de variáveis identificadas pelo nome: a.4:int = add a.2:int, %3:int
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        for (Instruction instruction : instructions) {
+            if (instruction.result() != Instruction.NO_VALUE) {
+                output.append(describe(instruction.result())).append(" = ");
+            }
+            output.append(switch (instruction) {
+                case IntConstant constant -> String.valueOf(constant.value());
+                case DoubleConstant constant -> String.valueOf(constant.value());
+                case Binary binary -> mnemonic(binary.op()) + " " + describe(binary.left()) + ", " + describe(binary.right());
+                case Widen widen -> "widen " + describe(widen.source());
+                case Copy copy -> "copy " + describe(copy.source());
+                case Print print -> "print " + describe(print.value());
+            });
+            output.append('\n');
+        }
+
+        return output.toString();
+    }
+
+    private static String mnemonic(Operator op) {
+        return switch (op) {
+            case PLUS_SIGN -> "add";
+            case MINUS_SIGN -> "sub";
+            case MULTIPLICATION_SIGN -> "mul";
+            case DIVISION_SIGN -> "div";
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não é uma operação");
+        };
+    }
+
+    private String describe(int value) {
+        String type = types[value] == DataType.INT ? "int" : "double";
+        return (names[value] != null ? names[value] + "." : "%") + value + ":" + type;
+    }
+}
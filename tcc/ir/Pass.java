@@ -0,0 +1,9 @@
+package tcc.ir;
+
+// Um passe de otimização sobre a representação intermediária. O programa continua em forma SSA depois dele.
+public interface Pass {
+    String name();
+
+    // devolve quantas instruções o passe mudou ou removeu, zero se não havia o que fazer
+    int run(IrProgram program);
+}
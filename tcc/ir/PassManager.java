@@ -0,0 +1,51 @@
+package tcc.ir;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Roda uma sequência de passes sobre o programa, repetindo a sequência enquanto algum deles mudar alguma coisa, já que
+// um passe pode abrir oportunidades para o anterior. Guarda quantas mudanças cada passe fez.
+public class PassManager {
+    // a sequência padrão chega ao ponto fixo em duas rodadas; o limite só evita laços em passes com defeito
+    private static final int MAX_ROUNDS = 10;
+
+    private final List<Pass> passes;
+    private final Map<String, Long> changes = new LinkedHashMap<>();
+    private final boolean verify;
+
+    public PassManager(List<Pass> passes, boolean verify) {
+        this.passes = List.copyOf(passes);
+        this.verify = verify;
+        for (Pass pass : passes) {
+            changes.put(pass.name(), 0L);
+        }
+    }
+
+    // propagação de constantes, propagação de cópias e eliminação de código morto
+    public static PassManager standard() {
+        return new PassManager(List.of(new ConstantPropagation(), new CopyPropagation(), new DeadCodeElimination()), false);
+    }
+
+    public void run(IrProgram program) {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            boolean changed = false;
+            for (Pass pass : passes) {
+                int passChanges = pass.run(program);
+                if (verify) {
+                    program.verify();
+                }
+                changes.merge(pass.name(), (long) passChanges, Long::sum);
+                changed |= passChanges > 0;
+            }
+
+            if (!changed) {
+                return;
+            }
+        }
+    }
+
+    public Map<String, Long> getChanges() {
+        return Map.copyOf(changes);
+    }
+}
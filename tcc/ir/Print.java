@@ -0,0 +1,22 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.function.IntUnaryOperator;
+
+public record Print(DataType type, int value) implements Instruction {
+    @Override
+    public int result() {
+        return NO_VALUE;
+    }
+
+    @Override
+    public int[] operands() {
+        return new int[]{value};
+    }
+
+    @Override
+    public Instruction mapOperands(IntUnaryOperator map) {
+        return new Print(type, map.applyAsInt(value));
+    }
+}
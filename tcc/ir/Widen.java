@@ -0,0 +1,23 @@
+package tcc.ir;
+
+import tcc.DataType;
+
+import java.util.function.IntUnaryOperator;
+
+// converte um valor int em double
+public record Widen(int result, int source) implements Instruction {
+    @Override
+    public DataType type() {
+        return DataType.DOUBLE;
+    }
+
+    @Override
+    public int[] operands() {
+        return new int[]{source};
+    }
+
+    @Override
+    public Instruction mapOperands(IntUnaryOperator map) {
+        return new Widen(result, map.applyAsInt(source));
+    }
+}
@@ -0,0 +1,262 @@
+package tcc.lsp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Leitura e escrita do JSON das mensagens do protocolo, sem dependências externas. Objetos viram Map, listas viram
+// List, números viram Long quando são inteiros e Double quando não, e null continua null.
+public class Json {
+    private final String input;
+    private int position = 0;
+
+    private Json(String input) {
+        this.input = input;
+    }
+
+    public static Object parse(String input) {
+        Json json = new Json(input);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.position != input.length()) {
+            throw json.error("fim da mensagem esperado");
+        }
+
+        return value;
+    }
+
+    public static String write(Object value) {
+        StringBuilder output = new StringBuilder();
+        write(value, output);
+        return output.toString();
+    }
+
+    private static void write(Object value, StringBuilder output) {
+        switch (value) {
+            case null -> output.append("null");
+            case String string -> writeString(string, output);
+            case Boolean bool -> output.append(bool);
+            case Double number when number == Math.rint(number) && !Double.isInfinite(number) ->
+                output.append(number.longValue());
+            case Number number -> output.append(number);
+            case Map<?, ?> map -> {
+                output.append('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (!first) {
+                        output.append(',');
+                    }
+                    first = false;
+                    writeString(entry.getKey().toString(), output);
+                    output.append(':');
+                    write(entry.getValue(), output);
+                }
+                output.append('}');
+            }
+            case List<?> list -> {
+                output.append('[');
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) {
+                        output.append(',');
+                    }
+                    write(list.get(i), output);
+                }
+                output.append(']');
+            }
+            default -> throw new IllegalArgumentException("Valor sem representação em JSON: " + value);
+        }
+    }
+
+    private static void writeString(String string, StringBuilder output) {
+        output.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char ch = string.charAt(i);
+            switch (ch) {
+                case '"' -> output.append("\\\"");
+                case '\\' -> output.append("\\\\");
+                case '\n' -> output.append("\\n");
+                case '\r' -> output.append("\\r");
+                case '\t' -> output.append("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        output.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        output.append(ch);
+                    }
+                }
+            }
+        }
+        output.append('"');
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position == input.length()) {
+            throw error("valor esperado");
+        }
+
+        char ch = input.charAt(position);
+        return switch (ch) {
+            case '{' -> readObject();
+            case '[' -> readArray();
+            case '"' -> readString();
+            case 't' -> readWord("true", true);
+            case 'f' -> readWord("false", false);
+            case 'n' -> readWord("null", null);
+            default -> {
+                if (ch == '-' || (ch >= '0' && ch <= '9')) {
+                    yield readNumber();
+                }
+                throw error("caractere inesperado '" + ch + "'");
+            }
+        };
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("nome de campo esperado");
+            }
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(key, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder string = new StringBuilder();
+        while (true) {
+            if (position == input.length()) {
+                throw error("texto sem fim");
+            }
+
+            char ch = input.charAt(position++);
+            if (ch == '"') {
+                return string.toString();
+            }
+            if (ch != '\\') {
+                string.append(ch);
+                continue;
+            }
+
+            if (position == input.length()) {
+                throw error("texto sem fim");
+            }
+            char escaped = input.charAt(position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> string.append(escaped);
+                case 'b' -> string.append('\b');
+                case 'f' -> string.append('\f');
+                case 'n' -> string.append('\n');
+                case 'r' -> string.append('\r');
+                case 't' -> string.append('\t');
+                case 'u' -> {
+                    if (position + 4 > input.length()) {
+                        throw error("escape \\u incompleto");
+                    }
+                    try {
+                        string.append((char) Integer.parseInt(input.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("escape \\u inválido");
+                    }
+                    position += 4;
+                }
+                default -> throw error("escape inválido '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private Object readNumber() {
+        int start = position;
+        if (peek() == '-') {
+            position++;
+        }
+        boolean integer = true;
+        while (position < input.length()) {
+            char ch = input.charAt(position);
+            if (ch == '.' || ch == 'e' || ch == 'E' || ch == '+' || (ch == '-' && position > start)) {
+                integer = false;
+            } else if (ch < '0' || ch > '9') {
+                break;
+            }
+            position++;
+        }
+
+        String number = input.substring(start, position);
+        try {
+            return integer ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("número inválido " + number);
+        }
+    }
+
+    private Object readWord(String word, Object value) {
+        if (!input.startsWith(word, position)) {
+            throw error(word + " esperado");
+        }
+
+        position += word.length();
+        return value;
+    }
+
+    private void expect(char ch) {
+        if (peek() != ch) {
+            throw error("'" + ch + "' esperado");
+        }
+        position++;
+    }
+
+    private int peek() {
+        return position < input.length() ? input.charAt(position) : -1;
+    }
+
+    private void skipWhitespace() {
+        while (position < input.length() && " \t\r\n".indexOf(input.charAt(position)) >= 0) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON inválido na posição " + position + ": " + message);
+    }
+}
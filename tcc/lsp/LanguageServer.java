@@ -0,0 +1,408 @@
+package tcc.lsp;
+
+import tcc.Compiler;
+import tcc.DataType;
+import tcc.Diagnostic;
+import tcc.IncrementalCompiler;
+import tcc.Keyword;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Servidor da Language Server Protocol, em JSON-RPC pela entrada e saída padrão. Publica os erros de cada documento
+// aberto, mostra o tipo de uma variável ao passar o mouse sobre ela e leva à sua declaração.
+//
+// As mensagens são lidas na thread que chamou run() e tratadas, em ordem, por uma única thread, dona dos documentos.
+// Cada documento é um IncrementalCompiler: uma edição só relê as instruções que tocou, e a análise semântica fica para
+// depois que as edições param por DEBOUNCE_MILLIS. A análise é feita em grupos de instruções e cede a vez a qualquer
+// mensagem que chegar, então um pedido nunca espera a análise de um arquivo grande terminar, e edições seguidas nunca
+// enfileiram análises do texto já desatualizado.
+public class LanguageServer {
+    public static final long DEBOUNCE_MILLIS = 50;
+
+    private static final int PARSE_ERROR = -32700;
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INVALID_PARAMS = -32602;
+    private static final int REQUEST_CANCELLED = -32800;
+    // valor de textDocumentSync.change para edições com o trecho alterado
+    private static final int INCREMENTAL_SYNC = 2;
+    private static final int ERROR_SEVERITY = 1;
+
+    // marca o fim da entrada para a thread que trata as mensagens
+    private static final Map<String, Object> END = Map.of();
+
+    private static final class Document {
+        private final IncrementalCompiler compiler;
+        private long version;
+        // a análise é feita quando as edições param até deadline, em System.nanoTime()
+        private boolean pending = true;
+        private long deadline;
+
+        private Document(String text, long version) {
+            this.compiler = new IncrementalCompiler(text);
+            this.version = version;
+            this.deadline = System.nanoTime();
+        }
+    }
+
+    private final BufferedInputStream input;
+    private final OutputStream output;
+    private final BlockingQueue<Map<String, Object>> messages = new LinkedBlockingQueue<>();
+    // pedidos na fila, ainda não tratados, com a indicação de se foram cancelados; o cancelamento de um pedido que não
+    // está aqui, já respondido ou desconhecido, é ignorado
+    private final Map<Object, Boolean> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+    private volatile boolean shutdown = false;
+
+    public LanguageServer(InputStream input, OutputStream output) {
+        this.input = new BufferedInputStream(input);
+        this.output = output;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.exit(new LanguageServer(System.in, System.out).run());
+    }
+
+    // Devolve o código de saída do processo: 0 se o cliente pediu shutdown antes de exit, e 1 se não pediu ou se a
+    // entrada terminou antes.
+    public int run() throws IOException, InterruptedException {
+        Thread worker = Thread.ofPlatform().name("cafe-lsp").start(this::work);
+        try {
+            String body;
+            while ((body = readMessage()) != null) {
+                Map<String, Object> message;
+                try {
+                    message = object(Json.parse(body));
+                } catch (IllegalArgumentException | ClassCastException e) {
+                    sendError(null, PARSE_ERROR, e.getMessage());
+                    continue;
+                }
+
+                // o cancelamento não espera na fila, para alcançar o pedido antes de ele ser tratado
+                if ("$/cancelRequest".equals(message.get("method"))) {
+                    if (message.get("params") instanceof Map<?, ?> params && params.get("id") != null) {
+                        inFlight.computeIfPresent(params.get("id"), (id, wasCancelled) -> true);
+                    }
+                    continue;
+                }
+
+                if (message.get("method") != null && message.get("id") != null) {
+                    inFlight.put(message.get("id"), false);
+                }
+                messages.put(message);
+                if ("exit".equals(message.get("method"))) {
+                    break;
+                }
+            }
+        } finally {
+            messages.put(END);
+            worker.join();
+        }
+
+        return shutdown ? 0 : 1;
+    }
+
+    private void work() {
+        try {
+            Map<String, Object> message;
+            while ((message = nextMessage()) != END) {
+                handle(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // o cliente fechou a saída; não há mais a quem responder
+        }
+    }
+
+    // espera a próxima mensagem, analisando os documentos cujas edições pararam enquanto nenhuma chega
+    private Map<String, Object> nextMessage() throws InterruptedException, IOException {
+        while (true) {
+            Map.Entry<String, Document> due = null;
+            long wait = Long.MAX_VALUE;
+            long now = System.nanoTime();
+            for (Map.Entry<String, Document> entry : documents.entrySet()) {
+                Document document = entry.getValue();
+                if (document.pending && document.deadline - now <= 0) {
+                    due = entry;
+                    break;
+                } else if (document.pending) {
+                    wait = Math.min(wait, document.deadline - now);
+                }
+            }
+
+            if (due == null) {
+                Map<String, Object> message = wait == Long.MAX_VALUE
+                    ? messages.take()
+                    : messages.poll(wait, TimeUnit.NANOSECONDS);
+                if (message != null) {
+                    return message;
+                }
+                continue;
+            }
+
+            Map<String, Object> message = messages.poll();
+            if (message != null) {
+                return message;
+            }
+
+            Document document = due.getValue();
+            if (document.compiler.analyze(() -> !messages.isEmpty())) {
+                document.pending = false;
+                publishDiagnostics(due.getKey(), document);
+            }
+        }
+    }
+
+    private void handle(Map<String, Object> message) throws IOException {
+        String method = (String) message.get("method");
+        Object id = message.get("id");
+        boolean request = message.containsKey("id");
+        if (method == null) {
+            // respostas a pedidos do servidor, que nunca são feitos
+            return;
+        }
+
+        if (request && id != null && Boolean.TRUE.equals(inFlight.remove(id))) {
+            sendError(id, REQUEST_CANCELLED, "Pedido cancelado");
+            return;
+        }
+
+        try {
+            Map<String, Object> params = message.containsKey("params") ? object(message.get("params")) : Map.of();
+            switch (method) {
+                case "initialize" -> sendResult(id, initialize());
+                case "initialized" -> {}
+                case "shutdown" -> {
+                    shutdown = true;
+                    sendResult(id, null);
+                }
+                case "textDocument/didOpen" -> didOpen(params);
+                case "textDocument/didChange" -> didChange(params);
+                case "textDocument/didClose" -> didClose(params);
+                case "textDocument/hover" -> sendResult(id, hover(params));
+                case "textDocument/definition", "textDocument/declaration" -> sendResult(id, declaration(params));
+                default -> {
+                    if (request) {
+                        sendError(id, METHOD_NOT_FOUND, "Método desconhecido: " + method);
+                    }
+                }
+            }
+        } catch (ClassCastException | NullPointerException | IndexOutOfBoundsException e) {
+            if (request) {
+                sendError(id, INVALID_PARAMS, "Parâmetros inválidos para " + method);
+            }
+        }
+    }
+
+    private Map<String, Object> initialize() {
+        Map<String, Object> sync = new LinkedHashMap<>();
+        sync.put("openClose", true);
+        sync.put("change", INCREMENTAL_SYNC);
+
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("textDocumentSync", sync);
+        capabilities.put("hoverProvider", true);
+        capabilities.put("definitionProvider", true);
+        capabilities.put("declarationProvider", true);
+
+        return Map.<String, Object>of(
+            "capabilities", capabilities,
+            "serverInfo", Map.of("name", "cafe", "version", Compiler.VERSION)
+        );
+    }
+
+    private void didOpen(Map<String, Object> params) {
+        Map<String, Object> textDocument = object(params.get("textDocument"));
+        documents.put((String) textDocument.get("uri"),
+            new Document((String) textDocument.get("text"), number(textDocument.get("version"))));
+    }
+
+    private void didChange(Map<String, Object> params) {
+        Map<String, Object> textDocument = object(params.get("textDocument"));
+        Document document = documents.get((String) textDocument.get("uri"));
+        if (document == null) {
+            return;
+        }
+
+        for (Object change : (List<?>) params.get("contentChanges")) {
+            Map<String, Object> contentChange = object(change);
+            String text = (String) contentChange.get("text");
+            if (contentChange.containsKey("range")) {
+                Map<String, Object> range = object(contentChange.get("range"));
+                int start = offset(document, object(range.get("start")));
+                int end = offset(document, object(range.get("end")));
+                document.compiler.edit(start, end - start, text);
+            } else {
+                document.compiler.edit(0, document.compiler.length(), text);
+            }
+        }
+
+        document.version = number(textDocument.get("version"));
+        document.pending = true;
+        document.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS);
+    }
+
+    private void didClose(Map<String, Object> params) throws IOException {
+        String uri = (String) object(params.get("textDocument")).get("uri");
+        if (documents.remove(uri) != null) {
+            sendNotification("textDocument/publishDiagnostics", Map.of("uri", uri, "diagnostics", List.of()));
+        }
+    }
+
+    private Object hover(Map<String, Object> params) {
+        return declarationAt(params).map(declaration -> Map.of(
+            "contents", Map.of(
+                "kind", "markdown",
+                "value", "```cafe\n" + keyword(declaration.type()).getValue() + " " + declaration.name() + "\n```"
+            )
+        )).orElse(null);
+    }
+
+    private Object declaration(Map<String, Object> params) {
+        String uri = (String) object(params.get("textDocument")).get("uri");
+        return declarationAt(params).map(declaration -> Map.of(
+            "uri", uri,
+            "range", range(declaration.line(), declaration.column(), declaration.name().length())
+        )).orElse(null);
+    }
+
+    private Optional<IncrementalCompiler.Declaration> declarationAt(Map<String, Object> params) {
+        Document document = documents.get((String) object(params.get("textDocument")).get("uri"));
+        if (document == null) {
+            return Optional.empty();
+        }
+
+        return document.compiler.declarationAt(offset(document, object(params.get("position"))));
+    }
+
+    private void publishDiagnostics(String uri, Document document) throws IOException {
+        List<Object> diagnostics = new ArrayList<>();
+        for (Diagnostic error : document.compiler.getDiagnostics()) {
+            Map<String, Object> diagnostic = new LinkedHashMap<>();
+            diagnostic.put("range", range(error.line(), error.column(), 1));
+            diagnostic.put("severity", ERROR_SEVERITY);
+            diagnostic.put("source", "cafe");
+            diagnostic.put("message", error.message());
+            diagnostics.add(diagnostic);
+        }
+
+        sendNotification("textDocument/publishDiagnostics",
+            Map.of("uri", uri, "version", document.version, "diagnostics", diagnostics));
+    }
+
+    private static Keyword keyword(DataType type) {
+        return switch (type) {
+            case INT -> Keyword.INT;
+            case DOUBLE -> Keyword.DOUBLE;
+        };
+    }
+
+    // as posições do protocolo contam linhas e colunas a partir de 0, e as do compilador a partir de 1
+    private static int offset(Document document, Map<String, Object> position) {
+        return document.compiler.offset((int) number(position.get("line")) + 1,
+            (int) number(position.get("character")) + 1);
+    }
+
+    private static Map<String, Object> range(int line, int column, int length) {
+        return Map.<String, Object>of(
+            "start", Map.of("line", line - 1, "character", column - 1),
+            "end", Map.of("line", line - 1, "character", column - 1 + length)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static long number(Object value) {
+        return ((Number) value).longValue();
+    }
+
+    private void sendResult(Object id, Object result) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("result", result);
+        send(response);
+    }
+
+    private void sendError(Object id, int code, String message) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("error", Map.of("code", code, "message", message));
+        send(response);
+    }
+
+    private void sendNotification(String method, Object params) throws IOException {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        notification.put("params", params);
+        send(notification);
+    }
+
+    // as duas threads podem responder, a de leitura só com erros de JSON
+    private synchronized void send(Map<String, Object> message) throws IOException {
+        byte[] body = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        output.write(("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        output.write(body);
+        output.flush();
+    }
+
+    // lê os cabeçalhos e o corpo de uma mensagem; devolve null no fim da entrada
+    private String readMessage() throws IOException {
+        int length = -1;
+        String header;
+        while ((header = readHeader()) != null && !header.isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                length = Integer.parseInt(header.substring(colon + 1).trim());
+            }
+        }
+        if (header == null) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Mensagem sem Content-Length");
+        }
+
+        byte[] body = input.readNBytes(length);
+        if (body.length < length) {
+            return null;
+        }
+
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private String readHeader() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+}
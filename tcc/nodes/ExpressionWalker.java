@@ -0,0 +1,116 @@
+package tcc.nodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Percorre uma expressão sem recursão, na ordem em que ela é avaliada: primeiro o operando da esquerda, depois o da
+// direita e só então a operação. Expressões geradas por programas podem ter milhões de níveis, bem mais do que a
+// pilha de chamadas aguenta, então a pilha aqui é uma lista no heap.
+public abstract class ExpressionWalker<R, E extends Exception> {
+    private static final int ENTER = 0;
+    private static final int AFTER_LEFT = 1;
+    private static final int EXIT = 2;
+
+    private final List<ExpressionNode> nodes = new ArrayList<>();
+    private int[] states = new int[16];
+    private final List<R> values = new ArrayList<>();
+
+    // números e identificadores
+    protected abstract R leaf(ExpressionNode leaf) throws E;
+
+    protected abstract R binary(BinaryExpressionNode binaryExpressionNode, R left, R right) throws E;
+
+    protected abstract R assignment(AssignmentNode assignmentNode, R value) throws E;
+
+    // devolve o resultado de uma expressão que não precisa ser percorrida, ou null para percorrê-la
+    protected R skip(BinaryExpressionNode binaryExpressionNode) throws E {
+        return null;
+    }
+
+    protected void enterBinary(BinaryExpressionNode binaryExpressionNode) throws E {}
+
+    protected void afterLeft(BinaryExpressionNode binaryExpressionNode, R left) throws E {}
+
+    protected void enterAssignment(AssignmentNode assignmentNode) throws E {}
+
+    public R walk(ExpressionNode root) throws E {
+        int base = nodes.size();
+        int valuesBase = values.size();
+        try {
+            return walk(root, base);
+        } finally {
+            // depois de um erro, descarta o que sobrou do percurso interrompido
+            nodes.subList(base, nodes.size()).clear();
+            values.subList(valuesBase, values.size()).clear();
+        }
+    }
+
+    private R walk(ExpressionNode root, int base) throws E {
+        push(root);
+
+        while (nodes.size() > base) {
+            int top = nodes.size() - 1;
+            ExpressionNode node = nodes.get(top);
+
+            switch (node) {
+                case BinaryExpressionNode binaryExpressionNode -> {
+                    switch (states[top]) {
+                        case ENTER -> {
+                            R skipped = skip(binaryExpressionNode);
+                            if (skipped != null) {
+                                pop();
+                                values.add(skipped);
+                                continue;
+                            }
+
+                            enterBinary(binaryExpressionNode);
+                            states[top] = AFTER_LEFT;
+                            push(binaryExpressionNode.left());
+                        }
+                        case AFTER_LEFT -> {
+                            afterLeft(binaryExpressionNode, values.get(values.size() - 1));
+                            states[top] = EXIT;
+                            push(binaryExpressionNode.right());
+                        }
+                        default -> {
+                            pop();
+                            R right = values.remove(values.size() - 1);
+                            R left = values.remove(values.size() - 1);
+                            values.add(binary(binaryExpressionNode, left, right));
+                        }
+                    }
+                }
+                case AssignmentNode assignmentNode -> {
+                    if (states[top] == ENTER) {
+                        enterAssignment(assignmentNode);
+                        states[top] = EXIT;
+                        push(assignmentNode.expression());
+                    } else {
+                        pop();
+                        values.add(assignment(assignmentNode, values.remove(values.size() - 1)));
+                    }
+                }
+                default -> {
+                    pop();
+                    values.add(leaf(node));
+                }
+            }
+        }
+
+        return values.remove(values.size() - 1);
+    }
+
+    private void push(ExpressionNode node) {
+        if (nodes.size() == states.length) {
+            states = Arrays.copyOf(states, states.length * 2);
+        }
+
+        states[nodes.size()] = ENTER;
+        nodes.add(node);
+    }
+
+    private void pop() {
+        nodes.remove(nodes.size() - 1);
+    }
+}
@@ -0,0 +1,254 @@
+package tcc.nodes;
+
+import tcc.DataType;
+import tcc.Operator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+// Representação compacta da árvore sintática, com os nós guardados em arrays paralelos de tipos primitivos em vez de um
+// record por nó. Cada nó é um índice: o tipo do nó e o operador (ou tipo de dado) ficam em arrays de bytes, e os dois
+// operandos em arrays de int. Os nomes das variáveis ficam uma só vez na tabela de símbolos, e os nós guardam o número
+// do nome nela.
+//
+// Os nós de cada instrução são acrescentados depois dos seus operandos e ocupam um trecho contínuo dos arrays, então uma
+// instrução pode ser convertida de volta em records sem recursão, percorrendo o trecho em ordem.
+public class FlatProgram {
+    public static final byte INT = 0;
+    public static final byte DOUBLE = 1;
+    public static final byte IDENTIFIER = 2;
+    public static final byte BINARY = 3;
+    public static final byte ASSIGNMENT = 4;
+    public static final byte DECLARATION = 5;
+    public static final byte PRINT = 6;
+
+    // indica uma declaração sem valor inicial
+    public static final int NONE = -1;
+
+    private static final Operator[] OPERATORS = Operator.values();
+    private static final DataType[] DATA_TYPES = DataType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    // operador de BINARY e tipo de dado de DECLARATION
+    private byte[] tags = new byte[INITIAL_CAPACITY];
+    // INT: valor; DOUBLE: índice em doubles; IDENTIFIER, ASSIGNMENT e DECLARATION: número do nome; BINARY: operando
+    private int[] left = new int[INITIAL_CAPACITY];
+    // BINARY: operando; ASSIGNMENT, DECLARATION e PRINT: expressão
+    private int[] right = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private int[] statements = new int[INITIAL_CAPACITY];
+    private int statementCount = 0;
+
+    private double[] doubles = new double[INITIAL_CAPACITY];
+    private int doubleCount = 0;
+
+    private final Symbols symbols;
+    private IdentifierNode[] identifiers = new IdentifierNode[0];
+
+    private final Flattener flattener = new Flattener();
+
+    public FlatProgram() {
+        this(new Symbols());
+    }
+
+    public FlatProgram(Symbols symbols) {
+        this.symbols = symbols;
+    }
+
+    public static FlatProgram of(ProgramNode programNode) {
+        FlatProgram flatProgram = new FlatProgram();
+        for (StatementNode statement : programNode.statements()) {
+            flatProgram.add(statement);
+        }
+
+        return flatProgram;
+    }
+
+    public void add(StatementNode statement) {
+        int root = switch (statement) {
+            case DeclarationNode declarationNode -> {
+                int expression = declarationNode.expression().map(flattener::walk).orElse(NONE);
+                yield node(DECLARATION, (byte) declarationNode.type().ordinal(),
+                    symbols.resolve(declarationNode.identifier()), expression);
+            }
+            case PrintCallNode printCallNode -> node(PRINT, (byte) 0, 0, flattener.walk(printCallNode.parameter()));
+            case ExpressionNode expressionNode -> flattener.walk(expressionNode);
+        };
+
+        if (statementCount == statements.length) {
+            statements = Arrays.copyOf(statements, grow(statementCount));
+        }
+        statements[statementCount++] = root;
+    }
+
+    // libera a folga deixada pelo crescimento dos arrays, depois que nenhuma instrução será mais acrescentada
+    public void trimToSize() {
+        kinds = Arrays.copyOf(kinds, size);
+        tags = Arrays.copyOf(tags, size);
+        left = Arrays.copyOf(left, size);
+        right = Arrays.copyOf(right, size);
+        statements = Arrays.copyOf(statements, statementCount);
+        doubles = Arrays.copyOf(doubles, doubleCount);
+    }
+
+    public int statementCount() {
+        return statementCount;
+    }
+
+    // índice do nó raiz da instrução
+    public int statement(int index) {
+        return statements[index];
+    }
+
+    public int nodeCount() {
+        return size;
+    }
+
+    public Symbols getSymbols() {
+        return symbols;
+    }
+
+    public byte kind(int node) {
+        return kinds[node];
+    }
+
+    public Operator operator(int node) {
+        return OPERATORS[tags[node]];
+    }
+
+    public DataType dataType(int node) {
+        return DATA_TYPES[tags[node]];
+    }
+
+    public int left(int node) {
+        return left[node];
+    }
+
+    public int right(int node) {
+        return right[node];
+    }
+
+    public int intValue(int node) {
+        return left[node];
+    }
+
+    public double doubleValue(int node) {
+        return doubles[left[node]];
+    }
+
+    // nome da variável de IDENTIFIER, ASSIGNMENT e DECLARATION
+    public String name(int node) {
+        return symbols.name(left[node]);
+    }
+
+    // as instruções convertidas em records uma de cada vez, para os passes que trabalham sobre a árvore; só a instrução
+    // em uso fica em memória como records
+    public List<StatementNode> statements() {
+        return new AbstractList<>() {
+            @Override
+            public StatementNode get(int index) {
+                return toStatementNode(index);
+            }
+
+            @Override
+            public int size() {
+                return statementCount;
+            }
+        };
+    }
+
+    public StatementNode toStatementNode(int index) {
+        int root = statements[index];
+        int start = index == 0 ? 0 : statements[index - 1] + 1;
+        // os operandos sempre vêm antes no trecho, então uma passada em ordem monta a árvore de baixo para cima
+        ExpressionNode[] built = new ExpressionNode[root - start + 1];
+        int last = kinds[root] == DECLARATION || kinds[root] == PRINT ? root - 1 : root;
+
+        for (int node = start; node <= last; node++) {
+            built[node - start] = switch (kinds[node]) {
+                case INT -> new IntNode(intValue(node));
+                case DOUBLE -> new DoubleNode(doubleValue(node));
+                case IDENTIFIER -> identifier(left[node]);
+                case BINARY -> new BinaryExpressionNode(operator(node), built[left[node] - start], built[right[node] - start]);
+                case ASSIGNMENT -> new AssignmentNode(identifier(left[node]), built[right[node] - start]);
+                default -> throw new IllegalStateException("Instrução dentro de uma expressão na posição " + node);
+            };
+        }
+
+        return switch (kinds[root]) {
+            case DECLARATION -> new DeclarationNode(dataType(root), identifier(left[root]),
+                right[root] == NONE ? Optional.empty() : Optional.of(built[right[root] - start]));
+            case PRINT -> new PrintCallNode(built[right[root] - start]);
+            default -> built[root - start];
+        };
+    }
+
+    public ProgramNode toProgramNode() {
+        return new ProgramNode(List.copyOf(statements()));
+    }
+
+    // os records de identificadores são reaproveitados entre as instruções, um por nome
+    private IdentifierNode identifier(int id) {
+        if (id >= identifiers.length) {
+            identifiers = Arrays.copyOf(identifiers, symbols.size());
+        }
+        if (identifiers[id] == null) {
+            identifiers[id] = new IdentifierNode(symbols.name(id), id);
+        }
+
+        return identifiers[id];
+    }
+
+    // depois de trimToSize os arrays podem estar vazios
+    private static int grow(int length) {
+        return Math.max(INITIAL_CAPACITY, length * 2);
+    }
+
+    private int node(byte kind, byte tag, int leftValue, int rightValue) {
+        if (size == kinds.length) {
+            int capacity = grow(size);
+            kinds = Arrays.copyOf(kinds, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+
+        kinds[size] = kind;
+        tags[size] = tag;
+        left[size] = leftValue;
+        right[size] = rightValue;
+        return size++;
+    }
+
+    private class Flattener extends ExpressionWalker<Integer, RuntimeException> {
+        @Override
+        protected Integer leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> node(INT, (byte) 0, intNode.value(), 0);
+                case DoubleNode doubleNode -> {
+                    if (doubleCount == doubles.length) {
+                        doubles = Arrays.copyOf(doubles, grow(doubleCount));
+                    }
+                    doubles[doubleCount] = doubleNode.value();
+                    yield node(DOUBLE, (byte) 0, doubleCount++, 0);
+                }
+                case IdentifierNode identifierNode -> node(IDENTIFIER, (byte) 0, symbols.resolve(identifierNode), 0);
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected Integer binary(BinaryExpressionNode binaryExpressionNode, Integer left, Integer right) {
+            return node(BINARY, (byte) binaryExpressionNode.op().ordinal(), left, right);
+        }
+
+        @Override
+        protected Integer assignment(AssignmentNode assignmentNode, Integer value) {
+            return node(ASSIGNMENT, (byte) 0, symbols.resolve(assignmentNode.identifier()), value);
+        }
+    }
+}
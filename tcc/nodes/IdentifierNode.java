@@ -1,3 +1,21 @@
 package tcc.nodes;
 
-public record IdentifierNode(String name) implements ExpressionNode {}
+// O id é o número do nome em uma tabela Symbols, ou UNRESOLVED para nós criados fora do parser. Ele só serve para
+// evitar buscas pelo nome, então dois identificadores são iguais quando têm o mesmo nome.
+public record IdentifierNode(String name, int id) implements ExpressionNode {
+    public static final int UNRESOLVED = -1;
+
+    public IdentifierNode(String name) {
+        this(name, UNRESOLVED);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof IdentifierNode identifierNode && name.equals(identifierNode.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
@@ -0,0 +1,51 @@
+package tcc.nodes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Tabela de nomes de variáveis. Cada nome recebe um número sequencial na primeira vez em que aparece, e os nós de
+// identificadores guardam esse número, então as etapas seguintes podem usar arrays indexados por ele em vez de mapas
+// de strings. O parser e o analisador semântico compartilham a mesma tabela; no modo em etapas eles rodam em threads
+// diferentes, por isso novos nomes são registrados com sincronização.
+public class Symbols {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile int size = 0;
+
+    // devolve o número do nome, registrando-o se for novo
+    public synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = name;
+        names = current;
+        ids.put(name, size);
+        return size++;
+    }
+
+    // número do identificador, aproveitando o que foi resolvido pelo parser se ele veio desta tabela
+    public int resolve(IdentifierNode identifierNode) {
+        int id = identifierNode.id();
+        if (id >= 0 && id < size && names[id].equals(identifierNode.name())) {
+            return id;
+        }
+
+        return intern(identifierNode.name());
+    }
+
+    // a instância única do nome, para que nós iguais não guardem cópias da mesma string
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
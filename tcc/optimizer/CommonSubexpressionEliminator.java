@@ -0,0 +1,232 @@
+package tcc.optimizer;
+
+import tcc.DataType;
+import tcc.Operator;
+import tcc.nodes.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Calcula uma só vez as expressões binárias que se repetem, guardando o resultado em uma variável temporária. Cada
+// expressão recebe um número de valor, igual para expressões com a mesma estrutura sobre as mesmas versões das
+// variáveis; uma atribuição cria uma nova versão da variável, e com isso as expressões antigas que a usam deixam de
+// ser reaproveitadas. A chave de cada expressão só guarda os números dos operandos, então comparar e calcular o hash
+// não depende da profundidade da árvore.
+//
+// O programa é percorrido três vezes na mesma ordem: a primeira numera as expressões, a segunda conta quantas vezes
+// cada ocorrência seria reaproveitada e a terceira cria as temporárias só para as que se repetem. Uma repetição não
+// é visitada por dentro, já que será trocada pela temporária e suas subexpressões não serão mais calculadas ali.
+public class CommonSubexpressionEliminator {
+    private static final String TEMPORARY_PREFIX = "_t";
+    // resultado de uma expressão que contém atribuições e por isso nunca é reaproveitada
+    private static final Object IMPURE = new Object();
+
+    private record VersionedName(String name, int version) {}
+
+    private record Key(Operator op, Object left, Object right) {}
+
+    private record Typed(ExpressionNode node, DataType type) {}
+
+    private final Map<BinaryExpressionNode, Integer> valueNumbers = new IdentityHashMap<>();
+    // número de vezes que cada ocorrência é usada, na ordem em que as ocorrências terminam de ser avaliadas
+    private final List<Integer> uses = new ArrayList<>();
+    private int eliminated = 0;
+
+    public ProgramNode eliminate(ProgramNode programNode) {
+        Numbering numbering = new Numbering();
+        Counting counting = new Counting();
+        for (StatementNode statement : programNode.statements()) {
+            expressionOf(statement).ifPresent(numbering::walk);
+            if (statement instanceof DeclarationNode declarationNode) {
+                numbering.declare(declarationNode.identifier().name());
+            }
+        }
+        for (StatementNode statement : programNode.statements()) {
+            expressionOf(statement).ifPresent(counting::walk);
+        }
+
+        Rewriting rewriting = new Rewriting();
+        for (StatementNode statement : programNode.statements()) {
+            rewriting.statement(statement);
+        }
+
+        return new ProgramNode(rewriting.output);
+    }
+
+    // quantas vezes uma expressão foi trocada por uma temporária
+    public int getEliminated() {
+        return eliminated;
+    }
+
+    private static Optional<ExpressionNode> expressionOf(StatementNode statement) {
+        return switch (statement) {
+            case DeclarationNode declarationNode -> declarationNode.expression();
+            case PrintCallNode printCallNode -> Optional.of(printCallNode.parameter());
+            case ExpressionNode expressionNode -> Optional.of(expressionNode);
+        };
+    }
+
+    private class Numbering extends ExpressionWalker<Object, RuntimeException> {
+        private final Map<String, Integer> versions = new HashMap<>();
+        private final Map<Key, Integer> numbers = new HashMap<>();
+
+        void declare(String name) {
+            versions.merge(name, 1, Integer::sum);
+        }
+
+        @Override
+        protected Object leaf(ExpressionNode leaf) {
+            if (leaf instanceof IdentifierNode identifierNode) {
+                return new VersionedName(identifierNode.name(), versions.getOrDefault(identifierNode.name(), 0));
+            }
+
+            // números são records com um só campo, comparados pelo valor
+            return leaf;
+        }
+
+        @Override
+        protected Object assignment(AssignmentNode assignmentNode, Object value) {
+            declare(assignmentNode.identifier().name());
+            return IMPURE;
+        }
+
+        @Override
+        protected Object binary(BinaryExpressionNode binaryExpressionNode, Object left, Object right) {
+            if (left == IMPURE || right == IMPURE) {
+                return IMPURE;
+            }
+
+            Key key = new Key(binaryExpressionNode.op(), left, right);
+            Integer number = numbers.computeIfAbsent(key, k -> numbers.size());
+            valueNumbers.put(binaryExpressionNode, number);
+            return number;
+        }
+    }
+
+    private class Counting extends ExpressionWalker<Object, RuntimeException> {
+        // ocorrência que calculou primeiro cada número de valor
+        private final Map<Integer, Integer> available = new HashMap<>();
+
+        @Override
+        protected Object skip(BinaryExpressionNode binaryExpressionNode) {
+            Integer occurrence = available.get(valueNumbers.get(binaryExpressionNode));
+            if (occurrence == null) {
+                return null;
+            }
+
+            uses.set(occurrence, uses.get(occurrence) + 1);
+            return binaryExpressionNode;
+        }
+
+        @Override
+        protected Object leaf(ExpressionNode leaf) {
+            return leaf;
+        }
+
+        @Override
+        protected Object assignment(AssignmentNode assignmentNode, Object value) {
+            return assignmentNode;
+        }
+
+        @Override
+        protected Object binary(BinaryExpressionNode binaryExpressionNode, Object left, Object right) {
+            Integer number = valueNumbers.get(binaryExpressionNode);
+            if (number != null) {
+                available.put(number, uses.size());
+                uses.add(1);
+            }
+
+            return binaryExpressionNode;
+        }
+    }
+
+    private class Rewriting extends ExpressionWalker<Typed, RuntimeException> {
+        private final Map<String, DataType> types = new HashMap<>();
+        private final Map<Integer, Optional<IdentifierNode>> available = new HashMap<>();
+        private final List<StatementNode> output = new ArrayList<>();
+        private int occurrences = 0;
+        private int temporaries = 0;
+        // se a instrução atual já alterou alguma variável, a temporária precisa ser atribuída no meio da expressão
+        private boolean storedInStatement;
+
+        void statement(StatementNode statement) {
+            storedInStatement = false;
+            output.add(switch (statement) {
+                case DeclarationNode declarationNode -> {
+                    Optional<ExpressionNode> expression = declarationNode.expression().map(this::expression);
+                    types.put(declarationNode.identifier().name(), declarationNode.type());
+                    yield new DeclarationNode(declarationNode.type(), declarationNode.identifier(), expression);
+                }
+                case PrintCallNode printCallNode -> new PrintCallNode(expression(printCallNode.parameter()));
+                case ExpressionNode expressionNode -> expression(expressionNode);
+            });
+        }
+
+        private ExpressionNode expression(ExpressionNode expression) {
+            return walk(expression).node();
+        }
+
+        @Override
+        protected Typed skip(BinaryExpressionNode binaryExpressionNode) {
+            Optional<IdentifierNode> temporary = available.get(valueNumbers.get(binaryExpressionNode));
+            if (temporary == null) {
+                return null;
+            }
+
+            eliminated++;
+            // só ocorrências usadas mais de uma vez são encontradas de novo, e essas sempre têm temporária
+            IdentifierNode identifier = temporary.orElseThrow();
+            return new Typed(identifier, types.get(identifier.name()));
+        }
+
+        @Override
+        protected Typed leaf(ExpressionNode leaf) {
+            return switch (leaf) {
+                case IntNode intNode -> new Typed(intNode, DataType.INT);
+                case DoubleNode doubleNode -> new Typed(doubleNode, DataType.DOUBLE);
+                case IdentifierNode identifierNode -> new Typed(identifierNode, types.get(identifierNode.name()));
+                default -> throw new IllegalStateException("Expressão composta tratada como folha");
+            };
+        }
+
+        @Override
+        protected Typed assignment(AssignmentNode assignmentNode, Typed value) {
+            storedInStatement = true;
+            return new Typed(new AssignmentNode(assignmentNode.identifier(), value.node()),
+                types.get(assignmentNode.identifier().name()));
+        }
+
+        @Override
+        protected Typed binary(BinaryExpressionNode binaryExpressionNode, Typed left, Typed right) {
+            BinaryExpressionNode rewritten = new BinaryExpressionNode(binaryExpressionNode.op(), left.node(), right.node());
+            DataType type = left.type() == DataType.INT && right.type() == DataType.INT ? DataType.INT : DataType.DOUBLE;
+
+            Integer number = valueNumbers.get(binaryExpressionNode);
+            if (number == null) {
+                return new Typed(rewritten, type);
+            }
+
+            if (uses.get(occurrences++) < 2) {
+                available.put(number, Optional.empty());
+                return new Typed(rewritten, type);
+            }
+
+            IdentifierNode temporary = new IdentifierNode(TEMPORARY_PREFIX + temporaries++);
+            types.put(temporary.name(), type);
+            available.put(number, Optional.of(temporary));
+
+            if (!storedInStatement) {
+                // nada mudou desde o início da instrução, então o valor pode ser calculado antes dela
+                output.add(new DeclarationNode(type, temporary, Optional.of(rewritten)));
+                return new Typed(temporary, type);
+            }
+
+            output.add(new DeclarationNode(type, temporary, Optional.empty()));
+            return new Typed(new AssignmentNode(temporary, rewritten), type);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package tcc.optimizer;
+
+import tcc.Operator;
+import tcc.nodes.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Substitui subexpressões constantes pelo seu valor e propaga os valores conhecidos das variáveis para os usos
+// seguintes. As contas seguem a semântica do Java: inteiro com inteiro dá inteiro (com estouro e divisão truncada)
+// e qualquer real promove a operação para double. Como a linguagem não tem desvios, as instruções são processadas
+// na ordem do programa, uma de cada vez, o que permite otimizar também na compilação em fluxo.
+public class ConstantFolder {
+    // valor atual de cada variável; uma variável sem valor conhecido não aparece aqui
+    private final Map<String, ExpressionNode> values = new HashMap<>();
+
+    public ProgramNode fold(ProgramNode programNode) {
+        List<StatementNode> statements = new ArrayList<>(programNode.statements().size());
+        for (StatementNode statement : programNode.statements()) {
+            statements.add(fold(statement));
+        }
+
+        return new ProgramNode(statements);
+    }
+
+    public StatementNode fold(StatementNode statement) {
+        return switch (statement) {
+            case DeclarationNode declarationNode -> foldDeclaration(declarationNode);
+            case PrintCallNode printCallNode -> new PrintCallNode(foldExpression(printCallNode.parameter()));
+            case ExpressionNode expressionNode -> foldExpression(expressionNode);
+        };
+    }
+
+    private DeclarationNode foldDeclaration(DeclarationNode declarationNode) {
+        String name = declarationNode.identifier().name();
+        Optional<ExpressionNode> expression = declarationNode.expression().map(this::foldExpression);
+
+        values.remove(name);
+        expression.filter(ConstantFolder::isConstant).ifPresent(value -> values.put(name, value));
+
+        return new DeclarationNode(declarationNode.type(), declarationNode.identifier(), expression);
+    }
+
+    private ExpressionNode foldExpression(ExpressionNode expression) {
+        return folder.walk(expression);
+    }
+
+    // o operando da esquerda é percorrido antes, como no Java, então uma atribuição nele vale para o da direita
+    private final ExpressionWalker<ExpressionNode, RuntimeException> folder = new ExpressionWalker<>() {
+        @Override
+        protected ExpressionNode leaf(ExpressionNode leaf) {
+            if (leaf instanceof IdentifierNode identifierNode) {
+                return values.getOrDefault(identifierNode.name(), identifierNode);
+            }
+
+            return leaf;
+        }
+
+        // a atribuição continua no código, mas o valor atribuído passa a ser conhecido
+        @Override
+        protected ExpressionNode assignment(AssignmentNode assignmentNode, ExpressionNode expression) {
+            String name = assignmentNode.identifier().name();
+            if (isConstant(expression)) {
+                values.put(name, expression);
+            } else {
+                values.remove(name);
+            }
+
+            return new AssignmentNode(assignmentNode.identifier(), expression);
+        }
+
+        @Override
+        protected ExpressionNode binary(BinaryExpressionNode binaryExpressionNode, ExpressionNode left, ExpressionNode right) {
+            return foldBinaryExpression(binaryExpressionNode.op(), left, right);
+        }
+    };
+
+    private static ExpressionNode foldBinaryExpression(Operator op, ExpressionNode left, ExpressionNode right) {
+        if (left instanceof IntNode(int leftValue) && right instanceof IntNode(int rightValue)) {
+            return foldInt(op, leftValue, rightValue).<ExpressionNode>map(IntNode::new)
+                .orElseGet(() -> new BinaryExpressionNode(op, left, right));
+        }
+
+        if (isConstant(left) && isConstant(right)) {
+            return foldDouble(op, doubleValue(left), doubleValue(right)).<ExpressionNode>map(DoubleNode::new)
+                .orElseGet(() -> new BinaryExpressionNode(op, left, right));
+        }
+
+        return new BinaryExpressionNode(op, left, right);
+    }
+
+    private static Optional<Integer> foldInt(Operator op, int left, int right) {
+        return switch (op) {
+            case PLUS_SIGN -> Optional.of(left + right);
+            case MINUS_SIGN -> Optional.of(left - right);
+            case MULTIPLICATION_SIGN -> Optional.of(left * right);
+            // a divisão por zero fica para a execução, que lança a mesma exceção do código original
+            case DIVISION_SIGN -> right == 0 ? Optional.empty() : Optional.of(left / right);
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição em uma expressão binária");
+        };
+    }
+
+    private static Optional<Double> foldDouble(Operator op, double left, double right) {
+        double value = switch (op) {
+            case PLUS_SIGN -> left + right;
+            case MINUS_SIGN -> left - right;
+            case MULTIPLICATION_SIGN -> left * right;
+            case DIVISION_SIGN -> left / right;
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição em uma expressão binária");
+        };
+
+        // infinito e NaN não têm literal em Java
+        return Double.isFinite(value) ? Optional.of(value) : Optional.empty();
+    }
+
+    private static boolean isConstant(ExpressionNode expression) {
+        return expression instanceof IntNode || expression instanceof DoubleNode;
+    }
+
+    private static double doubleValue(ExpressionNode expression) {
+        return switch (expression) {
+            case IntNode intNode -> intNode.value();
+            case DoubleNode doubleNode -> doubleNode.value();
+            default -> throw new IllegalArgumentException("Expressão não é constante");
+        };
+    }
+}
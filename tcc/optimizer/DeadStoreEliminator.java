@@ -0,0 +1,209 @@
+package tcc.optimizer;
+
+import tcc.Operator;
+import tcc.nodes.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Remove atribuições cujo valor nunca é lido e declarações de variáveis que não são mais usadas. O programa é percorrido
+// de trás para frente mantendo o conjunto de variáveis vivas, isto é, que ainda serão lidas antes de uma nova
+// atribuição. Atribuições aninhadas em uma expressão descartada continuam no programa se a variável estiver viva.
+public class DeadStoreEliminator {
+    // variáveis cujo valor atual ainda será lido
+    private final Set<String> live = new HashSet<>();
+    // variáveis que aparecem em alguma instrução mantida e por isso precisam continuar declaradas
+    private final Set<String> referenced = new HashSet<>();
+    private int removedStatements = 0;
+    private int removedStores = 0;
+
+    public ProgramNode eliminate(ProgramNode programNode) {
+        List<StatementNode> statements = programNode.statements();
+        Deque<StatementNode> kept = new ArrayDeque<>(statements.size());
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            List<StatementNode> replacement = eliminate(statements.get(i));
+            if (replacement.isEmpty()) {
+                removedStatements++;
+            }
+
+            for (int j = replacement.size() - 1; j >= 0; j--) {
+                kept.addFirst(replacement.get(j));
+            }
+        }
+
+        return new ProgramNode(new ArrayList<>(kept));
+    }
+
+    public int getRemovedStatements() {
+        return removedStatements;
+    }
+
+    // atribuições removidas de dentro de instruções que continuaram no programa
+    public int getRemovedStores() {
+        return removedStores;
+    }
+
+    private List<StatementNode> eliminate(StatementNode statement) {
+        return switch (statement) {
+            case PrintCallNode printCallNode -> List.of(new PrintCallNode(value(printCallNode.parameter())));
+            case DeclarationNode declarationNode -> eliminateDeclaration(declarationNode);
+            case ExpressionNode expressionNode -> {
+                Deque<ExpressionNode> effects = new ArrayDeque<>();
+                effects(expressionNode, effects);
+                yield List.copyOf(effects);
+            }
+        };
+    }
+
+    private List<StatementNode> eliminateDeclaration(DeclarationNode declarationNode) {
+        String name = declarationNode.identifier().name();
+        Optional<ExpressionNode> expression = declarationNode.expression();
+
+        if (expression.isPresent() && live.remove(name)) {
+            referenced.add(name);
+            return List.of(new DeclarationNode(declarationNode.type(), declarationNode.identifier(),
+                Optional.of(value(expression.get()))));
+        }
+
+        List<StatementNode> statements = new ArrayList<>();
+        if (expression.isPresent()) {
+            Deque<ExpressionNode> effects = new ArrayDeque<>();
+            effects(expression.get(), effects);
+            statements.addAll(effects);
+        }
+
+        // a variável ainda recebe atribuições adiante, mas o valor inicial nunca é lido
+        if (referenced.contains(name)) {
+            if (expression.isPresent()) {
+                removedStores++;
+            }
+            statements.add(new DeclarationNode(declarationNode.type(), declarationNode.identifier(), Optional.empty()));
+        }
+
+        return Collections.unmodifiableList(statements);
+    }
+
+    // reescreve uma expressão cujo valor é usado
+    private ExpressionNode value(ExpressionNode expression) {
+        return rewrite(expression, true, null);
+    }
+
+    // guarda em effects, na ordem de execução, as partes de uma expressão descartada que ainda precisam ser executadas
+    private void effects(ExpressionNode expression, Deque<ExpressionNode> effects) {
+        rewrite(expression, false, effects);
+    }
+
+    private static class Frame {
+        ExpressionNode node;
+        boolean valueUsed;
+        int state = 0;
+
+        Frame(ExpressionNode node, boolean valueUsed) {
+            this.node = node;
+            this.valueUsed = valueUsed;
+        }
+    }
+
+    // percorre a expressão de trás para frente, o inverso da ordem de avaliação, com uma pilha explícita para
+    // aguentar expressões muito aninhadas; as expressões reescritas cujo valor é usado ficam em results
+    private ExpressionNode rewrite(ExpressionNode root, boolean rootValueUsed, Deque<ExpressionNode> effects) {
+        Deque<Frame> frames = new ArrayDeque<>();
+        Deque<ExpressionNode> results = new ArrayDeque<>();
+        frames.push(new Frame(root, rootValueUsed));
+
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            switch (frame.node) {
+                case IdentifierNode identifierNode -> {
+                    frames.pop();
+                    if (frame.valueUsed) {
+                        live.add(identifierNode.name());
+                        referenced.add(identifierNode.name());
+                        results.push(identifierNode);
+                    }
+                }
+                case AssignmentNode assignmentNode -> {
+                    if (frame.state == 0) {
+                        if (!live.remove(assignmentNode.identifier().name())) {
+                            // ninguém lê a variável depois; fica só o que a expressão atribuída faz ou vale
+                            removedStores++;
+                            frame.node = assignmentNode.expression();
+                            continue;
+                        }
+
+                        referenced.add(assignmentNode.identifier().name());
+                        frame.state = 1;
+                        frames.push(new Frame(assignmentNode.expression(), true));
+                    } else {
+                        frames.pop();
+                        AssignmentNode kept = new AssignmentNode(assignmentNode.identifier(), results.pop());
+                        if (frame.valueUsed) {
+                            results.push(kept);
+                        } else {
+                            effects.addFirst(kept);
+                        }
+                    }
+                }
+                case BinaryExpressionNode binaryExpressionNode when frame.valueUsed -> {
+                    switch (frame.state) {
+                        case 0 -> {
+                            frame.state = 1;
+                            frames.push(new Frame(binaryExpressionNode.right(), true));
+                        }
+                        case 1 -> {
+                            frame.state = 2;
+                            frames.push(new Frame(binaryExpressionNode.left(), true));
+                        }
+                        default -> {
+                            frames.pop();
+                            ExpressionNode left = results.pop();
+                            ExpressionNode right = results.pop();
+                            results.push(new BinaryExpressionNode(binaryExpressionNode.op(), left, right));
+                        }
+                    }
+                }
+                case BinaryExpressionNode binaryExpressionNode -> {
+                    if (frame.state == 1) {
+                        frames.pop();
+                        effects.addFirst(results.pop());
+                    } else if (mayThrow(binaryExpressionNode)) {
+                        // a operação precisa continuar no programa, então o valor dela é mantido inteiro
+                        frame.state = 1;
+                        frames.push(new Frame(binaryExpressionNode, true));
+                    } else {
+                        frames.pop();
+                        frames.push(new Frame(binaryExpressionNode.left(), false));
+                        frames.push(new Frame(binaryExpressionNode.right(), false));
+                    }
+                }
+                default -> {
+                    frames.pop();
+                    if (frame.valueUsed) {
+                        results.push(frame.node);
+                    }
+                }
+            }
+        }
+
+        return rootValueUsed ? results.pop() : null;
+    }
+
+    // uma divisão inteira por zero lança exceção; só um divisor literal diferente de zero garante que isso não acontece
+    private static boolean mayThrow(BinaryExpressionNode binaryExpressionNode) {
+        if (binaryExpressionNode.op() != Operator.DIVISION_SIGN) {
+            return false;
+        }
+
+        return switch (binaryExpressionNode.right()) {
+            case IntNode intNode -> intNode.value() == 0;
+            case DoubleNode doubleNode -> false;
+            default -> true;
+        };
+    }
+}
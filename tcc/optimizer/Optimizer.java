@@ -0,0 +1,73 @@
+package tcc.optimizer;
+
+import tcc.CodeEmitter;
+import tcc.nodes.ProgramNode;
+import tcc.nodes.StatementNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Aplica as otimizações sobre a árvore já analisada, antes da geração de código. Um mesmo otimizador pode ser usado
+// em várias compilações, inclusive ao mesmo tempo, e acumula o número de instruções removidas.
+public class Optimizer {
+    private final AtomicLong removedStatements = new AtomicLong();
+    private final AtomicLong removedStores = new AtomicLong();
+    private final AtomicLong eliminatedSubexpressions = new AtomicLong();
+
+    public ProgramNode optimize(ProgramNode programNode) {
+        return eliminateDeadStores(eliminateCommonSubexpressions(new ConstantFolder().fold(programNode)));
+    }
+
+    // a propagação de constantes acontece a cada instrução, mas as outras otimizações dependem do resto do programa,
+    // então as instruções ficam guardadas até o fim e só então são geradas
+    public CodeEmitter emitter(CodeEmitter next) {
+        ConstantFolder constantFolder = new ConstantFolder();
+        List<StatementNode> statements = new ArrayList<>();
+        return new CodeEmitter() {
+            @Override
+            public void emit(StatementNode statement) {
+                statements.add(constantFolder.fold(statement));
+            }
+
+            @Override
+            public void finish() throws IOException {
+                ProgramNode optimized = eliminateDeadStores(eliminateCommonSubexpressions(new ProgramNode(statements)));
+                for (StatementNode statement : optimized.statements()) {
+                    next.emit(statement);
+                }
+                next.finish();
+            }
+        };
+    }
+
+    private ProgramNode eliminateCommonSubexpressions(ProgramNode programNode) {
+        CommonSubexpressionEliminator commonSubexpressionEliminator = new CommonSubexpressionEliminator();
+        ProgramNode optimized = commonSubexpressionEliminator.eliminate(programNode);
+        eliminatedSubexpressions.addAndGet(commonSubexpressionEliminator.getEliminated());
+
+        return optimized;
+    }
+
+    private ProgramNode eliminateDeadStores(ProgramNode programNode) {
+        DeadStoreEliminator deadStoreEliminator = new DeadStoreEliminator();
+        ProgramNode optimized = deadStoreEliminator.eliminate(programNode);
+        removedStatements.addAndGet(deadStoreEliminator.getRemovedStatements());
+        removedStores.addAndGet(deadStoreEliminator.getRemovedStores());
+
+        return optimized;
+    }
+
+    public long getRemovedStatements() {
+        return removedStatements.get();
+    }
+
+    public long getRemovedStores() {
+        return removedStores.get();
+    }
+
+    public long getEliminatedSubexpressions() {
+        return eliminatedSubexpressions.get();
+    }
+}
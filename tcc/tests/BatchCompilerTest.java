@@ -0,0 +1,50 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tcc.BatchCompiler;
+import tcc.Diagnostic;
+import tcc.exceptions.CompilationException;
+import tcc.exceptions.UndeclaredIdentifierException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class BatchCompilerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCompilesDirectory() throws IOException {
+        Path sources = folder.newFolder("fontes").toPath();
+        Files.createDirectory(sources.resolve("sub"));
+        Files.writeString(sources.resolve("um.cafe"), "inteiro a = 1!\nimprimir(a)!");
+        Files.writeString(sources.resolve("sub/dois.cafe"), "real b = 2,0!\nimprimir(b)!");
+        Files.writeString(sources.resolve("tres.cafe"), "imprimir(c)!");
+        Files.writeString(sources.resolve("leiame.txt"), "não é código Café");
+
+        List<Path> found = BatchCompiler.findSources(List.of(sources));
+        Assert.assertEquals(3, found.size());
+
+        BatchCompiler.Summary summary = new BatchCompiler(2, false).compile(found);
+
+        Assert.assertEquals(3, summary.results().size());
+        Assert.assertEquals(1, summary.failures());
+        Assert.assertTrue(Files.exists(sources.resolve("Um.java")));
+        Assert.assertTrue(Files.exists(sources.resolve("sub/Dois.java")));
+        Assert.assertFalse(Files.exists(sources.resolve("Tres.java")));
+
+        BatchCompiler.Result failed = summary.results().stream()
+            .filter(result -> result.error().isPresent())
+            .findFirst()
+            .orElseThrow();
+        Assert.assertEquals(sources.resolve("tres.cafe"), failed.inputPath());
+        CompilationException error = (CompilationException) failed.error().get();
+        Assert.assertEquals(List.of(new Diagnostic(1, 1, new UndeclaredIdentifierException("c").getMessage())),
+            error.getDiagnostics());
+    }
+}
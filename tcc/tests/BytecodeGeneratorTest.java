@@ -0,0 +1,103 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tcc.*;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.nodes.ProgramNode;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BytecodeGeneratorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIntegers() throws Exception {
+        assertSameOutput("inteiro a = 1! \n inteiro b = 2! \n inteiro c = a + b * 3! \n imprimir(c)! \n imprimir(c / 2 - a)!");
+    }
+
+    @Test
+    public void testRealsAndWidening() throws Exception {
+        assertSameOutput("inteiro a = 3! \n real b = 2,5! \n real c = a * b! \n imprimir(c)! \n imprimir(a / 2 + b)! \n imprimir(a)!");
+    }
+
+    @Test
+    public void testNestedAssignment() throws Exception {
+        assertSameOutput("inteiro a! \n inteiro b! \n real c! \n real d! \n a = b = 7! \n c = d = 1,5 * a! \n imprimir(a)! \n imprimir(c + d)! \n imprimir(a = 5)!");
+    }
+
+    @Test
+    public void testLargeConstants() throws Exception {
+        assertSameOutput("inteiro a = 127! \n inteiro b = 32767! \n inteiro c = 2147483647! \n real d = 1,0! \n real e = 0,0! \n real f = 12345,678! \n imprimir(a + b + c)! \n imprimir(d + e + f)!");
+    }
+
+    @Test
+    public void testManyLocals() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            input.append("real v").append(i).append(" = ").append(i).append(",5! \n");
+        }
+        input.append("imprimir(v0 + v150 + v299)!");
+
+        assertSameOutput(input.toString());
+    }
+
+    @Test
+    public void testExpressionStatement() throws Exception {
+        // o Java não aceita uma expressão solta como instrução, então aqui só o bytecode é executado
+        Path classDirectory = folder.newFolder().toPath();
+        ProgramNode programNode = analyze("inteiro a = 1! \n real b = 2,0! \n a + 1! \n b * a! \n imprimir(a)!");
+        Files.write(classDirectory.resolve("Main.class"), BytecodeGenerator.generate(programNode, "Main"));
+
+        Assert.assertEquals("1" + System.lineSeparator(), run(classDirectory));
+    }
+
+    @Test
+    public void testStreamingMatchesWholeProgram() throws Exception {
+        String input = "inteiro a = 1! \n real b! \n b = a * 2,5! \n imprimir(b + a)!";
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Compiler.compile(new InputStream(input), new BytecodeGenerator("Main").emitter(output));
+
+        Assert.assertArrayEquals(BytecodeGenerator.generate(analyze(input), "Main"), output.toByteArray());
+    }
+
+    private void assertSameOutput(String input) throws Exception {
+        ProgramNode programNode = analyze(input);
+
+        Path javaDirectory = folder.newFolder().toPath();
+        Path source = javaDirectory.resolve("Main.java");
+        Files.writeString(source, new JavaGenerator().generate(programNode, "Main"));
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        Assert.assertEquals(0, javac.run(null, null, null, source.toString()));
+
+        Path bytecodeDirectory = folder.newFolder().toPath();
+        Files.write(bytecodeDirectory.resolve("Main.class"), BytecodeGenerator.generate(programNode, "Main"));
+
+        Assert.assertEquals(run(javaDirectory), run(bytecodeDirectory));
+    }
+
+    private static ProgramNode analyze(String input) throws ParserException, SemanticAnalyzerException {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(input))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        return programNode;
+    }
+
+    private static String run(Path classDirectory) throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classDirectory.toUri().toURL()}, null)) {
+            Method main = classLoader.loadClass("Main").getMethod("main", String[].class);
+            return ProgramOutput.capture(() -> main.invoke(null, (Object) new String[0]));
+        }
+    }
+}
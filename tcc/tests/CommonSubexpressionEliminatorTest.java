@@ -0,0 +1,109 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.nodes.ProgramNode;
+import tcc.optimizer.CommonSubexpressionEliminator;
+
+public class CommonSubexpressionEliminatorTest {
+
+    @Test
+    public void testRepeatedSumIsHoisted() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro p1 = 4! \n inteiro p2 = 5! \n inteiro p3 = 6! \n inteiro p4 = 7! \n"
+            + "real média = (p1+p2+p3+p4) / 4,0! \n real soma = (p1+p2+p3+p4) * 1,0! \n imprimir(média)! \n imprimir(soma)!";
+
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        String output = generate(eliminator.eliminate(analyze(input)));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint p1 = 4;
+            \t\tint p2 = 5;
+            \t\tint p3 = 6;
+            \t\tint p4 = 7;
+            \t\tint _t0 = (((p1 + p2) + p3) + p4);
+            \t\tdouble media = (_t0 / 4.0);
+            \t\tdouble soma = (_t0 * 1.0);
+            \t\tSystem.out.println(media);
+            \t\tSystem.out.println(soma);
+            \t}
+            }
+            """, output);
+        Assert.assertEquals(1, eliminator.getEliminated());
+    }
+
+    @Test
+    public void testAssignmentInvalidates() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro a = 1! \n inteiro b = 2! \n imprimir(a * b)! \n a = 5! \n imprimir(a * b)! \n imprimir(a * b)!";
+
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        String output = generate(eliminator.eliminate(analyze(input)));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint a = 1;
+            \t\tint b = 2;
+            \t\tSystem.out.println((a * b));
+            \t\ta = 5;
+            \t\tint _t0 = (a * b);
+            \t\tSystem.out.println(_t0);
+            \t\tSystem.out.println(_t0);
+            \t}
+            }
+            """, output);
+        Assert.assertEquals(1, eliminator.getEliminated());
+    }
+
+    @Test
+    public void testTemporaryAssignedAfterEarlierStore() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro a = 1! \n inteiro b = 2! \n inteiro c! \n imprimir((c = 3) + a * b + a * b)! \n imprimir(c)!";
+
+        String output = generate(new CommonSubexpressionEliminator().eliminate(analyze(input)));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint a = 1;
+            \t\tint b = 2;
+            \t\tint c;
+            \t\tint _t0;
+            \t\tSystem.out.println((((c = 3) + (_t0 = (a * b))) + _t0));
+            \t\tSystem.out.println(c);
+            \t}
+            }
+            """, output);
+    }
+
+    @Test
+    public void testNestedRepeats() throws Exception {
+        String input = "inteiro a = 3! \n inteiro b = 4! \n real c = 0,5! \n"
+            + "imprimir((a + b) * c)! \n imprimir((a + b) * c + (a + b))! \n b = b + 1! \n imprimir((a + b) * c)! \n imprimir(a + b)!";
+
+        ProgramNode programNode = analyze(input);
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        ProgramNode eliminated = eliminator.eliminate(programNode);
+
+        Assert.assertEquals(3, eliminator.getEliminated());
+        InMemoryRunner runner = new InMemoryRunner();
+        Assert.assertEquals(run(runner, programNode), run(runner, eliminated));
+    }
+
+    private static String generate(ProgramNode programNode) {
+        return new JavaGenerator().generate(programNode, "Main");
+    }
+
+    private static ProgramNode analyze(String input) throws ParserException, SemanticAnalyzerException {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(input))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        return programNode;
+    }
+
+    private static String run(InMemoryRunner runner, ProgramNode programNode) throws Exception {
+        return ProgramOutput.capture(() -> runner.run("Main", generate(programNode), new String[0]));
+    }
+}
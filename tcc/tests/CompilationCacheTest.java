@@ -0,0 +1,120 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tcc.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class CompilationCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+    private Path output;
+    private final AtomicInteger compilations = new AtomicInteger();
+
+    @Before
+    public void setup() throws IOException {
+        source = folder.getRoot().toPath().resolve("prog.cafe");
+        output = folder.getRoot().toPath().resolve("Prog.java");
+        Files.writeString(source, "inteiro a = 1!");
+    }
+
+    private void compile(CompilationCache cache, String settings) throws Exception {
+        cache.compile(source, output, settings, () -> {
+            compilations.incrementAndGet();
+            Files.writeString(output, "saída " + Files.readString(source));
+        });
+    }
+
+    @Test
+    public void testHitSkipsCompilation() throws Exception {
+        CompilationCache cache = new CompilationCache(folder.getRoot().toPath().resolve("cache"), 1024 * 1024);
+
+        compile(cache, "Prog");
+        Files.delete(output);
+        compile(cache, "Prog");
+
+        Assert.assertEquals(1, compilations.get());
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals("saída inteiro a = 1!", Files.readString(output));
+    }
+
+    @Test
+    public void testSourceAndSettingsAreInTheKey() throws Exception {
+        CompilationCache cache = new CompilationCache(folder.getRoot().toPath().resolve("cache"), 1024 * 1024);
+
+        compile(cache, "Prog");
+        compile(cache, "Outro");
+        Files.writeString(source, "inteiro a = 2!");
+        compile(cache, "Prog");
+
+        Assert.assertEquals(3, compilations.get());
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals("saída inteiro a = 2!", Files.readString(output));
+    }
+
+    @Test
+    public void testSourceChangedDuringCompilationIsNotStored() throws Exception {
+        CompilationCache cache = new CompilationCache(folder.getRoot().toPath().resolve("cache"), 1024 * 1024);
+
+        // o fonte muda entre o cálculo da chave e a leitura pelo compilador
+        cache.compile(source, output, "java", () -> {
+            Files.writeString(source, "inteiro b = 2!");
+            Files.writeString(output, "saída " + Files.readString(source));
+        });
+        Files.writeString(source, "inteiro a = 1!");
+        compile(cache, "java");
+
+        Assert.assertEquals(1, compilations.get());
+        Assert.assertEquals("saída inteiro a = 1!", Files.readString(output));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("cache");
+        // cada entrada tem 20 bytes, então só duas cabem
+        CompilationCache cache = new CompilationCache(directory, 45);
+
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(source, "inteiro a = " + i + "!");
+            compile(cache, "Prog");
+        }
+
+        try (Stream<Path> entries = Files.list(directory)) {
+            Assert.assertEquals(2, entries.count());
+        }
+
+        // a entrada mais recente continua no cache
+        compile(cache, "Prog");
+        Assert.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testExistingEntriesCountTowardsTheLimit() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("cache");
+        CompilationCache large = new CompilationCache(directory, 1024 * 1024);
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(source, "inteiro a = " + i + "!");
+            compile(large, "Prog");
+        }
+
+        // um cache novo no mesmo diretório lê o tamanho do que já está lá antes de somar a primeira gravação
+        CompilationCache small = new CompilationCache(directory, 45);
+        Files.writeString(source, "inteiro a = 5!");
+        compile(small, "Prog");
+
+        try (Stream<Path> entries = Files.list(directory)) {
+            Assert.assertEquals(2, entries.count());
+        }
+    }
+}
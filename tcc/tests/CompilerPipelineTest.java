@@ -0,0 +1,86 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.Compiler;
+import tcc.CompilerPipeline;
+import tcc.InputStream;
+import tcc.exceptions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class CompilerPipelineTest {
+
+    private String compilePipelined(String input) throws IOException, ParserException, SemanticAnalyzerException {
+        StringWriter output = new StringWriter();
+        CompilerPipeline.compile(new InputStream(input), "Main", output);
+        return output.toString();
+    }
+
+    @Test
+    public void testOutputMatchesSequential() throws IOException, ParserException, SemanticAnalyzerException {
+        // mais instruções que um lote, para passar vários lotes pelas filas
+        StringBuilder input = new StringBuilder("inteiro total = 0!\n");
+        for (int i = 0; i < 5000; i++) {
+            input.append("real média").append(i).append(" = (total + ").append(i).append(") / 2,0!\n");
+            input.append("total = total + 1!\n");
+        }
+        input.append("imprimir(total)!");
+
+        StringWriter expected = new StringWriter();
+        Compiler.compile(new InputStream(input.toString()), "Main", expected);
+
+        Assert.assertEquals(expected.toString(), compilePipelined(input.toString()));
+    }
+
+    @Test
+    public void testLexerErrorIsReported() {
+        ParserException exception = Assert.assertThrows(ParserException.class, () -> compilePipelined("inteiro a = 1!\n inteiro b = $!"));
+        Assert.assertTrue(exception.getCause() instanceof InvalidCharacterException);
+    }
+
+    @Test
+    public void testParserErrorIsReported() {
+        Assert.assertThrows(UnexpectedEOFException.class, () -> compilePipelined("inteiro a = 1!\n inteiro b = "));
+    }
+
+    @Test
+    public void testSemanticErrorIsReported() {
+        Assert.assertThrows(TypeMismatchException.class, () -> compilePipelined("inteiro a = 1!\n inteiro b = 2,0!"));
+    }
+
+    @Test
+    public void testFirstErrorMatchesSequential() {
+        // a instrução com erro semântico ainda está no lote da etapa sintática quando ela falha
+        String input = "inteiro a = 1,0!\n imprimir(a)!\n imprimir(!";
+        Assert.assertThrows(TypeMismatchException.class,
+            () -> Compiler.compile(new InputStream(input), "Main", new StringWriter()));
+        Assert.assertThrows(TypeMismatchException.class, () -> compilePipelined(input));
+    }
+
+    @Test(timeout = 10_000)
+    public void testErrorInStageIsRethrown() {
+        // o léxico falha com um Error, que precisa chegar à geração em vez de deixá-la esperando a fila
+        ReadableByteChannel failing = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) {
+                throw new AssertionError("falha na leitura");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {}
+        };
+
+        AssertionError error = Assert.assertThrows(AssertionError.class,
+            () -> CompilerPipeline.compile(new InputStream(failing), "Main", new StringWriter()));
+        Assert.assertEquals("falha na leitura", error.getMessage());
+    }
+}
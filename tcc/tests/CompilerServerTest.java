@@ -0,0 +1,90 @@
+package tcc.tests;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tcc.CompilerClient;
+import tcc.CompilerServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CompilerServerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path socketPath;
+    private Thread serverThread;
+
+    @Before
+    public void startServer() throws Exception {
+        socketPath = folder.getRoot().toPath().resolve("compilador.sock");
+        serverThread = new Thread(() -> {
+            try {
+                new CompilerServer(socketPath).serve();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.start();
+
+        while (!Files.exists(socketPath)) {
+            Assert.assertTrue("servidor terminou antes de abrir o socket", serverThread.isAlive());
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        request(List.of(CompilerServer.SHUTDOWN), new ByteArrayOutputStream());
+        serverThread.join(5000);
+        Assert.assertFalse(serverThread.isAlive());
+    }
+
+    private int request(List<String> args, ByteArrayOutputStream err) {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        return CompilerClient.request(socketPath, folder.getRoot().toPath(), args, out, new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            // todos os arquivos declaram as mesmas variáveis, então estado compartilhado geraria redeclarações
+            Files.writeString(folder.getRoot().toPath().resolve("prog" + i + ".cafe"), "inteiro a = " + i + "!\nreal b = a / 2,0!\nimprimir(b)!");
+            String fileName = "prog" + i + ".cafe";
+            results.add(executor.submit(() -> request(List.of(fileName), new ByteArrayOutputStream())));
+        }
+
+        for (Future<Integer> result : results) {
+            Assert.assertEquals(0, (int) result.get());
+        }
+        executor.shutdown();
+
+        for (int i = 0; i < 16; i++) {
+            String output = Files.readString(folder.getRoot().toPath().resolve("Prog" + i + ".java"));
+            Assert.assertTrue(output.contains("int a = " + i + ";"));
+        }
+    }
+
+    @Test
+    public void testErrorsAreReported() throws Exception {
+        Files.writeString(folder.getRoot().toPath().resolve("ruim.cafe"), "imprimir(x)!");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        Assert.assertEquals(1, request(List.of("ruim.cafe"), err));
+        Assert.assertTrue(err.toString(StandardCharsets.UTF_8).contains("não foi declarada"));
+    }
+}
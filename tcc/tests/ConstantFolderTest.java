@@ -0,0 +1,105 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.nodes.ProgramNode;
+import tcc.optimizer.ConstantFolder;
+import tcc.optimizer.Optimizer;
+
+import java.io.ByteArrayOutputStream;
+
+public class ConstantFolderTest {
+
+    @Test
+    public void testAverageReducesToLiteral() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro p1 = 4! \n inteiro p2 = 5! \n inteiro p3 = 6! \n inteiro p4 = 7! \n"
+            + "real média = (p1+p2+p3+p4) / 4,0! \n imprimir(média)!";
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint p1 = 4;
+            \t\tint p2 = 5;
+            \t\tint p3 = 6;
+            \t\tint p4 = 7;
+            \t\tdouble media = 5.5;
+            \t\tSystem.out.println(5.5);
+            \t}
+            }
+            """, generateFolded(input));
+    }
+
+    @Test
+    public void testIntegerSemantics() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro a = 7 / 2! \n inteiro b = 2147483647 + 1! \n real c = 7 / 2 * 1,0! \n real d = a / 2,0! \n"
+            + "imprimir(a)! \n imprimir(b)! \n imprimir(c)! \n imprimir(d)!";
+
+        String output = generateFolded(input);
+        Assert.assertTrue(output, output.contains("int a = 3;"));
+        Assert.assertTrue(output, output.contains("int b = -2147483648;"));
+        Assert.assertTrue(output, output.contains("double c = 3.0;"));
+        Assert.assertTrue(output, output.contains("double d = 1.5;"));
+    }
+
+    @Test
+    public void testAssignmentsUpdateKnownValues() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro a = 1! \n a = a + 1! \n inteiro b = a * 10! \n imprimir(b = a + b)! \n imprimir(b)!";
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint a = 1;
+            \t\ta = 2;
+            \t\tint b = 20;
+            \t\tSystem.out.println(b = 22);
+            \t\tSystem.out.println(22);
+            \t}
+            }
+            """, generateFolded(input));
+    }
+
+    @Test
+    public void testFoldedProgramPrintsTheSame() throws Exception {
+        String input = "inteiro a = 17! \n real b = 0,1! \n real c = b + 0,2! \n inteiro d = a / 3 - a * 2! \n"
+            + "imprimir(c)! \n imprimir(d)! \n imprimir(a / 4 * b)! \n d = a * a * a * a * a * a * a * a! \n c = d * 1,0! \n imprimir(c)!";
+
+        InMemoryRunner runner = new InMemoryRunner();
+        String original = generate(analyze(input));
+        String folded = generateFolded(input);
+
+        Assert.assertNotEquals(original, folded);
+        Assert.assertEquals(capture(runner, original), capture(runner, folded));
+    }
+
+    @Test
+    public void testStreamingOptimization() throws Exception {
+        String input = "inteiro a = 2! \n real b = a * 1,5! \n imprimir(b + a)!";
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Compiler.compile(new InputStream(input), new Optimizer().emitter(new BytecodeGenerator("Main").emitter(output)));
+
+        ProgramNode folded = new Optimizer().optimize(analyze(input));
+        Assert.assertArrayEquals(BytecodeGenerator.generate(folded, "Main"), output.toByteArray());
+    }
+
+    private static String generateFolded(String input) throws ParserException, SemanticAnalyzerException {
+        return generate(new ConstantFolder().fold(analyze(input)));
+    }
+
+    private static String generate(ProgramNode programNode) {
+        return new JavaGenerator().generate(programNode, "Main");
+    }
+
+    private static ProgramNode analyze(String input) throws ParserException, SemanticAnalyzerException {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(input))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        return programNode;
+    }
+
+    private static String capture(InMemoryRunner runner, String source) throws Exception {
+        return ProgramOutput.capture(() -> runner.run("Main", source, new String[0]));
+    }
+}
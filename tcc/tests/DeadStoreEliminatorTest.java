@@ -0,0 +1,115 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.nodes.ProgramNode;
+import tcc.optimizer.DeadStoreEliminator;
+import tcc.optimizer.Optimizer;
+
+public class DeadStoreEliminatorTest {
+
+    @Test
+    public void testOverwrittenInitializer() throws ParserException, SemanticAnalyzerException {
+        DeadStoreEliminator eliminator = new DeadStoreEliminator();
+        String output = generate(eliminator.eliminate(analyze("inteiro a = 1! \n a = 2! \n imprimir(a)!")));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint a;
+            \t\ta = 2;
+            \t\tSystem.out.println(a);
+            \t}
+            }
+            """, output);
+        Assert.assertEquals(0, eliminator.getRemovedStatements());
+        Assert.assertEquals(1, eliminator.getRemovedStores());
+    }
+
+    @Test
+    public void testUnusedVariables() throws ParserException, SemanticAnalyzerException {
+        DeadStoreEliminator eliminator = new DeadStoreEliminator();
+        String output = generate(eliminator.eliminate(analyze("inteiro a = 1! \n real b! \n b = a * 2,0! \n imprimir(3)!")));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tSystem.out.println(3);
+            \t}
+            }
+            """, output);
+        Assert.assertEquals(3, eliminator.getRemovedStatements());
+    }
+
+    @Test
+    public void testNestedAssignmentsKeepLiveStores() throws ParserException, SemanticAnalyzerException {
+        DeadStoreEliminator eliminator = new DeadStoreEliminator();
+        String input = "inteiro a! \n inteiro b! \n inteiro c! \n a = b = 3! \n imprimir(c = b + 1)! \n imprimir(b)!";
+        String output = generate(eliminator.eliminate(analyze(input)));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint b;
+            \t\tb = 3;
+            \t\tSystem.out.println((b + 1));
+            \t\tSystem.out.println(b);
+            \t}
+            }
+            """, output);
+        Assert.assertEquals(2, eliminator.getRemovedStatements());
+        Assert.assertEquals(2, eliminator.getRemovedStores());
+    }
+
+    @Test
+    public void testDeclarationKeepsSideEffects() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro a! \n inteiro b = a = 4! \n imprimir(a)!";
+        String output = generate(new DeadStoreEliminator().eliminate(analyze(input)));
+
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint a;
+            \t\ta = 4;
+            \t\tSystem.out.println(a);
+            \t}
+            }
+            """, output);
+    }
+
+    @Test
+    public void testGeneratedProgramBehavesTheSame() throws Exception {
+        ProgramNode programNode = analyze(ProgramGenerator.generate(400));
+        InMemoryRunner runner = new InMemoryRunner();
+
+        DeadStoreEliminator eliminator = new DeadStoreEliminator();
+        ProgramNode eliminated = eliminator.eliminate(programNode);
+        ProgramNode optimized = new Optimizer().optimize(programNode);
+
+        // as variáveis valor e peso nunca são lidas
+        Assert.assertEquals(200, eliminator.getRemovedStatements());
+        Assert.assertTrue(optimized.statements().size() < eliminated.statements().size());
+
+        String expected = run(runner, programNode);
+        Assert.assertEquals(expected, run(runner, eliminated));
+        Assert.assertEquals(expected, run(runner, optimized));
+    }
+
+    private static String generate(ProgramNode programNode) {
+        return new JavaGenerator().generate(programNode, "Main");
+    }
+
+    private static ProgramNode analyze(String input) throws ParserException, SemanticAnalyzerException {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(input))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        return programNode;
+    }
+
+    private static String run(InMemoryRunner runner, ProgramNode programNode) throws Exception {
+        return ProgramOutput.capture(() -> runner.run("Main", generate(programNode), new String[0]));
+    }
+}
@@ -0,0 +1,99 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.nodes.ProgramNode;
+import tcc.optimizer.CommonSubexpressionEliminator;
+import tcc.optimizer.DeadStoreEliminator;
+import tcc.optimizer.Optimizer;
+
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DeepExpressionTest {
+    private static final int TERMS = 200_000;
+    // bem menor que a pilha padrão, para que qualquer recursão por nível da expressão estoure
+    private static final long STACK_SIZE = 256 * 1024;
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    @Test
+    public void testLongExpression() throws Throwable {
+        runWithSmallStack(() -> {
+            ProgramNode programNode = compile(ProgramGenerator.generateLongExpression(TERMS));
+            // os termos se cancelam em pares depois dos dois primeiros
+            Assert.assertEquals("System.out.println(2);", optimizedStatement(programNode));
+            checkOptimizers(programNode);
+        });
+    }
+
+    @Test
+    public void testNestedExpression() throws Throwable {
+        runWithSmallStack(() -> {
+            ProgramNode programNode = compile(ProgramGenerator.generateNestedExpression(TERMS));
+            Assert.assertEquals("System.out.println(" + (TERMS + 1) + ");", optimizedStatement(programNode));
+            checkOptimizers(programNode);
+        });
+    }
+
+    @Test
+    public void testAssignmentChain() throws Throwable {
+        runWithSmallStack(() -> {
+            ProgramNode programNode = compile(ProgramGenerator.generateAssignmentChain(TERMS));
+            // só a atribuição mais externa sobrevive, já que as outras são sobrescritas antes de serem lidas
+            String output = new JavaGenerator().generate(new Optimizer().optimize(programNode), "Main");
+            Assert.assertTrue(output.contains("\t\ta = 1;\n\t\tSystem.out.println(a);\n"));
+            checkOptimizers(programNode);
+        });
+    }
+
+    @Test
+    public void testNestedParenthesesKeepPrecedence() throws Exception {
+        ProgramNode programNode = compile("imprimir(" + "(".repeat(50) + "2 - 3" + ")".repeat(50) + " * 4 - 5 * (6 - 7))!");
+        Assert.assertEquals("System.out.println((((2 - 3) * 4) - (5 * (6 - 7))));",
+            new JavaGenerator().generate(programNode, "Main").lines().skip(2).findFirst().orElseThrow().trim());
+    }
+
+    private static ProgramNode compile(String program) throws Exception {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(program))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        new JavaGenerator().generate(programNode, "Main", new StringWriter());
+        return programNode;
+    }
+
+    private static String optimizedStatement(ProgramNode programNode) {
+        ProgramNode optimized = new Optimizer().optimize(programNode);
+        BytecodeGenerator.generate(optimized, "Main");
+
+        String output = new JavaGenerator().generate(optimized, "Main");
+        return output.lines().skip(2).findFirst().orElseThrow().trim();
+    }
+
+    // os passes também precisam aguentar a árvore sem a propagação de constantes na frente
+    private static void checkOptimizers(ProgramNode programNode) {
+        ProgramNode eliminated = new CommonSubexpressionEliminator().eliminate(programNode);
+        new DeadStoreEliminator().eliminate(eliminated);
+        new JavaGenerator().generate(eliminated, "Main");
+    }
+
+    private static void runWithSmallStack(Check check) throws Throwable {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                check.run();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "expressao-profunda", STACK_SIZE);
+        thread.start();
+        thread.join();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
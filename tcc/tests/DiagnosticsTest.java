@@ -0,0 +1,109 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tcc.*;
+import tcc.exceptions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class DiagnosticsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Diagnostic> diagnose(String input, int maxErrors) throws IOException {
+        return compile(input, maxErrors).getErrors();
+    }
+
+    private static Diagnostics compile(String input, int maxErrors) throws IOException {
+        Diagnostics diagnostics = new Diagnostics(maxErrors);
+        Compiler.compile(new InputStream(input), new JavaGenerator().emitter("Main", new StringWriter()), diagnostics);
+        return diagnostics;
+    }
+
+    @Test
+    public void testAllErrorsInOnePass() throws IOException {
+        String input = """
+            inteiro a = 1!
+            inteiro b = $!
+            real c = a +!
+              imprimir(d)!
+            inteiro e = 2,0!
+            imprimir(e + a)!
+            """;
+
+        Assert.assertEquals(List.of(
+            new Diagnostic(2, 13, "Caractere inválido '$' na linha 2"),
+            new Diagnostic(3, 13, new UnexpectedTokenException("esperado número ou identificador").getMessage()),
+            new Diagnostic(4, 3, new UndeclaredIdentifierException("d").getMessage()),
+            new Diagnostic(5, 1, new TypeMismatchException("2.0", DataType.INT).getMessage())
+        ), diagnose(input, 100));
+    }
+
+    @Test
+    public void testMissingTerminatorSkipsToNextOne() throws IOException {
+        List<Diagnostic> errors = diagnose("inteiro a = 1!\na = 2\nimprimir(a)!\nimprimir(x)!\nimprimir(a)!", 100);
+
+        Assert.assertEquals(2, errors.size());
+        Assert.assertEquals(new Diagnostic(3, 1, new UnexpectedTokenException(new tcc.tokens.PuncToken(Punctuation.EXCLAMATION_MARK)).getMessage()),
+            errors.get(0));
+        Assert.assertEquals(4, errors.get(1).line());
+    }
+
+    @Test
+    public void testMaxErrors() throws IOException {
+        List<Diagnostic> errors = diagnose("imprimir(x)!\n".repeat(10), 3);
+
+        Assert.assertEquals(3, errors.size());
+        Assert.assertEquals(3, errors.get(2).line());
+    }
+
+    @Test
+    public void testExactlyMaxErrorsIsNotTruncated() throws IOException {
+        for (String input : new String[]{"imprimir(x)!\n".repeat(3), "imprimir(1)!\nimprimir(x)!\n".repeat(3),
+            "imprimir(x)!\nimprimir(y)!\nimprimir(1 +)!"}) {
+            Diagnostics diagnostics = compile(input, 3);
+
+            Assert.assertEquals(3, diagnostics.getErrors().size());
+            Assert.assertFalse(input, diagnostics.isTruncated());
+        }
+
+        // um erro a mais, sintático ou semântico, fica de fora
+        for (String input : new String[]{"imprimir(x)!\n".repeat(4), "imprimir(x)!\n".repeat(3) + "imprimir(1 +)!"}) {
+            Diagnostics diagnostics = compile(input, 3);
+
+            Assert.assertTrue(input, diagnostics.isTruncated());
+        }
+    }
+
+    @Test
+    public void testNoOutputAfterErrors() throws IOException {
+        StringWriter output = new StringWriter();
+        Diagnostics diagnostics = new Diagnostics();
+        Compiler.compile(new InputStream("imprimir(1)!\nimprimir(x)!\nimprimir(2)!"),
+            new JavaGenerator().emitter("Main", output), diagnostics);
+
+        Assert.assertTrue(diagnostics.hasErrors());
+        Assert.assertFalse(output.toString().contains("println(2)"));
+    }
+
+    @Test
+    public void testPipelinedFileReportsEveryError() throws IOException {
+        Path source = folder.getRoot().toPath().resolve("erros.cafe");
+        Path output = folder.getRoot().toPath().resolve("Erros.java");
+        Files.writeString(source, "inteiro a = 1,0!\nimprimir(a)!\nimprimir(b)!\n");
+
+        CompilationException exception = Assert.assertThrows(CompilationException.class,
+            () -> Compiler.compile(source, output, true));
+
+        Assert.assertEquals(List.of(1, 3), exception.getDiagnostics().stream().map(Diagnostic::line).toList());
+        Assert.assertFalse(exception.isTruncated());
+        Assert.assertFalse(Files.exists(output));
+    }
+}
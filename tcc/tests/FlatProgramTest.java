@@ -0,0 +1,86 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.exceptions.ParserException;
+import tcc.exceptions.SemanticAnalyzerException;
+import tcc.exceptions.UndeclaredIdentifierException;
+import tcc.nodes.FlatProgram;
+import tcc.nodes.ProgramNode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class FlatProgramTest {
+
+    @Test
+    public void testRoundTrip() throws ParserException {
+        String input = "inteiro a = 1! \n real b! \n b = a * 2,5 - (a = 3)! \n imprimir(b / a)! \n a + 1!";
+        ProgramNode programNode = parser(input).parseTopLevel();
+
+        FlatProgram flatProgram = FlatProgram.of(programNode);
+
+        Assert.assertEquals(programNode, flatProgram.toProgramNode());
+        Assert.assertEquals(5, flatProgram.statementCount());
+        Assert.assertEquals(2, flatProgram.getSymbols().size());
+    }
+
+    @Test
+    public void testLayout() throws ParserException {
+        FlatProgram flatProgram = parser("real x = 1 + 2,5!").parseFlat();
+
+        int declaration = flatProgram.statement(0);
+        Assert.assertEquals(FlatProgram.DECLARATION, flatProgram.kind(declaration));
+        Assert.assertEquals(DataType.DOUBLE, flatProgram.dataType(declaration));
+        Assert.assertEquals("x", flatProgram.name(declaration));
+
+        int sum = flatProgram.right(declaration);
+        Assert.assertEquals(FlatProgram.BINARY, flatProgram.kind(sum));
+        Assert.assertEquals(Operator.PLUS_SIGN, flatProgram.operator(sum));
+        Assert.assertEquals(1, flatProgram.intValue(flatProgram.left(sum)));
+        Assert.assertEquals(2.5, flatProgram.doubleValue(flatProgram.right(sum)), 0.0);
+    }
+
+    @Test
+    public void testAddAfterTrim() throws ParserException {
+        FlatProgram flatProgram = parser("inteiro a = 1!").parseFlat();
+        flatProgram.add(parser("imprimir(a + 2,0)!").parseTopLevel().statements().get(0));
+
+        Assert.assertEquals(parser("inteiro a = 1! imprimir(a + 2,0)!").parseTopLevel(), flatProgram.toProgramNode());
+    }
+
+    @Test
+    public void testGeneratesSameCode() throws ParserException, SemanticAnalyzerException, IOException {
+        String input = ProgramGenerator.generate(1000);
+        ProgramNode programNode = parser(input).parseTopLevel();
+        FlatProgram flatProgram = parser(input).parseFlat();
+
+        new SemanticAnalyzer().analyze(flatProgram);
+        StringWriter output = new StringWriter();
+        new JavaGenerator().generate(flatProgram, "Main", output);
+
+        Assert.assertEquals(new JavaGenerator().generate(programNode, "Main"), output.toString());
+    }
+
+    @Test
+    public void testDeepExpression() throws ParserException, IOException {
+        String input = ProgramGenerator.generateNestedExpression(100_000);
+        StringWriter expected = new StringWriter();
+        new JavaGenerator().generate(parser(input).parseTopLevel(), "Main", expected);
+        StringWriter output = new StringWriter();
+        new JavaGenerator().generate(parser(input).parseFlat(), "Main", output);
+
+        Assert.assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test(expected = UndeclaredIdentifierException.class)
+    public void testAnalyzerErrors() throws ParserException, SemanticAnalyzerException {
+        new SemanticAnalyzer().analyze(parser("inteiro a = 1! \n imprimir(b)!").parseFlat());
+    }
+
+    private static Parser parser(String input) {
+        return new Parser(new TokenStream(new InputStream(input)));
+    }
+}
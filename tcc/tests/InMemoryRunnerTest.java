@@ -0,0 +1,61 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+
+public class InMemoryRunnerTest {
+    private static final String PROGRAM = "inteiro a = 3! \n real b = 2,5! \n imprimir(a * b)! \n imprimir(a / 2)!";
+    private static final String EXPECTED = "7.5" + System.lineSeparator() + "1" + System.lineSeparator();
+
+    @Test
+    public void testRunJavaBackend() throws Exception {
+        Assert.assertEquals(EXPECTED, ProgramOutput.run(PROGRAM, new GeneratorOptions(Backend.JAVA, false)));
+    }
+
+    @Test
+    public void testRunBytecodeBackend() throws Exception {
+        Assert.assertEquals(EXPECTED, ProgramOutput.run(PROGRAM, new GeneratorOptions(Backend.BYTECODE, false)));
+    }
+
+    @Test
+    public void testRunnerIsReusable() throws Exception {
+        InMemoryRunner runner = new InMemoryRunner();
+        String first = "public class Main { public static void main(String[] args) { System.out.println(1); } }";
+        String second = "public class Main { public static void main(String[] args) { System.out.println(2); } }";
+
+        // cada execução usa seu próprio class loader, então a mesma classe pode ser redefinida
+        Assert.assertEquals("1" + System.lineSeparator(),
+            ProgramOutput.capture(() -> runner.run("Main", first, new String[0])));
+        Assert.assertEquals("2" + System.lineSeparator(),
+            ProgramOutput.capture(() -> runner.run("Main", second, new String[0])));
+    }
+
+    @Test
+    public void testGeneratedClassShadowsClasspath() throws Exception {
+        InMemoryRunner runner = new InMemoryRunner();
+        // esta própria classe está no class loader pai, e não tem main
+        String source = "package tcc.tests; public class InMemoryRunnerTest { "
+            + "public static void main(String[] args) { System.out.println(\"gerada\"); } }";
+
+        Assert.assertEquals("gerada" + System.lineSeparator(),
+            ProgramOutput.capture(() -> runner.run("tcc.tests.InMemoryRunnerTest", source, new String[0])));
+    }
+
+    @Test
+    public void testCompileErrorIsReported() {
+        InMemoryRunner runner = new InMemoryRunner();
+        IllegalStateException error = Assert.assertThrows(IllegalStateException.class,
+            () -> runner.compile("Main", "public class Main { int x = ; }"));
+
+        Assert.assertTrue(error.getMessage(), error.getMessage().contains("linha 1"));
+    }
+
+    @Test
+    public void testRuntimeErrorIsUnwrapped() {
+        InMemoryRunner runner = new InMemoryRunner();
+        String source = "public class Main { public static void main(String[] args) { int z = 0; System.out.println(1 / z); } }";
+
+        Assert.assertThrows(ArithmeticException.class, () -> runner.run("Main", source, new String[0]));
+    }
+}
@@ -0,0 +1,185 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.exceptions.ParserException;
+import tcc.nodes.ProgramNode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalCompilerTest {
+    private static final String PROGRAM = """
+        inteiro a = 1!
+        real b = 2,5! # comentário!
+        a = a + 1! imprimir(a)!
+        imprimir(b / a)!
+        """;
+
+    @Test
+    public void testSameAsFullCompile() throws IOException, ParserException {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+
+        assertSameAsFullCompile(compiler);
+        Assert.assertFalse(compiler.hasErrors());
+    }
+
+    @Test
+    public void testEditReparsesOnlyTouchedStatements() throws IOException, ParserException {
+        String program = ProgramGenerator.generate(1000);
+        IncrementalCompiler compiler = new IncrementalCompiler(program);
+        compiler.getDiagnostics();
+
+        int offset = program.indexOf("inteiro valor500 = 500");
+        compiler.edit(offset + "inteiro valor500 = ".length(), 3, "501");
+        compiler.getDiagnostics();
+
+        Assert.assertEquals(1, compiler.getReparsedStatements());
+        Assert.assertEquals(1000 - 500 + 2, compiler.getReanalyzedStatements());
+        assertSameAsFullCompile(compiler);
+    }
+
+    @Test
+    public void testWhitespaceEditIsNotReanalyzed() throws IOException, ParserException {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        compiler.getDiagnostics();
+
+        compiler.edit(PROGRAM.indexOf("= 1"), 0, "   ");
+        compiler.getDiagnostics();
+
+        Assert.assertEquals(0, compiler.getReanalyzedStatements());
+        assertSameAsFullCompile(compiler);
+    }
+
+    @Test
+    public void testCommentChangesTheRestOfTheLine() throws IOException, ParserException {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+
+        // o '#' esconde o '!' seguinte, e as duas instruções da linha viram uma só, com erro
+        compiler.edit(PROGRAM.indexOf("a = a + 1!") + "a = a + 1".length(), 0, " #");
+        Assert.assertEquals(1, compiler.getDiagnostics().size());
+        assertSameAsFullCompile(compiler);
+
+        compiler.edit(PROGRAM.indexOf("a = a + 1!") + "a = a + 1".length(), 2, "");
+        Assert.assertFalse(compiler.hasErrors());
+        assertSameAsFullCompile(compiler);
+    }
+
+    @Test
+    public void testErrorsFollowTheirStatements() throws IOException, ParserException {
+        IncrementalCompiler compiler = new IncrementalCompiler("imprimir(x)! imprimir($)!\nimprimir(y)!");
+        List<Diagnostic> before = compiler.getDiagnostics();
+        Assert.assertEquals(List.of(1, 1, 2), before.stream().map(Diagnostic::line).toList());
+
+        compiler.edit(0, 0, "inteiro x = 1!\n\n  ");
+
+        Assert.assertEquals(List.of(new Diagnostic(3, 25, "Caractere inválido '$' na linha 3"),
+            new Diagnostic(4, 1, before.get(2).message())), compiler.getDiagnostics());
+        assertSameAsFullCompile(compiler);
+    }
+
+    @Test
+    public void testTyping() throws IOException, ParserException {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        for (char ch : PROGRAM.toCharArray()) {
+            compiler.edit(compiler.getText().length(), 0, String.valueOf(ch));
+            assertSameAsFullCompile(compiler);
+        }
+
+        Assert.assertEquals(PROGRAM, compiler.getText());
+        Assert.assertEquals(5, compiler.getProgram().statements().size());
+    }
+
+    @Test
+    public void testRandomEdits() throws IOException, ParserException {
+        Random random = new Random(19);
+        String[] pieces = {"!", "#", "\n", " ", "a", "b", "=", "+", "/", "0", "1", "2,5", "(", ")", "$", "inteiro ",
+            "real ", "imprimir(a)", "inteiro a = 1!\n", "real b!\n", "a = a / 0!\n", "b = 1,0!"};
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+
+        for (int i = 0; i < 2000; i++) {
+            String text = compiler.getText();
+            int offset = random.nextInt(text.length() + 1);
+            int length = random.nextInt(Math.min(4, text.length() - offset) + 1);
+            String replacement = random.nextInt(3) == 0 ? "" : pieces[random.nextInt(pieces.length)];
+            compiler.edit(offset, length, replacement);
+
+            Assert.assertEquals(text.substring(0, offset) + replacement + text.substring(offset + length),
+                compiler.getText());
+            assertSameAsFullCompile(compiler);
+        }
+    }
+
+    @Test
+    public void testEditsAreAnalyzedOnce() throws IOException, ParserException {
+        String program = ProgramGenerator.generate(3000);
+        IncrementalCompiler compiler = new IncrementalCompiler(program);
+        compiler.getDiagnostics();
+
+        int offset = program.indexOf("inteiro valor500 = ") + "inteiro valor500 = ".length();
+        for (int i = 0; i < 10; i++) {
+            compiler.edit(offset, 1, String.valueOf(i));
+        }
+        compiler.edit(0, 0, "inteiro x = 1 / 0!\n");
+
+        Assert.assertEquals(0, compiler.getReanalyzedStatements());
+        // a análise para depois do primeiro grupo de instruções e continua dali
+        Assert.assertFalse(compiler.analyze(() -> true));
+        Assert.assertEquals(1024, compiler.getReanalyzedStatements());
+        Assert.assertTrue(compiler.analyze(() -> false));
+        Assert.assertEquals(3000 + 5, compiler.getReanalyzedStatements());
+        assertSameAsFullCompile(compiler);
+    }
+
+    @Test
+    public void testDeclarationAt() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        String text = compiler.getText();
+
+        IncrementalCompiler.Declaration declaration = compiler.declarationAt(text.indexOf("b / a")).orElseThrow();
+        Assert.assertEquals(new IncrementalCompiler.Declaration("b", DataType.DOUBLE, 2, 6), declaration);
+        // logo depois do nome ainda vale
+        Assert.assertEquals("a", compiler.declarationAt(text.indexOf("a)!") + 1).orElseThrow().name());
+        Assert.assertTrue(compiler.declarationAt(text.indexOf("imprimir")).isEmpty());
+        Assert.assertTrue(compiler.declarationAt(text.indexOf("comentário")).isEmpty());
+
+        compiler.edit(0, 0, "# nova linha\n   ");
+        Assert.assertEquals(new IncrementalCompiler.Declaration("a", DataType.INT, 2, 12),
+            compiler.declarationAt(compiler.getText().indexOf("a + 1")).orElseThrow());
+    }
+
+    @Test
+    public void testOffset() {
+        IncrementalCompiler compiler = new IncrementalCompiler(PROGRAM);
+        String text = compiler.getText();
+
+        Assert.assertEquals(0, compiler.offset(1, 1));
+        Assert.assertEquals(text.indexOf("imprimir(a)"), compiler.offset(3, 12));
+        Assert.assertEquals(text.indexOf("imprimir(b"), compiler.offset(4, 1));
+        // colunas depois do fim da linha e linhas depois do fim do texto
+        Assert.assertEquals(text.indexOf("\n"), compiler.offset(1, 100));
+        Assert.assertEquals(text.length(), compiler.offset(50, 1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testEditOutsideText() {
+        new IncrementalCompiler("imprimir(1)!").edit(10, 5, "");
+    }
+
+    private static void assertSameAsFullCompile(IncrementalCompiler compiler) throws IOException, ParserException {
+        String text = compiler.getText();
+        Diagnostics diagnostics = new Diagnostics(Integer.MAX_VALUE);
+        Compiler.compile(new InputStream(text), new JavaGenerator().emitter("Main", new StringWriter()), diagnostics);
+        Assert.assertEquals(text, diagnostics.getErrors(), compiler.getDiagnostics());
+        Assert.assertEquals(diagnostics.hasErrors(), compiler.hasErrors());
+
+        if (!diagnostics.hasErrors()) {
+            ProgramNode expected = new Parser(new TokenStream(new InputStream(text))).parseTopLevel();
+            Assert.assertEquals(expected, compiler.getProgram());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.Compiler;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.exceptions.CompilationException;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class InterpreterTest {
+    private static final String PROGRAM = "inteiro a = 3!\n"
+        + "real b = 2,5!\n"
+        + "imprimir(a * b)!\n"
+        + "imprimir(a / 2)!\n"
+        + "imprimir(7 / a - a * 2)!\n"
+        + "inteiro c = a = a + 1!\n"
+        + "imprimir(c + a)!\n"
+        + "real d = 10000000,0 * 1000,0!\n"
+        + "imprimir(d)!\n"
+        + "imprimir(d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d * d)!\n"
+        + "imprimir(2147483647 + a)!\n"
+        + "b = b * 2 + a!\n"
+        + "imprimir(b)!\n"
+        + "(a + 1) * 2!\n";
+
+    @Test
+    public void testSameOutputAsGeneratedCode() throws Exception {
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), interpret(PROGRAM, false));
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), interpret(PROGRAM, true));
+    }
+
+    @Test
+    public void testGeneratedProgram() throws Exception {
+        String program = ProgramGenerator.generate(2_000);
+        Assert.assertEquals(ProgramOutput.runBytecode(program), interpret(program, false));
+    }
+
+    @Test
+    public void testErrorsStopExecution() {
+        CompilationException error = Assert.assertThrows(CompilationException.class,
+            () -> interpret("imprimir(1)!\nimprimir(x)!", false));
+
+        Assert.assertEquals(List.of(2), error.getDiagnostics().stream().map(Diagnostic::line).toList());
+    }
+
+    @Test
+    public void testDeepExpressions() throws Throwable {
+        // bem menor que a pilha padrão, para que uma closure por nível da expressão estoure
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                Assert.assertEquals("200001" + System.lineSeparator(),
+                    interpret(ProgramGenerator.generateNestedExpression(200_000), false));
+                Assert.assertEquals("1" + System.lineSeparator(),
+                    interpret(ProgramGenerator.generateAssignmentChain(200_000), false));
+                Assert.assertEquals("2" + System.lineSeparator(),
+                    interpret(ProgramGenerator.generateLongExpression(200_000), false));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "interpretador", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    @Test
+    public void testInterpretOption() {
+        CompilerOptions options = CompilerOptions.parse(new String[]{"--interpret", "-O", "programa.cafe"});
+        Assert.assertTrue(options.interpret());
+        Assert.assertTrue(options.generator().optimize());
+
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> CompilerOptions.parse(new String[]{"--interpret", "a.cafe", "b.cafe"}));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> CompilerOptions.parse(new String[]{"--interpret", "--run", "a.cafe"}));
+    }
+
+    private static String interpret(String program, boolean optimize) throws Exception {
+        StringWriter output = new StringWriter();
+        Compiler.interpret(new InputStream(program), output, new GeneratorOptions(Backend.JAVA, optimize),
+            Diagnostics.DEFAULT_MAX_ERRORS);
+        return output.toString();
+    }
+}
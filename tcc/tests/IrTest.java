@@ -0,0 +1,160 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tcc.*;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.ir.*;
+import tcc.nodes.ProgramNode;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IrTest {
+    private static final String PROGRAM = "inteiro a = 3!\n"
+        + "real b = 2,5!\n"
+        + "imprimir(a * b)!\n"
+        + "imprimir(a / 2)!\n"
+        + "imprimir(7 / a - a * 2)!\n"
+        + "inteiro c = a = a + 1!\n"
+        + "imprimir(c + a)!\n"
+        + "imprimir(a + (a = 10) * a)!\n"
+        + "real d = 10000000,0 * 1000,0!\n"
+        + "imprimir(d)!\n"
+        + "imprimir(2147483647 + a)!\n"
+        + "b = b * 2 + a!\n"
+        + "imprimir(b)!\n"
+        + "imprimir(1)!\n"
+        + "(a + 1) * 2!\n";
+
+    @Test
+    public void testLoweringMakesWideningExplicit() throws Exception {
+        IrProgram program = IrBuilder.lower(
+            ProgramOutput.parse("inteiro a = 3!\nreal b = a * 2,5!\na = a + 1!\nimprimir(b + a)!"));
+        program.verify();
+
+        Assert.assertEquals("""
+            %0:int = 3
+            a.1:int = copy %0:int
+            %2:double = 2.5
+            %3:double = widen a.1:int
+            %4:double = mul %3:double, %2:double
+            b.5:double = copy %4:double
+            %6:int = 1
+            %7:int = add a.1:int, %6:int
+            a.8:int = copy %7:int
+            %9:double = widen a.8:int
+            %10:double = add b.5:double, %9:double
+            print %10:double
+            """, program.toString());
+    }
+
+    @Test
+    public void testStandardPasses() throws Exception {
+        IrProgram program = IrBuilder.lower(ProgramOutput.parse(
+            "inteiro a = 3!\nreal b = a * 2,5!\ninteiro c = 4!\na = a + 1!\nimprimir(b + a)!"));
+        PassManager passManager = new PassManager(
+            List.of(new ConstantPropagation(), new CopyPropagation(), new DeadCodeElimination()), true);
+        passManager.run(program);
+
+        Assert.assertEquals("%12:double = 11.5\nprint %12:double\n", program.toString());
+        Assert.assertTrue(passManager.getChanges().get("propagação de constantes") > 0);
+        Assert.assertTrue(passManager.getChanges().get("eliminação de código morto") > 0);
+    }
+
+    @Test
+    public void testCopyPropagationKeepsOldVersionsAlive() throws Exception {
+        String input = "inteiro b = 2 + 3!\ninteiro a = b!\nb = b * 2!\nimprimir(a + b)!\na = 7 / b!";
+        IrProgram program = IrBuilder.lower(ProgramOutput.parse(input));
+        new PassManager(List.of(new CopyPropagation(), new DeadCodeElimination()), true).run(program);
+
+        // a virou b, mas b é atribuída antes da leitura, então a versão nova precisa de outro nome no Java; a divisão
+        // ninguém lê, mas fica porque o divisor não é uma constante conhecida
+        StringWriter output = new StringWriter();
+        new JavaGenerator().generate(program, "Main", output);
+        Assert.assertEquals("""
+            public class Main {
+            \tpublic static void main(String[] args) {
+            \t\tint b = (2 + 3);
+            \t\tint b_1 = (b * 2);
+            \t\tSystem.out.println((b + b_1));
+            \t\tint a = (7 / b_1);
+            \t}
+            }
+            """, output.toString());
+    }
+
+    @Test
+    public void testDivisionThatMayThrowIsKept() {
+        IrProgram program = new IrProgram();
+        int zero = program.newValue(DataType.INT, "z");
+        int one = program.newValue(DataType.INT, null);
+        int quotient = program.newValue(DataType.INT, null);
+        int two = program.newValue(DataType.INT, null);
+        int half = program.newValue(DataType.INT, null);
+        program.add(new IntConstant(zero, 0));
+        program.add(new IntConstant(one, 1));
+        program.add(new Binary(quotient, DataType.INT, Operator.DIVISION_SIGN, one, zero));
+        program.add(new IntConstant(two, 2));
+        program.add(new Binary(half, DataType.INT, Operator.DIVISION_SIGN, one, two));
+        program.add(new Print(DataType.INT, one));
+
+        PassManager.standard().run(program);
+
+        // 1 / 2 vira constante e sai, mas 1 / 0 fica para lançar a exceção na execução
+        Assert.assertEquals("z.0:int = 0\n%1:int = 1\n%2:int = div %1:int, z.0:int\nprint %1:int\n", program.toString());
+    }
+
+    @Test
+    public void testSameOutputAsGeneratedCode() throws Exception {
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), runJava(PROGRAM));
+
+        String program = ProgramGenerator.generate(500);
+        Assert.assertEquals(ProgramOutput.runBytecode(program), runJava(program));
+
+        // sem a propagação de constantes as variáveis continuam no código gerado
+        ProgramNode programNode = ProgramOutput.parse(PROGRAM);
+        IrProgram ir = IrBuilder.lower(programNode);
+        new PassManager(List.of(new CopyPropagation(), new DeadCodeElimination()), true).run(ir);
+        StringWriter source = new StringWriter();
+        new JavaGenerator().generate(ir, "Main", source);
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM),
+            ProgramOutput.capture(() -> new InMemoryRunner().run("Main", source.toString(), new String[0])));
+    }
+
+    @Test
+    public void testDeepExpressions() throws Throwable {
+        // bem menor que a pilha padrão, para que qualquer recursão por nível da expressão estoure
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                for (String input : new String[]{ProgramGenerator.generateNestedExpression(200_000),
+                    ProgramGenerator.generateAssignmentChain(200_000), ProgramGenerator.generateLongExpression(200_000)}) {
+                    ProgramNode programNode = ProgramOutput.parse(input);
+
+                    IrProgram unoptimized = IrBuilder.lower(programNode);
+                    StringWriter output = new StringWriter();
+                    new JavaGenerator().generate(unoptimized, "Main", output);
+                    Assert.assertTrue(output.toString().contains("System.out.println("));
+
+                    IrProgram optimized = IrBuilder.lower(programNode);
+                    PassManager.standard().run(optimized);
+                    Assert.assertEquals(2, optimized.instructions().size());
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "representação intermediária", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static String runJava(String program) throws Exception {
+        return ProgramOutput.run(program, new GeneratorOptions(Backend.JAVA, true));
+    }
+}
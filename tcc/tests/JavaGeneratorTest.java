@@ -3,10 +3,15 @@ package tcc.tests;
 import org.junit.Assert;
 import org.junit.Test;
 import tcc.*;
+import tcc.Compiler;
+import tcc.benchmarks.ProgramGenerator;
 import tcc.exceptions.ParserException;
 import tcc.exceptions.SemanticAnalyzerException;
 import tcc.nodes.ProgramNode;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 public class JavaGeneratorTest {
 
     @Test
@@ -35,4 +40,129 @@ public class JavaGeneratorTest {
             }
             """, output);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStreamingMatchesWholeProgram() throws IOException, ParserException, SemanticAnalyzerException {
+        String input = "inteiro a = 1! \n real b! \n b = a * 2,5! \n imprimir(b + a)!";
+
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(input))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        String expected = new JavaGenerator().generate(programNode, "Main");
+
+        StringWriter output = new StringWriter();
+        Compiler.compile(new InputStream(input), "Main", output);
+
+        Assert.assertEquals(expected, output.toString());
+    }
+
+    @Test
+    public void testBufferedOutput() throws ParserException, SemanticAnalyzerException {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream("inteiro a = 1! \n imprimir(a * 2,5)!")))
+            .parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+
+        String output = new JavaGenerator(true, GeneratorOptions.DEFAULT_CHUNK_SIZE).generate(programNode, "Main");
+
+        Assert.assertTrue(output, output.contains("""
+            \tpublic static void main(String[] args) {
+            \t\ttry {
+            \t\t\tint a = 1;
+            \t\t\tprint((a * 2.5));
+            \t\t} finally {
+            \t\t\tflush();
+            \t\t}
+            \t}
+            }
+            """));
+        Assert.assertTrue(output.contains("private static void print(int value)"));
+        Assert.assertTrue(output.contains("private static void print(double value)"));
+    }
+
+    @Test
+    public void testBufferedOutputIsIdentical() throws Exception {
+        // mais de 64 KB de saída, para passar pelo descarregamento no meio do programa
+        String program = ProgramGenerator.generate(2_000) + "real x = 1,0! \n "
+            + "imprimir(x / 3)! imprimir(x = x * 0,5)! imprimir(x * 10000000,0 * 1000,0)! imprimir(2147483647 + 1)! ".repeat(800);
+
+        for (boolean optimize : new boolean[]{false, true}) {
+            Assert.assertEquals(ProgramOutput.run(program, new GeneratorOptions(Backend.JAVA, optimize)),
+                ProgramOutput.run(program, new GeneratorOptions(Backend.JAVA, optimize, true)));
+        }
+        Assert.assertEquals(new GeneratorOptions(Backend.JAVA, false, true),
+            CompilerOptions.parse(new String[]{"--buffered-output", "programa.cafe"}).generator());
+    }
+
+    @Test
+    public void testChunkedMethods() throws ParserException, SemanticAnalyzerException {
+        String input = "inteiro a = 1! \n real b! \n b = a * 2,5! \n imprimir(b)! \n a = a + 1! \n imprimir(a)!";
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(input))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+
+        Assert.assertEquals("""
+            public class Main {
+            \tprivate static void chunk0() {
+            \t\t_i0[0] = 1;
+            \t\t_d0[0] = (_i0[0] * 2.5);
+            \t}
+
+            \tprivate static void chunk1() {
+            \t\tSystem.out.println(_d0[0]);
+            \t\t_i0[0] = (_i0[0] + 1);
+            \t}
+
+            \tprivate static void chunk2() {
+            \t\tSystem.out.println(_i0[0]);
+            \t}
+
+            \tprivate static final int[] _i0 = new int[1];
+            \tprivate static final double[] _d0 = new double[1];
+
+            \tpublic static void main(String[] args) {
+            \t\tchunk0();
+            \t\tchunk1();
+            \t\tchunk2();
+            \t}
+            }
+            """, new JavaGenerator(false, 2).generate(programNode, "Main"));
+    }
+
+    @Test
+    public void testLargeProgramsAreChunked() throws Exception {
+        // um main só passaria do limite de 64 KB de bytecode
+        String program = ProgramGenerator.generate(6_000);
+        StringWriter expected = new StringWriter();
+        Compiler.interpret(new InputStream(program), expected, GeneratorOptions.DEFAULT, Diagnostics.DEFAULT_MAX_ERRORS);
+
+        for (boolean optimize : new boolean[]{false, true}) {
+            Assert.assertEquals(expected.toString(),
+                ProgramOutput.run(program, new GeneratorOptions(Backend.JAVA, optimize)));
+            // com mais de 1000 métodos, main chama métodos intermediários
+            Assert.assertEquals(expected.toString(),
+                ProgramOutput.run(program, new GeneratorOptions(Backend.JAVA, optimize, true, 5)));
+        }
+
+        StringWriter source = new StringWriter();
+        Compiler.compile(new InputStream(program), "Main", source);
+        Assert.assertTrue(source.toString().contains("\tprivate static void chunk29() {\n"));
+        Assert.assertEquals(150, CompilerOptions.parse(new String[]{"--chunk-size", "150", "programa.cafe"})
+            .generator().chunkSize());
+    }
+
+    @Test
+    public void testManyVariablesAreChunked() throws Exception {
+        // como campos estáticos, 33 mil variáveis passariam do limite de 65535 entradas no pool de constantes
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 33_000; i++) {
+            program.append("inteiro v").append(i).append(" = ").append(i).append("!\n");
+        }
+        program.append("real r = v32767 * 0,5!\nimprimir(v0 + v32999)!\nimprimir(v32768)!\nimprimir(r)!");
+
+        String expected = String.join(System.lineSeparator(), "32999", "32768", "16383.5") + System.lineSeparator();
+        Assert.assertEquals(expected, ProgramOutput.run(program.toString(), new GeneratorOptions(Backend.JAVA, false)));
+
+        StringWriter source = new StringWriter();
+        Compiler.compile(new InputStream(program.toString()), "Main", source);
+        Assert.assertTrue(source.toString().contains("\tprivate static final int[] _i0 = new int[32768];\n"));
+        Assert.assertTrue(source.toString().contains("\tprivate static final int[] _i1 = new int[232];\n"));
+    }
+}
@@ -0,0 +1,295 @@
+package tcc.tests;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.exceptions.UndeclaredIdentifierException;
+import tcc.lsp.Json;
+import tcc.lsp.LanguageServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class LanguageServerTest {
+    private static final String URI = "file:///programa.cafe";
+
+    private PipedOutputStream toServer;
+    private final BlockingQueue<Map<String, Object>> fromServer = new LinkedBlockingQueue<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private Future<Integer> server;
+
+    @Before
+    public void startServer() throws IOException, InterruptedException {
+        toServer = new PipedOutputStream();
+        PipedInputStream serverInput = new PipedInputStream(toServer, 1 << 16);
+        PipedOutputStream serverOutput = new PipedOutputStream();
+        PipedInputStream clientInput = new PipedInputStream(serverOutput, 1 << 16);
+
+        server = executor.submit(() -> {
+            try (serverOutput) {
+                return new LanguageServer(serverInput, serverOutput).run();
+            }
+        });
+        executor.submit(() -> readMessages(clientInput));
+
+        request(0, "initialize", Map.of("capabilities", Map.of()));
+        Map<?, ?> capabilities = (Map<?, ?>) ((Map<?, ?>) response(0).get("result")).get("capabilities");
+        Assert.assertEquals(true, capabilities.get("hoverProvider"));
+        notify("initialized", Map.of());
+    }
+
+    @After
+    public void stopServer() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInitializeAndShutdown() throws Exception {
+        request(1, "shutdown", null);
+        Assert.assertNull(response(1).get("result"));
+        notify("exit", null);
+
+        Assert.assertEquals(0, (int) server.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExitWithoutShutdown() throws Exception {
+        toServer.close();
+
+        Assert.assertEquals(1, (int) server.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDiagnostics() throws Exception {
+        open("inteiro a = 1!\n  imprimir(b)!");
+
+        Map<String, Object> params = diagnostics();
+        Assert.assertEquals(1L, params.get("version"));
+        List<?> diagnostics = (List<?>) params.get("diagnostics");
+        Assert.assertEquals(1, diagnostics.size());
+        Map<?, ?> diagnostic = (Map<?, ?>) diagnostics.get(0);
+        Assert.assertEquals(new UndeclaredIdentifierException("b").getMessage(), diagnostic.get("message"));
+        Assert.assertEquals(position(1, 2), ((Map<?, ?>) diagnostic.get("range")).get("start"));
+
+        change(2, range(1, 11, 1, 12), "a");
+
+        params = diagnostics();
+        Assert.assertEquals(2L, params.get("version"));
+        Assert.assertEquals(List.of(), params.get("diagnostics"));
+    }
+
+    @Test
+    public void testChangesAreDebounced() throws Exception {
+        open("inteiro a = 1!\n");
+        diagnostics();
+
+        // todas as edições chegam juntas, antes do fim da espera, então só a última versão é analisada
+        ByteArrayOutputStream burst = new ByteArrayOutputStream();
+        for (int version = 2; version <= 21; version++) {
+            burst.write(frame(notification("textDocument/didChange", Map.of(
+                "textDocument", Map.of("uri", URI, "version", version),
+                "contentChanges", List.of(Map.of("range", range(1, 0, 1, 0), "text", "imprimir(x)!\n"))))));
+        }
+        toServer.write(burst.toByteArray());
+        toServer.flush();
+
+        Map<String, Object> params = diagnostics();
+        Assert.assertEquals(21L, params.get("version"));
+        Assert.assertEquals(20, ((List<?>) params.get("diagnostics")).size());
+    }
+
+    @Test
+    public void testHoverAndDefinition() throws Exception {
+        open("inteiro a = 1!\nreal média = a * 2,5!\nimprimir(média)!");
+        diagnostics();
+
+        request(1, "textDocument/hover", positionParams(2, 11));
+        Map<?, ?> contents = (Map<?, ?>) ((Map<?, ?>) response(1).get("result")).get("contents");
+        Assert.assertEquals("```cafe\nreal média\n```", contents.get("value"));
+
+        request(2, "textDocument/definition", positionParams(2, 9));
+        Map<?, ?> location = (Map<?, ?>) response(2).get("result");
+        Assert.assertEquals(URI, location.get("uri"));
+        Assert.assertEquals(range(1, 5, 1, 10), location.get("range"));
+
+        request(3, "textDocument/declaration", positionParams(1, 13));
+        Assert.assertEquals(range(0, 8, 0, 9), ((Map<?, ?>) response(3).get("result")).get("range"));
+
+        request(4, "textDocument/hover", positionParams(2, 0));
+        Assert.assertNull(response(4).get("result"));
+    }
+
+    @Test
+    public void testCancelledRequest() throws Exception {
+        // o pedido espera na fila enquanto o documento grande é aberto, então o cancelamento chega antes da resposta
+        ByteArrayOutputStream burst = new ByteArrayOutputStream();
+        burst.write(frame(notification("textDocument/didOpen", Map.of("textDocument",
+            Map.of("uri", URI, "languageId", "cafe", "version", 1, "text", ProgramGenerator.generate(50_000))))));
+        Map<String, Object> hover = notification("textDocument/hover", positionParams(0, 8));
+        hover.put("id", 7L);
+        burst.write(frame(hover));
+        burst.write(frame(notification("$/cancelRequest", Map.of("id", 7))));
+        toServer.write(burst.toByteArray());
+        toServer.flush();
+
+        Assert.assertEquals(-32800L, ((Map<?, ?>) response(7).get("error")).get("code"));
+    }
+
+    @Test
+    public void testCancelOfAnsweredRequestIsIgnored() throws Exception {
+        open("inteiro a = 1!");
+        request(7, "textDocument/hover", positionParams(0, 8));
+        Assert.assertNotNull(response(7).get("result"));
+
+        // nem o pedido já respondido nem o desconhecido ficam guardados para cancelar um pedido futuro com o mesmo id
+        notify("$/cancelRequest", Map.of("id", 7));
+        notify("$/cancelRequest", Map.of("id", 8));
+        request(7, "textDocument/hover", positionParams(0, 8));
+        Assert.assertNotNull(response(7).get("result"));
+        request(8, "textDocument/hover", positionParams(0, 8));
+        Assert.assertNotNull(response(8).get("result"));
+    }
+
+    @Test
+    public void testUnknownMethod() throws Exception {
+        request(1, "textDocument/formatting", Map.of());
+
+        Assert.assertEquals(-32601L, ((Map<?, ?>) response(1).get("error")).get("code"));
+    }
+
+    @Test
+    public void testJson() {
+        String json = "{\"a\":[1,-2.5,true,false,null],\"b\":\"aspas \\\" e \\\\ \\u00e9\\n\",\"c\":{}}";
+        Object value = Json.parse(json);
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("a", java.util.Arrays.asList(1L, -2.5, true, false, null));
+        expected.put("b", "aspas \" e \\ é\n");
+        expected.put("c", Map.of());
+        Assert.assertEquals(expected, value);
+        Assert.assertEquals(value, Json.parse(Json.write(value)));
+        Assert.assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":}"));
+    }
+
+    private void open(String text) throws IOException {
+        notify("textDocument/didOpen", Map.of("textDocument",
+            Map.of("uri", URI, "languageId", "cafe", "version", 1, "text", text)));
+    }
+
+    private void change(int version, Map<String, Object> range, String text) throws IOException {
+        notify("textDocument/didChange", Map.of(
+            "textDocument", Map.of("uri", URI, "version", version),
+            "contentChanges", List.of(Map.of("range", range, "text", text))));
+    }
+
+    private static Map<String, Object> positionParams(int line, int character) {
+        return Map.of("textDocument", Map.of("uri", URI), "position", position(line, character));
+    }
+
+    private static Map<String, Object> position(int line, int character) {
+        return Map.of("line", (long) line, "character", (long) character);
+    }
+
+    private static Map<String, Object> range(int startLine, int startCharacter, int endLine, int endCharacter) {
+        return Map.of("start", position(startLine, startCharacter), "end", position(endLine, endCharacter));
+    }
+
+    private Map<String, Object> diagnostics() throws InterruptedException {
+        Map<String, Object> message = next();
+        Assert.assertEquals("textDocument/publishDiagnostics", message.get("method"));
+        return object(message.get("params"));
+    }
+
+    private Map<String, Object> response(long id) throws InterruptedException {
+        Map<String, Object> message;
+        // notificações de erros podem chegar antes da resposta
+        do {
+            message = next();
+        } while (!message.containsKey("id"));
+
+        Assert.assertEquals(id, message.get("id"));
+        return message;
+    }
+
+    private Map<String, Object> next() throws InterruptedException {
+        Map<String, Object> message = fromServer.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("o servidor não respondeu", message);
+        return message;
+    }
+
+    private void request(long id, String method, Object params) throws IOException {
+        Map<String, Object> message = notification(method, params);
+        message.put("id", id);
+        toServer.write(frame(message));
+        toServer.flush();
+    }
+
+    private void notify(String method, Object params) throws IOException {
+        toServer.write(frame(notification(method, params)));
+        toServer.flush();
+    }
+
+    private static Map<String, Object> notification(String method, Object params) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("jsonrpc", "2.0");
+        message.put("method", method);
+        if (params != null) {
+            message.put("params", params);
+        }
+        return message;
+    }
+
+    private static byte[] frame(Map<String, Object> message) {
+        byte[] body = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        byte[] header = ("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = new byte[header.length + body.length];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(body, 0, frame, header.length, body.length);
+        return frame;
+    }
+
+    private Void readMessages(InputStream input) throws IOException {
+        while (true) {
+            int length = -1;
+            StringBuilder header = new StringBuilder();
+            int b;
+            while ((b = input.read()) != -1) {
+                if (b == '\n') {
+                    String line = header.toString().trim();
+                    header.setLength(0);
+                    if (line.isEmpty()) {
+                        break;
+                    }
+                    length = Integer.parseInt(line.substring("Content-Length:".length()).trim());
+                } else {
+                    header.append((char) b);
+                }
+            }
+            if (b == -1) {
+                return null;
+            }
+
+            fromServer.add(object(Json.parse(new String(input.readNBytes(length), StandardCharsets.UTF_8))));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value) {
+        return (Map<String, Object>) value;
+    }
+}
@@ -0,0 +1,46 @@
+package tcc.tests;
+
+import tcc.*;
+import tcc.Compiler;
+import tcc.nodes.ProgramNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+// Roda programas nos testes e devolve o que eles imprimiram, para comparar a saída dos backends com a do bytecode.
+final class ProgramOutput {
+    interface Action {
+        void run() throws Exception;
+    }
+
+    private ProgramOutput() {}
+
+    static ProgramNode parse(String program) throws Exception {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(program))).parseTopLevel();
+        new SemanticAnalyzer().analyze(programNode);
+        return programNode;
+    }
+
+    static String run(String program, GeneratorOptions generatorOptions) throws Exception {
+        return capture(() -> Compiler.run(new InputStream(program), "Main", generatorOptions, new String[0]));
+    }
+
+    static String runBytecode(String program) throws Exception {
+        return run(program, new GeneratorOptions(Backend.BYTECODE, false));
+    }
+
+    // o que a ação escreveu em System.out, que volta a ser o original no fim
+    static String capture(Action action) throws Exception {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        try {
+            System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+            action.run();
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -7,6 +7,11 @@ import tcc.Parser;
 import tcc.SemanticAnalyzer;
 import tcc.TokenStream;
 import tcc.exceptions.*;
+import tcc.nodes.ProgramNode;
+import tcc.nodes.StatementNode;
+import tcc.nodes.Symbols;
+
+import java.lang.management.ManagementFactory;
 
 public class SemanticAnalyzerTest {
 
@@ -53,4 +58,58 @@ public class SemanticAnalyzerTest {
         String input = "inteiro a! \n inteiro a!";
         Assert.assertThrows(RedeclarationException.class, () -> analyzeInput(input));
     }
+
+    @Test
+    public void testIntOverflowWraps() {
+        // em Java a + 2147483647 + 1 dá zero, já que a vale -2147483648 depois do overflow
+        String input = "inteiro a = 2147483647 + 1! \n inteiro b = 1 / (a + 2147483647 + 1)!";
+        Assert.assertThrows(DivisionByZeroException.class, () -> analyzeInput(input));
+    }
+
+    @Test
+    public void testIntDivisionTruncates() throws ParserException, SemanticAnalyzerException {
+        analyzeInput("inteiro a = 7 / 2 - 3! \n real b = 1,0 / (7 / 2,0 - 3)!");
+        String input = "inteiro a = (0 - 7) / 2 + 3! \n inteiro b = 1 / a!";
+        Assert.assertThrows(DivisionByZeroException.class, () -> analyzeInput(input));
+    }
+
+    @Test
+    public void testNoAllocationPerNode() throws ParserException, SemanticAnalyzerException {
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream(
+            "real r = 0,5! \n inteiro a = 3! \n r = " + "a * 3 - (r * 2,0 + a) / 4 + ".repeat(5_000) + "1!"))).parseTopLevel();
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
+        semanticAnalyzer.analyze(programNode);
+        StatementNode statement = programNode.statements().get(2);
+        for (int i = 0; i < 20; i++) {
+            semanticAnalyzer.analyze(statement);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        semanticAnalyzer.analyze(statement);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // a expressão tem 60 mil nós; o que sobra é constante
+        Assert.assertTrue("alocados " + allocated + " bytes", allocated < 4096);
+    }
+
+    @Test
+    public void testSharedSymbols() throws ParserException, SemanticAnalyzerException {
+        Parser parser = new Parser(new TokenStream(new InputStream("inteiro a = 1! \n real b = a * 2,0! \n b = b / a!")));
+        new SemanticAnalyzer(parser.getSymbols()).analyze(parser.parseTopLevel());
+
+        Assert.assertEquals(2, parser.getSymbols().size());
+    }
+
+    @Test
+    public void testIdentifiersFromAnotherTable() throws ParserException, SemanticAnalyzerException {
+        Symbols symbols = new Symbols();
+        symbols.intern("b");
+        // o parser dá a a o número 0, que nesta outra tabela é de b
+        ProgramNode programNode = new Parser(new TokenStream(new InputStream("inteiro a = 1! \n real b = 2,0!"))).parseTopLevel();
+        new SemanticAnalyzer(symbols).analyze(programNode);
+
+        Assert.assertThrows(TypeMismatchException.class, () -> new SemanticAnalyzer(symbols).analyze(
+            new Parser(new TokenStream(new InputStream("real b! \n inteiro a = 1! \n b = a!"))).parseTopLevel()));
+    }
 }
\ No newline at end of file
@@ -7,6 +7,9 @@ import tcc.*;
 import tcc.exceptions.InvalidCharacterException;
 import tcc.tokens.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 public class TokenStreamTest {
@@ -47,4 +50,93 @@ public class TokenStreamTest {
         Assert.assertEquals(peekedToken.get(), tokenStream.next().get());
         Assert.assertNotEquals(peekedToken, tokenStream.peek());
     }
+
+    @Test
+    public void testTokensAtEndOfInput() throws InvalidCharacterException {
+        TokenStream tokenStream = new TokenStream(new InputStream("média 12,5 7"));
+
+        Assert.assertEquals(new IdentifierToken("média"), tokenStream.next().get());
+        Assert.assertEquals(new DoubleToken(12.5), tokenStream.next().get());
+        Assert.assertEquals(new IntToken(7), tokenStream.next().get());
+        Assert.assertTrue(tokenStream.next().isEmpty());
+    }
+
+    @Test
+    public void testKeywordPrefixesAreIdentifiers() throws InvalidCharacterException {
+        TokenStream tokenStream = new TokenStream(new InputStream("reais inteiro imprimirá real"));
+
+        Assert.assertEquals(new IdentifierToken("reais"), tokenStream.next().get());
+        Assert.assertEquals(new KeywordToken(Keyword.INT), tokenStream.next().get());
+        Assert.assertEquals(new IdentifierToken("imprimirá"), tokenStream.next().get());
+        Assert.assertEquals(new KeywordToken(Keyword.DOUBLE), tokenStream.next().get());
+    }
+
+    @Test
+    public void testInvalidCharacter() {
+        TokenStream tokenStream = new TokenStream(new InputStream("inteiro a = 1 % 2!"));
+        Assert.assertThrows(InvalidCharacterException.class, () -> {
+            while (tokenStream.next().isPresent());
+        });
+    }
+
+    @Test
+    public void testChannelInputMatchesStringInput() throws InvalidCharacterException {
+        String input = "real média = 1,5! # comentário com ç e ã\n imprimir(média * 2)!\n";
+        TokenStream expected = new TokenStream(new InputStream(input));
+
+        // blocos pequenos quebram caracteres UTF-8 de mais de um byte entre leituras
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        TokenStream actual = new TokenStream(new InputStream(Channels.newChannel(new ByteArrayInputStream(bytes)), 3));
+
+        Optional<Token> token;
+        do {
+            token = expected.next();
+            Assert.assertEquals(token, actual.next());
+        } while (token.isPresent());
+    }
+
+    @Test
+    public void testChannelInputTracksLines() {
+        byte[] bytes = "inteiro a = 1!\ninteiro b = 2!\n$".getBytes(StandardCharsets.UTF_8);
+        TokenStream tokenStream = new TokenStream(new InputStream(Channels.newChannel(new ByteArrayInputStream(bytes)), 4));
+
+        InvalidCharacterException exception = Assert.assertThrows(InvalidCharacterException.class, () -> {
+            while (tokenStream.next().isPresent());
+        });
+        Assert.assertEquals("Caractere inválido '$' na linha 3", exception.getMessage());
+    }
+
+    @Test
+    public void testWindowWithoutNewlines() throws InvalidCharacterException {
+        // um programa gerado em uma linha só não pode ficar inteiro na janela
+        byte[] bytes = "inteiro a = 1!".concat(" imprimir(a + 12345)!".repeat(100_000)).getBytes(StandardCharsets.UTF_8);
+        InputStream inputStream = new InputStream(Channels.newChannel(new ByteArrayInputStream(bytes)), 64);
+        TokenStream tokenStream = new TokenStream(inputStream);
+
+        int tokens = 0;
+        while (tokenStream.next().isPresent()) {
+            tokens++;
+        }
+
+        Assert.assertEquals(5 + 100_000 * 7, tokens);
+        Assert.assertEquals(1, tokenStream.getLine());
+        Assert.assertEquals(64, inputStream.getWindowCapacity());
+    }
+
+    @Test
+    public void testWindowAcrossLargeComments() throws InvalidCharacterException {
+        // quase 4 MB de comentários, em muitas linhas e em uma linha só, entre dois tokens
+        String input = "inteiro a = 1!\n" + "# comentário de uma linha\n\n".repeat(80_000)
+            + "  # " + "x".repeat(2_000_000) + "\nimprimir(a)!";
+        InputStream inputStream = new InputStream(
+            Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))), 64);
+        TokenStream tokenStream = new TokenStream(inputStream);
+
+        for (int i = 0; i < 5; i++) {
+            tokenStream.next();
+        }
+        Assert.assertEquals(new KeywordToken(Keyword.PRINT), tokenStream.next().get());
+        Assert.assertEquals(3 + 80_000 * 2, tokenStream.getLine());
+        Assert.assertEquals(64, inputStream.getWindowCapacity());
+    }
 }
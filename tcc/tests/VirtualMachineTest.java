@@ -0,0 +1,150 @@
+package tcc.tests;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tcc.*;
+import tcc.Compiler;
+import tcc.benchmarks.ProgramGenerator;
+import tcc.vm.Opcodes;
+import tcc.vm.VirtualMachine;
+import tcc.vm.VmGenerator;
+import tcc.vm.VmProgram;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class VirtualMachineTest {
+    private static final String PROGRAM = "inteiro a = 3!\n"
+        + "real b = 2,5!\n"
+        + "imprimir(a * b)!\n"
+        + "imprimir(a / 2)!\n"
+        + "imprimir(7 / a - a * 2)!\n"
+        + "inteiro c = a = a + 1!\n"
+        + "imprimir(c + a)!\n"
+        + "imprimir(a + (a = 10) * a)!\n"
+        + "real d = 10000000,0 * 1000,0!\n"
+        + "imprimir(d)!\n"
+        + "imprimir(2147483647 + a)!\n"
+        + "b = b * 2 + a!\n"
+        + "imprimir(b)!\n"
+        + "imprimir(1)!\n"
+        + "(a + 1) * 2!\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsGeneratedCode() throws Exception {
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), execute(VmGenerator.generate(ProgramOutput.parse(PROGRAM))));
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), ProgramOutput.capture(() ->
+            Compiler.run(new InputStream(PROGRAM), "Main", new GeneratorOptions(Backend.VM, true), new String[0])));
+
+        String program = ProgramGenerator.generate(2_000);
+        Assert.assertEquals(ProgramOutput.runBytecode(program), execute(VmGenerator.generate(ProgramOutput.parse(program))));
+    }
+
+    @Test
+    public void testRegisterAllocation() throws Exception {
+        VmProgram program = VmGenerator.generate(ProgramOutput.parse("inteiro a = 1!\nreal b!\na = a + 1!\nb = a * 2,5!\n"
+            + "imprimir((a + a) * (a - a) / a)!\nimprimir(b)!\na * 3!"));
+
+        // a atribuição usa o registrador do valor atribuído, cada registrador volta a ficar livre depois do último
+        // uso, e a * 3, que ninguém lê, não é calculado
+        Assert.assertEquals("ICONST i0, 1\n"
+            + "IADDK i0, i0, 1\n"
+            + "I2D d0, i0\n"
+            + "DMULK d0, d0, 2.5\n"
+            + "IADD i1, i0, i0\n"
+            + "ISUB i2, i0, i0\n"
+            + "IMUL i1, i1, i2\n"
+            + "IDIV i0, i1, i0\n"
+            + "PRINT_I i0\n"
+            + "PRINT_D d0\n", program.disassemble());
+        Assert.assertEquals(3, program.intRegisters());
+        Assert.assertEquals(1, program.doubleRegisters());
+    }
+
+    @Test
+    public void testFileRoundTrip() throws Exception {
+        Path source = folder.getRoot().toPath().resolve("programa.cafe");
+        Files.writeString(source, PROGRAM);
+        Compiler.compile(source, source.resolveSibling("Programa.cafeb"), false, new GeneratorOptions(Backend.VM, false));
+
+        VmProgram program = VmProgram.read(source.resolveSibling("Programa.cafeb"));
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), execute(program));
+
+        // --run aceita o arquivo compilado e pula o compilador
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        String output = ProgramOutput.capture(() -> Assert.assertEquals(0, Compiler.run(
+            CompilerOptions.parse(new String[]{"--run", source.resolveSibling("Programa.cafeb").toString()}),
+            System.out, new PrintStream(err, true, StandardCharsets.UTF_8))));
+        Assert.assertEquals(ProgramOutput.runBytecode(PROGRAM), output);
+    }
+
+    @Test
+    public void testInvalidFileIsRejected() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new VmProgram(1, 0, new double[0], new int[]{Opcodes.ICONST, 0, 1, Opcodes.PRINT_I, 1}).writeTo(bytes);
+
+        IOException error = Assert.assertThrows(IOException.class,
+            () -> VmProgram.read(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertTrue(error.getMessage(), error.getMessage().contains("fora dos limites"));
+
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 2);
+        Assert.assertThrows(IOException.class, () -> VmProgram.read(new ByteArrayInputStream(truncated)));
+        Assert.assertThrows(IOException.class, () -> VmProgram.read(new ByteArrayInputStream("imprimir(1)!".getBytes())));
+
+        // tamanhos enormes são recusados antes de qualquer alocação
+        ByteArrayOutputStream huge = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(huge);
+        out.writeInt(0x43414642);
+        out.writeShort(1);
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeInt(Integer.MAX_VALUE - 8);
+        error = Assert.assertThrows(IOException.class, () -> VmProgram.read(new ByteArrayInputStream(huge.toByteArray())));
+        Assert.assertTrue(error.getMessage(), error.getMessage().contains("maior que o resto do arquivo"));
+        Assert.assertThrows(IOException.class, () -> new VmProgram(Integer.MAX_VALUE, 0, new double[0], new int[0]).verify());
+    }
+
+    @Test
+    public void testDeepExpressions() throws Throwable {
+        // bem menor que a pilha padrão, para que qualquer recursão por nível da expressão estoure
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                Assert.assertEquals("200001" + System.lineSeparator(),
+                    execute(VmGenerator.generate(ProgramOutput.parse(ProgramGenerator.generateNestedExpression(200_000)))));
+                Assert.assertEquals("1" + System.lineSeparator(),
+                    execute(VmGenerator.generate(ProgramOutput.parse(ProgramGenerator.generateAssignmentChain(200_000)))));
+                Assert.assertEquals("2" + System.lineSeparator(),
+                    execute(VmGenerator.generate(ProgramOutput.parse(ProgramGenerator.generateLongExpression(200_000)))));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "máquina virtual", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static String execute(VmProgram program) throws IOException {
+        StringWriter output = new StringWriter();
+        VirtualMachine.run(program, output);
+        return output.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package tcc.vm;
+
+// Conjunto de instruções da máquina virtual. Cada instrução é um opcode seguido dos seus operandos, todos int, e o
+// tipo de cada operando é dado por uma letra em OPERANDS:
+//   i: registrador int      d: registrador double
+//   k: valor int imediato   c: índice na tabela de constantes double
+// O primeiro operando das instruções que produzem um valor é sempre o registrador de destino.
+public final class Opcodes {
+    public static final int ICONST = 0;
+    public static final int DCONST = 1;
+    public static final int IMOV = 2;
+    public static final int DMOV = 3;
+    public static final int I2D = 4;
+    public static final int IADD = 5;
+    public static final int ISUB = 6;
+    public static final int IMUL = 7;
+    public static final int IDIV = 8;
+    public static final int DADD = 9;
+    public static final int DSUB = 10;
+    public static final int DMUL = 11;
+    public static final int DDIV = 12;
+    // operações com uma constante à direita, o caso mais comum, dispensam carregá-la em um registrador
+    public static final int IADDK = 13;
+    public static final int ISUBK = 14;
+    public static final int IMULK = 15;
+    public static final int IDIVK = 16;
+    public static final int DADDK = 17;
+    public static final int DSUBK = 18;
+    public static final int DMULK = 19;
+    public static final int DDIVK = 20;
+    public static final int PRINT_I = 21;
+    public static final int PRINT_D = 22;
+
+    static final String[] NAMES = {
+        "ICONST", "DCONST", "IMOV", "DMOV", "I2D",
+        "IADD", "ISUB", "IMUL", "IDIV", "DADD", "DSUB", "DMUL", "DDIV",
+        "IADDK", "ISUBK", "IMULK", "IDIVK", "DADDK", "DSUBK", "DMULK", "DDIVK",
+        "PRINT_I", "PRINT_D"
+    };
+
+    static final String[] OPERANDS = {
+        "ik", "dc", "ii", "dd", "di",
+        "iii", "iii", "iii", "iii", "ddd", "ddd", "ddd", "ddd",
+        "iik", "iik", "iik", "iik", "ddc", "ddc", "ddc", "ddc",
+        "i", "d"
+    };
+
+    private Opcodes() {}
+
+    // tamanho da instrução, contando o opcode
+    static int length(int opcode) {
+        return 1 + OPERANDS[opcode].length();
+    }
+}
@@ -0,0 +1,155 @@
+package tcc.vm;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Executa os programas gerados por VmGenerator. O laço de execução é um só método pequeno, com os registradores e o
+// código em variáveis locais e um switch denso sobre o opcode, sem alocação nem chamadas virtuais, o que o JIT compila
+// bem; a impressão fica fora dele para que ele continue pequeno. Como Café não tem desvios, o código é executado uma
+// só vez do começo ao fim.
+public final class VirtualMachine {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private VirtualMachine() {}
+
+    // executa um arquivo .cafeb sem passar pelo compilador: java -cp compiler.jar tcc.vm.VirtualMachine programa.cafeb
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Uso: java tcc.vm.VirtualMachine programa" + VmProgram.EXTENSION);
+            System.exit(2);
+            return;
+        }
+
+        Path path = Paths.get(args[0]);
+        try {
+            run(VmProgram.read(path), new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        } catch (IOException | RuntimeException e) {
+            System.err.println(path + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // o programa precisa ter sido verificado, como os lidos por VmProgram.read ou gerados pelo VmGenerator; o que foi
+    // impresso chega à saída mesmo se a execução falhar
+    public static void run(VmProgram program, Writer out) throws IOException {
+        try {
+            execute(program.code(), new int[program.intRegisters()], new double[program.doubleRegisters()],
+                program.constants(), out);
+        } finally {
+            out.flush();
+        }
+    }
+
+    private static void execute(int[] code, int[] ints, double[] doubles, double[] constants, Writer out)
+            throws IOException {
+        int pc = 0;
+        int end = code.length;
+        while (pc < end) {
+            switch (code[pc]) {
+                case Opcodes.ICONST -> {
+                    ints[code[pc + 1]] = code[pc + 2];
+                    pc += 3;
+                }
+                case Opcodes.DCONST -> {
+                    doubles[code[pc + 1]] = constants[code[pc + 2]];
+                    pc += 3;
+                }
+                case Opcodes.IMOV -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]];
+                    pc += 3;
+                }
+                case Opcodes.DMOV -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]];
+                    pc += 3;
+                }
+                case Opcodes.I2D -> {
+                    doubles[code[pc + 1]] = ints[code[pc + 2]];
+                    pc += 3;
+                }
+                case Opcodes.IADD -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] + ints[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.ISUB -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] - ints[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.IMUL -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] * ints[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.IDIV -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] / ints[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DADD -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] + doubles[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DSUB -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] - doubles[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DMUL -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] * doubles[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DDIV -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] / doubles[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.IADDK -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] + code[pc + 3];
+                    pc += 4;
+                }
+                case Opcodes.ISUBK -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] - code[pc + 3];
+                    pc += 4;
+                }
+                case Opcodes.IMULK -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] * code[pc + 3];
+                    pc += 4;
+                }
+                case Opcodes.IDIVK -> {
+                    ints[code[pc + 1]] = ints[code[pc + 2]] / code[pc + 3];
+                    pc += 4;
+                }
+                case Opcodes.DADDK -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] + constants[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DSUBK -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] - constants[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DMULK -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] * constants[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.DDIVK -> {
+                    doubles[code[pc + 1]] = doubles[code[pc + 2]] / constants[code[pc + 3]];
+                    pc += 4;
+                }
+                case Opcodes.PRINT_I -> {
+                    print(out, Integer.toString(ints[code[pc + 1]]));
+                    pc += 2;
+                }
+                case Opcodes.PRINT_D -> {
+                    print(out, Double.toString(doubles[code[pc + 1]]));
+                    pc += 2;
+                }
+                default -> throw new IllegalStateException("Opcode inválido " + code[pc] + " na posição " + pc);
+            }
+        }
+    }
+
+    private static void print(Writer out, String value) throws IOException {
+        out.write(value);
+        out.write(LINE_SEPARATOR);
+    }
+}
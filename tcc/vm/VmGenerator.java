@@ -0,0 +1,320 @@
+package tcc.vm;
+
+import tcc.CodeEmitter;
+import tcc.DataType;
+import tcc.Operator;
+import tcc.ir.*;
+import tcc.nodes.ProgramNode;
+import tcc.nodes.StatementNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Gera o código da máquina virtual a partir da representação intermediária, em que os tipos e as conversões de int
+// para double já estão explícitos. Há dois bancos de registradores, um de int e outro de double; cada valor ganha um
+// registrador do seu tipo quando é calculado e o devolve no seu último uso, e uma cópia (uma atribuição) usa o mesmo
+// registrador do valor copiado, já que em SSA nenhum dos dois muda depois.
+//
+// Constantes só viram instruções quando precisam estar em um registrador, então a + 1 é uma só instrução IADDK, e
+// valores que ninguém lê não são calculados, a não ser divisões inteiras que podem lançar ArithmeticException.
+public class VmGenerator {
+    private final PassManager passManager;
+    private IrProgram program;
+
+    // por valor: se é uma constante conhecida e qual, e o valor cujo registrador ele usa (ele mesmo, ou o copiado)
+    private boolean[] constants;
+    private int[] intValues;
+    private double[] doubleValues;
+    private int[] representatives;
+    // pelo representante: o registrador e o índice da última instrução que o lê, ou -1
+    private int[] registers;
+    private int[] lastUses;
+
+    // por tipo, indexados pelo ordinal: os registradores ocupados e o total deles
+    private final BitSet[] occupied = {new BitSet(), new BitSet()};
+    private final int[] registerCounts = new int[2];
+
+    private final Map<Long, Integer> constantIndexes = new HashMap<>();
+    private double[] constantTable = new double[16];
+    private int constantCount = 0;
+
+    private int[] code = new int[256];
+    private int size = 0;
+
+    public VmGenerator() {
+        this(new PassManager(List.of(), false));
+    }
+
+    // os passes rodam sobre a representação intermediária antes da geração
+    public VmGenerator(PassManager passManager) {
+        this.passManager = passManager;
+    }
+
+    public static VmProgram generate(ProgramNode programNode) {
+        return generate(IrBuilder.lower(programNode));
+    }
+
+    public static VmProgram generate(IrProgram program) {
+        VmGenerator generator = new VmGenerator();
+        generator.translate(program);
+        return generator.toProgram();
+    }
+
+    // o programa fica em memória e é obtido com toProgram()
+    public CodeEmitter emitter() {
+        IrBuilder builder = new IrBuilder();
+        return new CodeEmitter() {
+            @Override
+            public void emit(StatementNode statement) {
+                builder.add(statement);
+            }
+
+            @Override
+            public void finish() {
+                translate(builder);
+            }
+        };
+    }
+
+    // grava o programa no formato .cafeb ao final
+    public CodeEmitter emitter(OutputStream out) {
+        IrBuilder builder = new IrBuilder();
+        return new CodeEmitter() {
+            @Override
+            public void emit(StatementNode statement) {
+                builder.add(statement);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                translate(builder);
+                toProgram().writeTo(out);
+            }
+        };
+    }
+
+    public VmProgram toProgram() {
+        if (registerCounts[0] > VmProgram.MAX_REGISTERS || registerCounts[1] > VmProgram.MAX_REGISTERS) {
+            throw new IllegalStateException("O programa precisa de mais registradores do que a máquina virtual aceita");
+        }
+        return new VmProgram(registerCounts[0], registerCounts[1], Arrays.copyOf(constantTable, constantCount),
+            Arrays.copyOf(code, size));
+    }
+
+    // como os passes precisam do programa inteiro, nada é gerado antes do fim
+    private void translate(IrBuilder builder) {
+        IrProgram program = builder.build();
+        passManager.run(program);
+        translate(program);
+    }
+
+    private void translate(IrProgram program) {
+        this.program = program;
+        List<Instruction> instructions = program.instructions();
+        int valueCount = program.valueCount();
+        constants = new boolean[valueCount];
+        intValues = new int[valueCount];
+        doubleValues = new double[valueCount];
+        representatives = new int[valueCount];
+        registers = new int[valueCount];
+        lastUses = new int[valueCount];
+        Arrays.fill(lastUses, -1);
+
+        for (Instruction instruction : instructions) {
+            int result = instruction.result();
+            if (result == Instruction.NO_VALUE) {
+                continue;
+            }
+            representatives[result] = result;
+            switch (instruction) {
+                case IntConstant constant -> {
+                    constants[result] = true;
+                    intValues[result] = constant.value();
+                }
+                case DoubleConstant constant -> {
+                    constants[result] = true;
+                    doubleValues[result] = constant.value();
+                }
+                case Widen widen when constants[widen.source()] -> {
+                    constants[result] = true;
+                    doubleValues[result] = intValues[widen.source()];
+                }
+                case Copy copy -> {
+                    int source = copy.source();
+                    constants[result] = constants[source];
+                    intValues[result] = intValues[source];
+                    doubleValues[result] = doubleValues[source];
+                    representatives[result] = representatives[source];
+                }
+                default -> {}
+            }
+        }
+
+        // de trás para frente, como a eliminação de código morto: só as instruções que levam a uma impressão ou que
+        // podem lançar exceção ficam, e o primeiro uso encontrado de cada registrador é o último do programa
+        boolean[] used = new boolean[valueCount];
+        boolean[] live = new boolean[instructions.size()];
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            Instruction instruction = instructions.get(i);
+            live[i] = instruction instanceof Print || used[instruction.result()]
+                || (instruction instanceof Binary binary && DeadCodeElimination.mayThrow(binary, constants, intValues));
+            if (live[i]) {
+                for (int operand : instruction.operands()) {
+                    used[operand] = true;
+                    if (lastUses[representatives[operand]] < 0) {
+                        lastUses[representatives[operand]] = i;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < instructions.size(); i++) {
+            if (live[i]) {
+                generateInstruction(instructions.get(i), i);
+            }
+        }
+    }
+
+    private void generateInstruction(Instruction instruction, int index) {
+        switch (instruction) {
+            // constantes e cópias só aparecem nas instruções que as usam
+            case IntConstant constant -> {}
+            case DoubleConstant constant -> {}
+            case Copy copy -> {}
+            case Widen widen -> {
+                if (!constants[widen.result()]) {
+                    int source = register(widen.source());
+                    release(widen.source(), index);
+                    emit(Opcodes.I2D, allocate(widen.result()), source);
+                }
+            }
+            case Binary binary -> generateBinary(binary, index);
+            case Print print -> {
+                int register = load(print.value());
+                release(print.value(), index);
+                emit(print.type() == DataType.INT ? Opcodes.PRINT_I : Opcodes.PRINT_D, register);
+            }
+        }
+    }
+
+    private void generateBinary(Binary binary, int index) {
+        int left = binary.left();
+        int right = binary.right();
+        Operator op = binary.op();
+        if (constants[left] && !constants[right]
+            && (op == Operator.PLUS_SIGN || op == Operator.MULTIPLICATION_SIGN)) {
+            left = binary.right();
+            right = binary.left();
+        }
+
+        // uma constante à direita vai na própria instrução: o valor, se int, ou a posição na tabela, se double
+        int leftRegister = load(left);
+        int rightOperand = !constants[right] ? register(right)
+            : binary.type() == DataType.INT ? intValues[right] : constant(doubleValues[right]);
+        // os operandos são lidos antes de o destino ser escrito, então o destino pode reaproveitar um deles
+        release(left, index);
+        release(right, index);
+
+        emit(opcode(op, binary.type(), constants[right]), allocate(binary.result()), leftRegister, rightOperand);
+    }
+
+    // O registrador de um valor, carregando uma constante em um registrador livre. Ele é devolvido na hora: só o
+    // operando da esquerda é carregado, e a próxima alocação é o destino da mesma instrução, que pode coincidir com ele.
+    private int load(int value) {
+        if (!constants[value]) {
+            return register(value);
+        }
+
+        DataType type = program.type(value);
+        int register = occupied[type.ordinal()].nextClearBit(0);
+        registerCounts[type.ordinal()] = Math.max(registerCounts[type.ordinal()], register + 1);
+        if (type == DataType.INT) {
+            emit(Opcodes.ICONST, register, intValues[value]);
+        } else {
+            emit(Opcodes.DCONST, register, constant(doubleValues[value]));
+        }
+        return register;
+    }
+
+    private static int opcode(Operator op, DataType type, boolean constantRight) {
+        int base = switch (op) {
+            case PLUS_SIGN -> 0;
+            case MINUS_SIGN -> 1;
+            case MULTIPLICATION_SIGN -> 2;
+            case DIVISION_SIGN -> 3;
+            // nunca acontece
+            case EQUAL_SIGN -> throw new IllegalStateException("Operador de atribuição não deve ser gerado como operação");
+        };
+
+        if (type == DataType.INT) {
+            return (constantRight ? Opcodes.IADDK : Opcodes.IADD) + base;
+        }
+        return (constantRight ? Opcodes.DADDK : Opcodes.DADD) + base;
+    }
+
+    private int register(int value) {
+        return registers[representatives[value]];
+    }
+
+    // um valor que ninguém lê, como uma divisão mantida só pela exceção, devolve o registrador logo depois de escrito
+    private int allocate(int value) {
+        int ordinal = program.type(value).ordinal();
+        int register = occupied[ordinal].nextClearBit(0);
+        registerCounts[ordinal] = Math.max(registerCounts[ordinal], register + 1);
+        registers[value] = register;
+        if (lastUses[value] >= 0) {
+            occupied[ordinal].set(register);
+        }
+        return register;
+    }
+
+    private void release(int value, int index) {
+        int representative = representatives[value];
+        if (!constants[value] && lastUses[representative] == index) {
+            occupied[program.type(representative).ordinal()].clear(registers[representative]);
+        }
+    }
+
+    // constantes iguais ocupam uma só posição da tabela; a comparação é pelos bits, para separar 0.0 de -0.0
+    private int constant(double value) {
+        return constantIndexes.computeIfAbsent(Double.doubleToRawLongBits(value), bits -> {
+            if (constantCount == constantTable.length) {
+                constantTable = Arrays.copyOf(constantTable, constantCount * 2);
+            }
+            constantTable[constantCount] = value;
+            return constantCount++;
+        });
+    }
+
+    private void emit(int opcode, int a) {
+        reserve(2);
+        code[size++] = opcode;
+        code[size++] = a;
+    }
+
+    private void emit(int opcode, int a, int b) {
+        reserve(3);
+        code[size++] = opcode;
+        code[size++] = a;
+        code[size++] = b;
+    }
+
+    private void emit(int opcode, int a, int b, int c) {
+        reserve(4);
+        code[size++] = opcode;
+        code[size++] = a;
+        code[size++] = b;
+        code[size++] = c;
+    }
+
+    private void reserve(int length) {
+        if (size + length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + length));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package tcc.vm;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Programa compilado para a máquina virtual: as instruções, a tabela de constantes double e quantos registradores de
+// cada tipo a execução precisa.
+//
+// No arquivo .cafeb o programa é gravado assim, com os números em big-endian:
+//   int magic ("CAFB"), short versão
+//   int registradores int, int registradores double
+//   int número de constantes, seguido delas em double
+//   int tamanho do código, seguido dele em int
+// Ao ler um arquivo as instruções são verificadas, então a máquina virtual pode executá-las sem checar nada. Os tamanhos
+// gravados também são conferidos antes de qualquer alocação, para que um arquivo corrompido não esgote a memória.
+public record VmProgram(int intRegisters, int doubleRegisters, double[] constants, int[] code) {
+    public static final String EXTENSION = ".cafeb";
+
+    private static final int MAGIC = 0x43414642;
+    private static final int VERSION = 1;
+    // cada registrador é uma variável ou um valor intermediário; 16 milhões de registradores double já ocupam 128 MB
+    static final int MAX_REGISTERS = 1 << 24;
+
+    public void writeTo(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(intRegisters);
+        out.writeInt(doubleRegisters);
+        out.writeInt(constants.length);
+        for (double constant : constants) {
+            out.writeDouble(constant);
+        }
+        out.writeInt(code.length);
+        for (int word : code) {
+            out.writeInt(word);
+        }
+        out.flush();
+    }
+
+    public static VmProgram read(Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return read(input);
+        }
+    }
+
+    public static VmProgram read(InputStream input) throws IOException {
+        // o arquivo inteiro fica em memória para que os tamanhos possam ser comparados com o que resta dele
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(input.readAllBytes()));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("O arquivo não é um programa Café compilado");
+        }
+        int version = in.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Versão " + version + " do formato .cafeb não é suportada");
+        }
+
+        int intRegisters = in.readInt();
+        int doubleRegisters = in.readInt();
+        double[] constants = new double[count(in, in.readInt(), Double.BYTES)];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = in.readDouble();
+        }
+        int[] code = new int[count(in, in.readInt(), Integer.BYTES)];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = in.readInt();
+        }
+
+        VmProgram program = new VmProgram(intRegisters, doubleRegisters, constants, code);
+        program.verify();
+        return program;
+    }
+
+    // confere que os opcodes existem, que a última instrução está completa e que os operandos estão dentro dos limites
+    public void verify() throws IOException {
+        if (intRegisters < 0 || doubleRegisters < 0 || intRegisters > MAX_REGISTERS || doubleRegisters > MAX_REGISTERS) {
+            throw new IOException("Número de registradores inválido");
+        }
+
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            if (opcode < 0 || opcode >= Opcodes.NAMES.length) {
+                throw new IOException("Opcode inválido " + opcode + " na posição " + pc);
+            }
+            if (pc + Opcodes.length(opcode) > code.length) {
+                throw new IOException("Instrução incompleta na posição " + pc);
+            }
+
+            String operands = Opcodes.OPERANDS[opcode];
+            for (int i = 0; i < operands.length(); i++) {
+                int operand = code[pc + 1 + i];
+                int limit = switch (operands.charAt(i)) {
+                    case 'i' -> intRegisters;
+                    case 'd' -> doubleRegisters;
+                    case 'c' -> constants.length;
+                    default -> Integer.MAX_VALUE;
+                };
+                if (operands.charAt(i) != 'k' && (operand < 0 || operand >= limit)) {
+                    throw new IOException("Operando " + operand + " fora dos limites na posição " + pc);
+                }
+            }
+            pc += Opcodes.length(opcode);
+        }
+    }
+
+    // uma instrução por linha, para depuração e testes
+    public String disassemble() {
+        StringBuilder output = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            output.append(Opcodes.NAMES[opcode]);
+            String operands = Opcodes.OPERANDS[opcode];
+            for (int i = 0; i < operands.length(); i++) {
+                int operand = code[pc + 1 + i];
+                output.append(i == 0 ? " " : ", ");
+                switch (operands.charAt(i)) {
+                    case 'i' -> output.append('i').append(operand);
+                    case 'd' -> output.append('d').append(operand);
+                    case 'c' -> output.append(constants[operand]);
+                    default -> output.append(operand);
+                }
+            }
+            output.append('\n');
+            pc += Opcodes.length(opcode);
+        }
+
+        return output.toString();
+    }
+
+    // in lê de um array, então available() é exatamente o que falta do arquivo
+    private static int count(DataInputStream in, int value, int elementSize) throws IOException {
+        if (value < 0) {
+            throw new IOException("Tamanho inválido " + value);
+        }
+        if ((long) value * elementSize > in.available()) {
+            throw new IOException("Tamanho " + value + " maior que o resto do arquivo");
+        }
+
+        return value;
+    }
+}